@@ -0,0 +1,37 @@
+package ch.frostnova.app.boot;
+
+import ch.frostnova.common.service.scope.TaskScope;
+import ch.frostnova.spring.boot.platform.aspect.PerformanceLoggingAspect.CapturedInvocation;
+import ch.frostnova.spring.boot.platform.aspect.PerformanceLoggingAspect.PerformanceLoggingContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Profile;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+/**
+ * Propagates the performance logging context to the threads executing code of a {@link TaskScope.ExecutionContext}, so
+ * invocations on those threads are attributed to the invocation which created the execution context (instead of
+ * showing up as separate invocation trees).
+ */
+@Configuration
+@Lazy(false)
+@Profile("performance-logging")
+public class ContextPropagationConfig {
+
+    private final TaskScope.ContextPropagator performanceLoggingPropagator = () -> {
+        CapturedInvocation capturedInvocation = PerformanceLoggingContext.capture();
+        return capturedInvocation != null ? capturedInvocation::attach : null;
+    };
+
+    @PostConstruct
+    public void init() {
+        TaskScope.addContextPropagator(performanceLoggingPropagator);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        TaskScope.removeContextPropagator(performanceLoggingPropagator);
+    }
+}
@@ -0,0 +1,55 @@
+// k6 load test comparing request handling on platform threads (Tomcat worker pool) and virtual threads, at up to
+// 10'000 concurrent connections, each fetching a page of notes (one JDBC query per request).
+//
+// Run against each mode and compare the http_req_duration percentiles and http_req_failed rate:
+//
+//   JAVA_IMAGE=eclipse-temurin:21-jre VIRTUAL_THREADS=false docker-compose up --build -d
+//   k6 run --summary-export=platform-threads.json docker/loadtest/virtual-threads.js
+//
+//   JAVA_IMAGE=eclipse-temurin:21-jre VIRTUAL_THREADS=true docker-compose up --build -d
+//   k6 run --summary-export=virtual-threads.json docker/loadtest/virtual-threads.js
+//
+// Both modes share the same database connection pool (DATABASE_POOL_SIZE, default: 100 connections), which bounds
+// the number of requests querying the database at the same time.
+//
+// Options (environment variables): BASE_URL (default: https://localhost:8443), VUS (default: 10000),
+// DURATION (steady state, default: 2m)
+import http from 'k6/http';
+import {check} from 'k6';
+
+const baseUrl = __ENV.BASE_URL || 'https://localhost:8443';
+const vus = parseInt(__ENV.VUS || '10000');
+
+export const options = {
+    insecureSkipTLSVerify: true,
+    scenarios: {
+        concurrent_connections: {
+            executor: 'ramping-vus',
+            startVUs: 0,
+            stages: [
+                {duration: '1m', target: vus},
+                {duration: __ENV.DURATION || '2m', target: vus},
+                {duration: '30s', target: 0},
+            ],
+            gracefulRampDown: '30s',
+        },
+    },
+    thresholds: {
+        http_req_failed: ['rate<0.01'],
+        http_req_duration: ['p(99)<2000'],
+    },
+    summaryTrendStats: ['avg', 'med', 'p(90)', 'p(99)', 'max'],
+};
+
+export function setup() {
+    const response = http.get(`${baseUrl}/login/test-tenant/LOADTEST?roles=user&duration=1h`);
+    check(response, {'login ok': r => r.status === 200});
+    return {token: response.body};
+}
+
+export default function (data) {
+    const response = http.get(`${baseUrl}/api/notes/page?limit=20`, {
+        headers: {Authorization: `Bearer ${data.token}`},
+    });
+    check(response, {'status 200': r => r.status === 200});
+}
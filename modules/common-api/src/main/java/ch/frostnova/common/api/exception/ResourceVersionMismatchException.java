@@ -0,0 +1,16 @@
+package ch.frostnova.common.api.exception;
+
+/**
+ * Exception indicating that a resource was not updated, because it was modified concurrently (its current version
+ * does not match the version expected by the client).
+ */
+public class ResourceVersionMismatchException extends RuntimeException {
+
+    public ResourceVersionMismatchException() {
+        this("Version mismatch");
+    }
+
+    public ResourceVersionMismatchException(String message) {
+        super(message);
+    }
+}
@@ -11,7 +11,7 @@ import java.util.Objects;
 
 import static io.swagger.v3.oas.annotations.media.Schema.AccessMode.READ_ONLY;
 
-@JsonPropertyOrder({"id", "createdOn", "updatedOn"})
+@JsonPropertyOrder({"id", "version", "createdOn", "updatedOn"})
 public class BaseResource<ID> implements Serializable {
 
     private final String EXAMPLE_ID = "12345";
@@ -21,6 +21,10 @@ public class BaseResource<ID> implements Serializable {
     @JsonProperty("id")
     private ID id;
 
+    @Schema(name = "version", description = "version, incremented on each update (generated)", accessMode = READ_ONLY, example = "0")
+    @JsonProperty("version")
+    private Long version;
+
     @Schema(name = "created", description = "creation date (generated)", accessMode = READ_ONLY, example = EXAMPLE_OFFSET_DATE_TIME)
     @JsonProperty("created")
     @PastOrPresent
@@ -39,6 +43,14 @@ public class BaseResource<ID> implements Serializable {
         this.id = id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public OffsetDateTime getCreated() {
         return created;
     }
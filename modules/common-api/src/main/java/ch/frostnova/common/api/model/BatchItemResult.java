@@ -0,0 +1,68 @@
+package ch.frostnova.common.api.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.io.Serializable;
+
+/**
+ * Result of a single item of a batch operation. Batch results are returned in the same order as the submitted items.
+ *
+ * @param <T> item type
+ */
+@JsonPropertyOrder({"status", "resource"})
+public class BatchItemResult<T> implements Serializable {
+
+    @Schema(name = "status", description = "outcome of the operation for this item")
+    @JsonProperty("status")
+    private Status status;
+
+    @Schema(name = "resource", description = "resulting resource (created or updated), or the submitted item when it could not be processed")
+    @JsonProperty("resource")
+    private T resource;
+
+    public BatchItemResult() {
+    }
+
+    public BatchItemResult(Status status, T resource) {
+        this.status = status;
+        this.resource = resource;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public T getResource() {
+        return resource;
+    }
+
+    public void setResource(T resource) {
+        this.resource = resource;
+    }
+
+    @Override
+    public String toString() {
+        return status + ": " + resource;
+    }
+
+    public enum Status {
+        /**
+         * new resource was created
+         */
+        CREATED,
+        /**
+         * existing resource was updated
+         */
+        UPDATED,
+        /**
+         * resource to update was not found
+         */
+        NOT_FOUND
+    }
+}
@@ -0,0 +1,60 @@
+package ch.frostnova.common.api.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A page of results, obtained by keyset (cursor) pagination. The page contains the items and, when more items are
+ * available, an opaque cursor pointing to the next page.
+ *
+ * @param <T> item type
+ */
+@JsonPropertyOrder({"items", "nextCursor"})
+public class CursorPage<T> implements Serializable {
+
+    @Schema(name = "items", description = "items on this page")
+    @JsonProperty("items")
+    private List<T> items = new ArrayList<>();
+
+    @Schema(name = "nextCursor", description = "opaque cursor to fetch the next page, or null when this is the last page", example = "MjAxOS0wOC0wN1QxNjo1NDozMiswMTowMHwxMjM0NQ")
+    @JsonProperty("nextCursor")
+    private String nextCursor;
+
+    public CursorPage() {
+    }
+
+    public CursorPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Check if there are more items after this page.
+     *
+     * @return true if there is a next page
+     */
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,173 @@
+package ch.frostnova.common.service.benchmark;
+
+import ch.frostnova.common.service.scope.TaskScope;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.beans.factory.ObjectFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Per-request overhead of the task scope (as opened and closed by the <code>TaskScopeRequestScopeFilter</code>), with 4
+ * concurrent threads to show contention. Each benchmark runs the same calls (<code>init()</code>, the call of the
+ * request, <code>destroy()</code>) on the eagerly initialized task scope as it was before (see {@link EagerTaskScope})
+ * and on the current {@link TaskScope}: <p>
+ * <ul>
+ * <li>eagerScope / lazyScope: task scope which is never used (most requests).</li>
+ * <li>eagerScopeConversationId / lazyScopeConversationId: task scope whose conversation id is requested.</li>
+ * <li>eagerScopeBean / lazyScopeBean: task scope in which a task-scoped bean is resolved.</li>
+ * </ul>
+ * Run with <code>gradlew :modules:common-service:jmh</code> (results in
+ * <code>modules/common-service/build/results/jmh</code>).
+ */
+@State(Scope.Benchmark)
+@Threads(4)
+public class TaskScopeBenchmark {
+
+    private final static String BEAN_NAME = "scopedTarget.taskScopedBean";
+
+    private final TaskScope taskScope = new TaskScope();
+    private final EagerTaskScope eagerTaskScope = new EagerTaskScope();
+
+    @Benchmark
+    public boolean eagerScope() {
+        EagerTaskScope.init();
+        try {
+            return EagerTaskScope.isActive();
+        } finally {
+            EagerTaskScope.destroy();
+        }
+    }
+
+    @Benchmark
+    public boolean lazyScope() {
+        TaskScope.init();
+        try {
+            return TaskScope.isActive();
+        } finally {
+            TaskScope.destroy();
+        }
+    }
+
+    @Benchmark
+    public String eagerScopeConversationId() {
+        EagerTaskScope.init();
+        try {
+            return EagerTaskScope.currentConversationId();
+        } finally {
+            EagerTaskScope.destroy();
+        }
+    }
+
+    @Benchmark
+    public String lazyScopeConversationId() {
+        TaskScope.init();
+        try {
+            return TaskScope.currentConversationId();
+        } finally {
+            TaskScope.destroy();
+        }
+    }
+
+    @Benchmark
+    public Object eagerScopeBean() {
+        EagerTaskScope.init();
+        try {
+            return eagerTaskScope.get(BEAN_NAME, Object::new);
+        } finally {
+            EagerTaskScope.destroy();
+        }
+    }
+
+    @Benchmark
+    public Object lazyScopeBean() {
+        TaskScope.init();
+        try {
+            return taskScope.get(BEAN_NAME, Object::new);
+        } finally {
+            TaskScope.destroy();
+        }
+    }
+
+    /**
+     * The task scope as it was before it was initialized lazily (scope management and bean resolution, verbatim): the
+     * scope instance with its registries and a random UUID conversation id are created on <code>init()</code>.
+     */
+    private static class EagerTaskScope {
+
+        private final static ThreadLocal<ScopeInstance> scopeInstance = new ThreadLocal<>();
+
+        public static void init() {
+            checkScopeNotActive();
+            scopeInstance.set(new ScopeInstance());
+        }
+
+        public static void destroy() {
+            checkScopeActive();
+            scopeInstance.get().destroy();
+            scopeInstance.remove();
+        }
+
+        public static boolean isActive() {
+            return Optional.ofNullable(scopeInstance.get()).map(ScopeInstance::isActive).orElse(false);
+        }
+
+        public static String currentConversationId() {
+            return Optional.ofNullable(scopeInstance.get()).map(ScopeInstance::conversationId).orElse(null);
+        }
+
+        private static void checkScopeActive() {
+            if (!isActive()) {
+                throw new IllegalStateException("Test scope not active (activate with TestScope.init(), deactivate with TestScope.destroy()");
+            }
+        }
+
+        private static void checkScopeNotActive() {
+            if (isActive()) {
+                throw new IllegalStateException("Test scope already initialized");
+            }
+        }
+
+        private static ScopeInstance scopeInstance() {
+            checkScopeActive();
+            return scopeInstance.get();
+        }
+
+        public Object get(String name, ObjectFactory<?> objectFactory) {
+            checkScopeActive();
+            return scopeInstance().scopedObjects().computeIfAbsent(name, x -> objectFactory.getObject());
+        }
+
+        private static class ScopeInstance {
+            private final Map<String, Object> scopedObjects = new HashMap<>();
+            private final Map<String, Runnable> destructionCallbacks = new HashMap<>();
+            private String conversationId = UUID.randomUUID().toString();
+
+            private void destroy() {
+                scopedObjects.keySet().forEach(name ->
+                        Optional.ofNullable(destructionCallbacks.get(name))
+                                .ifPresent(Runnable::run));
+                scopedObjects.clear();
+                destructionCallbacks.clear();
+                conversationId = null;
+            }
+
+            private boolean isActive() {
+                return conversationId != null;
+            }
+
+            private String conversationId() {
+                return conversationId;
+            }
+
+            private Map<String, Object> scopedObjects() {
+                return scopedObjects;
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package ch.frostnova.common.service.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+import org.hibernate.cache.spi.CacheImplementor;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Metrics for the Hibernate second-level cache regions (JCache): gets (hit/miss), puts, evictions and removals
+ * per region, published as <code>cache.*</code> metrics with the region name as <code>cache</code> tag.
+ * The cache statistics need to be enabled in the JCache configuration (<code>ehcache.xml</code>).
+ */
+@Component
+@Lazy(value = false)
+public class SecondLevelCacheMetrics {
+
+    private final Logger logger = LoggerFactory.getLogger(SecondLevelCacheMetrics.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PostConstruct
+    public void init() {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        CacheImplementor cache = sessionFactory.getCache();
+        RegionFactory regionFactory = cache.getRegionFactory();
+        if (!(regionFactory instanceof JCacheRegionFactory)) {
+            logger.info("No JCache second-level cache configured, no second-level cache metrics registered");
+            return;
+        }
+        CacheManager cacheManager = ((JCacheRegionFactory) regionFactory).getCacheManager();
+        for (String regionName : cache.getCacheRegionNames()) {
+            Cache<Object, Object> regionCache = cacheManager.getCache(regionName);
+            if (regionCache != null) {
+                // same tag keys as the Spring Boot cache metrics (Prometheus requires the same tag keys per metric name)
+                JCacheMetrics.monitor(meterRegistry, regionCache, Tags.of("name", regionName, "cacheManager", "hibernate"));
+                logger.info("second-level cache metrics registered for region {}", regionName);
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package ch.frostnova.common.service.persistence;
+
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Position in a keyset (seek) pagination over {@link BaseEntity} instances, ordered by creation date and id.
+ * The cursor is exchanged with clients as an opaque, URL-safe token.
+ */
+public final class KeysetCursor {
+
+    private final static char SEPARATOR = '|';
+
+    private final OffsetDateTime createdOn;
+    private final String id;
+
+    public KeysetCursor(OffsetDateTime createdOn, String id) {
+        this.createdOn = Objects.requireNonNull(createdOn, "createdOn is required");
+        this.id = Objects.requireNonNull(id, "id is required");
+    }
+
+    /**
+     * Create a cursor pointing at the given entity (the next page starts after this entity).
+     *
+     * @param entity entity, required
+     * @return cursor
+     */
+    public static KeysetCursor of(BaseEntity entity) {
+        return new KeysetCursor(entity.getCreatedOn(), entity.getId());
+    }
+
+    /**
+     * Decode a cursor token, as obtained by {@link #encode()}.
+     *
+     * @param token token, required
+     * @return cursor
+     * @throws IllegalArgumentException if the token is not a valid cursor
+     */
+    public static KeysetCursor decode(String token) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separatorIndex = decoded.indexOf(SEPARATOR);
+            if (separatorIndex < 0 || separatorIndex == decoded.length() - 1) {
+                throw new IllegalArgumentException("Invalid cursor: " + token);
+            }
+            return new KeysetCursor(OffsetDateTime.parse(decoded.substring(0, separatorIndex)), decoded.substring(separatorIndex + 1));
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, ex);
+        }
+    }
+
+    /**
+     * Encode this cursor as an opaque, URL-safe token.
+     *
+     * @return token
+     */
+    public String encode() {
+        String value = createdOn + String.valueOf(SEPARATOR) + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public OffsetDateTime getCreatedOn() {
+        return createdOn;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        KeysetCursor that = (KeysetCursor) o;
+        return createdOn.isEqual(that.createdOn) && id.equals(that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(createdOn.toInstant(), id);
+    }
+
+    @Override
+    public String toString() {
+        return encode();
+    }
+}
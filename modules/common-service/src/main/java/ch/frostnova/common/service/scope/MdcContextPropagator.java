@@ -0,0 +1,31 @@
+package ch.frostnova.common.service.scope;
+
+import org.slf4j.MDC;
+
+import java.util.Map;
+
+/**
+ * Propagates the logging {@link MDC} (mapped diagnostic context, such as tenant and user) to the threads executing code
+ * of a {@link TaskScope.ExecutionContext}.
+ */
+public class MdcContextPropagator implements TaskScope.ContextPropagator {
+
+    @Override
+    public TaskScope.CapturedContext capture() {
+        Map<String, String> context = MDC.getCopyOfContextMap();
+        if (context == null || context.isEmpty()) {
+            return null;
+        }
+        return () -> {
+            Map<String, String> previousContext = MDC.getCopyOfContextMap();
+            MDC.setContextMap(context);
+            return () -> {
+                if (previousContext != null) {
+                    MDC.setContextMap(previousContext);
+                } else {
+                    MDC.clear();
+                }
+            };
+        };
+    }
+}
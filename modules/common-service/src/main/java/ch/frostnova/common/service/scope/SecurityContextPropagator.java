@@ -0,0 +1,30 @@
+package ch.frostnova.common.service.scope;
+
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Propagates the Spring {@link SecurityContext} (authenticated user) to the threads executing code of a
+ * {@link TaskScope.ExecutionContext}.
+ */
+public class SecurityContextPropagator implements TaskScope.ContextPropagator {
+
+    @Override
+    public TaskScope.CapturedContext capture() {
+        SecurityContext context = SecurityContextHolder.getContext();
+        if (context.getAuthentication() == null) {
+            return null;
+        }
+        return () -> {
+            SecurityContext previousContext = SecurityContextHolder.getContext();
+            SecurityContextHolder.setContext(context);
+            return () -> {
+                if (previousContext.getAuthentication() != null) {
+                    SecurityContextHolder.setContext(previousContext);
+                } else {
+                    SecurityContextHolder.clearContext();
+                }
+            };
+        };
+    }
+}
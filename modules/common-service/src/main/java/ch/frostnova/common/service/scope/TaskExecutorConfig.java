@@ -0,0 +1,81 @@
+package ch.frostnova.common.service.scope;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Task executor for parallel work within a task (e.g. independent DB and remote calls within a request): a
+ * {@link TaskScopeAwareExecutorService} on a bounded thread pool, which runs the tasks in the task scope of the
+ * submitting thread. Also propagates the {@link MdcContextPropagator MDC} and
+ * {@link SecurityContextPropagator security context} to all {@link TaskScope.ExecutionContext}s. <p>
+ * Configuration:
+ * <ul>
+ * <li><code>ch.frostnova.common.task-executor.pool-size</code>: number of threads, default: 16</li>
+ * <li><code>ch.frostnova.common.task-executor.queue-capacity</code>: max. number of queued tasks (further tasks are
+ * rejected), default: 1000</li>
+ * </ul>
+ * When a {@link MeterRegistry} is available, the thread pool is monitored as <code>executor.*</code> metrics (tagged
+ * <code>name=task-executor</code>): queue depth (<code>executor.queued</code>), active threads, completed tasks,
+ * task execution time (<code>executor</code>) and time spent waiting in the queue (<code>executor.idle</code>).
+ */
+@Configuration
+@Lazy(false)
+public class TaskExecutorConfig {
+
+    public final static String EXECUTOR_NAME = "task-executor";
+
+    @Value("${ch.frostnova.common.task-executor.pool-size:16}")
+    private int poolSize;
+
+    @Value("${ch.frostnova.common.task-executor.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private final TaskScope.ContextPropagator mdcContextPropagator = new MdcContextPropagator();
+    private final TaskScope.ContextPropagator securityContextPropagator = new SecurityContextPropagator();
+
+    @PostConstruct
+    public void init() {
+        TaskScope.addContextPropagator(mdcContextPropagator);
+        TaskScope.addContextPropagator(securityContextPropagator);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        TaskScope.removeContextPropagator(mdcContextPropagator);
+        TaskScope.removeContextPropagator(securityContextPropagator);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public TaskScopeAwareExecutorService taskExecutorService() {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("pool-size must be at least 1");
+        }
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("queue-capacity must be at least 1");
+        }
+        ThreadPoolExecutor threadPool = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), new CustomizableThreadFactory(EXECUTOR_NAME + "-"));
+        threadPool.allowCoreThreadTimeOut(true);
+        ExecutorService executorService = meterRegistry != null
+                ? ExecutorServiceMetrics.monitor(meterRegistry, threadPool, EXECUTOR_NAME, Tags.empty())
+                : threadPool;
+        return new TaskScopeAwareExecutorService(executorService);
+    }
+}
@@ -4,12 +4,30 @@ import org.springframework.beans.factory.ObjectFactory;
 import org.springframework.beans.factory.config.Scope;
 import org.springframework.web.context.annotation.RequestScope;
 
-import java.util.HashMap;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * A scope for beans living withing a task context. Contrary to the {@link RequestScope}, the task scope is not limited to HTTP requests, but can be used for:
@@ -23,6 +41,16 @@ import java.util.concurrent.ExecutorService;
  * opened and closed (by the {@link TaskScopeRequestScopeFilter}), making this scope behave like the {@link RequestScope}.
  * Task scopes are thread-bound, but nesting of task scopes within the same thread is possible using the {@link ExecutionContext} functionality.
  * <p>
+ * Further thread-bound contexts (such as logging or tracing contexts) can be carried along with the execution context by
+ * registering a {@link ContextPropagator}: the context is captured when the execution context is created, and attached
+ * to the executing thread for the duration of each execution.
+ * <p>
+ * Initializing the scope is cheap: the scope instance (with its registry of scoped objects) and the conversation id are
+ * only created when first used, so tasks which never resolve a task-scoped bean do not pay for them. Conversation ids
+ * are unique per node prefix (random, chosen at startup) and sequence number, e.g. <code>k3x9q2m1-1b</code>.
+ * The binding is a {@link ThreadLocal}, which also suits virtual threads (one per request): an unused scope only binds
+ * a shared marker, and the binding is removed when the scope is destroyed, so no memory is retained per thread.
+ * <p>
  *
  * @author pwalser
  * @since 2019-11-01
@@ -31,7 +59,16 @@ public class TaskScope implements Scope {
 
     public final static String NAME = "task";
 
+    /**
+     * Marker for an initialized scope whose scope instance was not created yet (never modified).
+     */
+    private final static ScopeInstance UNINITIALIZED = new ScopeInstance();
+
+    private final static String CONVERSATION_ID_PREFIX = Long.toString(ThreadLocalRandom.current().nextLong(Long.MAX_VALUE), 36) + "-";
+    private final static AtomicLong conversationSequence = new AtomicLong();
+
     private final static ThreadLocal<ScopeInstance> scopeInstance = new ThreadLocal<>();
+    private final static List<ContextPropagator> contextPropagators = new CopyOnWriteArrayList<>();
 
     /**
      * Initialize the scope and bind it to the current thread.
@@ -39,7 +76,7 @@ public class TaskScope implements Scope {
      */
     public static void init() {
         checkScopeNotActive();
-        scopeInstance.set(new ScopeInstance());
+        scopeInstance.set(UNINITIALIZED);
     }
 
     /**
@@ -48,7 +85,10 @@ public class TaskScope implements Scope {
      */
     public static void destroy() {
         checkScopeActive();
-        scopeInstance.get().destroy();
+        ScopeInstance instance = scopeInstance.get();
+        if (instance != UNINITIALIZED) {
+            instance.destroy();
+        }
         scopeInstance.remove();
     }
 
@@ -58,7 +98,8 @@ public class TaskScope implements Scope {
      * @return active
      */
     public static boolean isActive() {
-        return Optional.ofNullable(scopeInstance.get()).map(ScopeInstance::isActive).orElse(false);
+        ScopeInstance instance = scopeInstance.get();
+        return instance == UNINITIALIZED || (instance != null && instance.isActive());
     }
 
     /**
@@ -67,7 +108,28 @@ public class TaskScope implements Scope {
      * @return current conversation id
      */
     public static String currentConversationId() {
-        return Optional.ofNullable(scopeInstance.get()).map(ScopeInstance::conversationId).orElse(null);
+        return isActive() ? scopeInstance().conversationId() : null;
+    }
+
+    /**
+     * Register a context propagator, which propagates its context to all execution contexts created afterwards.
+     *
+     * @param contextPropagator context propagator, required
+     */
+    public static void addContextPropagator(ContextPropagator contextPropagator) {
+        if (contextPropagator == null) {
+            throw new IllegalArgumentException("Context propagator is required");
+        }
+        contextPropagators.add(contextPropagator);
+    }
+
+    /**
+     * Unregister a context propagator.
+     *
+     * @param contextPropagator context propagator
+     */
+    public static void removeContextPropagator(ContextPropagator contextPropagator) {
+        contextPropagators.remove(contextPropagator);
     }
 
     private static void checkScopeActive() {
@@ -82,9 +144,40 @@ public class TaskScope implements Scope {
         }
     }
 
+    /**
+     * Returns the scope instance of the current thread, creating it on first use.
+     */
     private static ScopeInstance scopeInstance() {
         checkScopeActive();
-        return scopeInstance.get();
+        ScopeInstance instance = scopeInstance.get();
+        if (instance == UNINITIALIZED) {
+            instance = new ScopeInstance();
+            scopeInstance.set(instance);
+        }
+        return instance;
+    }
+
+    private static String nextConversationId() {
+        return CONVERSATION_ID_PREFIX + Long.toString(conversationSequence.incrementAndGet(), 36);
+    }
+
+    /**
+     * Check if the scope instance of the current thread was created (test hook: unused scopes must not create one).
+     *
+     * @return true if created, false if the scope is not active or not used yet
+     */
+    static boolean isScopeInstanceCreated() {
+        ScopeInstance instance = scopeInstance.get();
+        return instance != null && instance != UNINITIALIZED;
+    }
+
+    /**
+     * Number of conversation ids created so far (test hook: unused scopes must not create one).
+     *
+     * @return number of conversation ids
+     */
+    static long getConversationIdCount() {
+        return conversationSequence.get();
     }
 
     /**
@@ -109,13 +202,14 @@ public class TaskScope implements Scope {
     @Override
     public Object get(String name, ObjectFactory<?> objectFactory) {
         TaskScope.checkScopeActive();
-        return scopeInstance().scopedObjects().computeIfAbsent(name, x -> objectFactory.getObject());
+        return scopeInstance().get(name, objectFactory);
     }
 
     @Override
     public Object remove(String name) {
-        scopeInstance().destructionCallbacks().remove(name);
-        return scopeInstance().scopedObjects().remove(name);
+        ScopeInstance instance = scopeInstance();
+        instance.destructionCallbacks().remove(name);
+        return instance.scopedObjects().remove(name);
     }
 
     @Override
@@ -189,40 +283,122 @@ public class TaskScope implements Scope {
         }
     }
 
+    /**
+     * SPI to propagate a thread-bound context (other than the task scope) to the threads executing code of an
+     * {@link ExecutionContext}.
+     */
+    @FunctionalInterface
+    public interface ContextPropagator {
+
+        /**
+         * Capture the context of the current thread (called when an execution context is created).
+         *
+         * @return captured context, or null if there is no context to propagate
+         */
+        CapturedContext capture();
+    }
+
+    /**
+     * Context captured by a {@link ContextPropagator}.
+     */
+    @FunctionalInterface
+    public interface CapturedContext {
+
+        /**
+         * Attach the captured context to the current thread (called before each execution, on the executing thread).
+         *
+         * @return action to detach the context again, restoring the previous context of the thread (called after the
+         * execution, on the executing thread), required
+         */
+        Runnable attach();
+    }
+
     /**
      * The scope instance contains the registry of scoped objects, and the destruction callbacks
      * for those objects, to be called when the scope is destroyed.
      * Calling the destruction callbacks will have the dependency injection framework invoke
      * the pre-destroy lifecycle hooks before the scoped objects are disposed of.
+     * The registries and the conversation id are created on first use. A scope instance can be shared by several threads
+     * (execution contexts, see {@link ExecutionContext#invokeAll(Executor, Collection, Duration)}): the registries are
+     * concurrent maps, and they are created (as the scoped objects) while holding the lock of the scope instance.
      */
     private static class ScopeInstance {
-        private final Map<String, Object> scopedObjects = new HashMap<>();
-        private final Map<String, Runnable> destructionCallbacks = new HashMap<>();
-        private String conversationId = UUID.randomUUID().toString();
-
-        private void destroy() {
-            scopedObjects.keySet().forEach(name ->
-                    Optional.ofNullable(destructionCallbacks.get(name))
-                            .ifPresent(Runnable::run));
-            scopedObjects.clear();
-            destructionCallbacks.clear();
+        private volatile Map<String, Object> scopedObjects;
+        private volatile Map<String, Runnable> destructionCallbacks;
+        private volatile String conversationId;
+        private volatile boolean active = true;
+
+        private synchronized void destroy() {
+            if (scopedObjects != null && destructionCallbacks != null) {
+                scopedObjects.keySet().forEach(name ->
+                        Optional.ofNullable(destructionCallbacks.get(name))
+                                .ifPresent(Runnable::run));
+            }
+            scopedObjects = null;
+            destructionCallbacks = null;
             conversationId = null;
+            active = false;
         }
 
         private boolean isActive() {
-            return conversationId != null;
+            return active;
         }
 
         private String conversationId() {
-            return conversationId;
+            String id = conversationId;
+            if (id == null) {
+                synchronized (this) {
+                    if (conversationId == null && active) {
+                        conversationId = nextConversationId();
+                    }
+                    id = conversationId;
+                }
+            }
+            return id;
+        }
+
+        /**
+         * Get the scoped object with the given name, creating it (only once) if not present yet. Objects are not created
+         * inside <code>computeIfAbsent</code>, as creating an object may resolve further scoped objects.
+         */
+        private Object get(String name, ObjectFactory<?> objectFactory) {
+            Object object = scopedObjects().get(name);
+            if (object == null) {
+                synchronized (this) {
+                    object = scopedObjects().get(name);
+                    if (object == null) {
+                        object = objectFactory.getObject();
+                        scopedObjects().put(name, object);
+                    }
+                }
+            }
+            return object;
         }
 
         private Map<String, Object> scopedObjects() {
-            return scopedObjects;
+            Map<String, Object> map = scopedObjects;
+            if (map == null) {
+                synchronized (this) {
+                    if (scopedObjects == null) {
+                        scopedObjects = new ConcurrentHashMap<>();
+                    }
+                    map = scopedObjects;
+                }
+            }
+            return map;
         }
 
         private Map<String, Runnable> destructionCallbacks() {
-            return destructionCallbacks;
+            Map<String, Runnable> map = destructionCallbacks;
+            if (map == null) {
+                synchronized (this) {
+                    if (destructionCallbacks == null) {
+                        destructionCallbacks = new ConcurrentHashMap<>();
+                    }
+                    map = destructionCallbacks;
+                }
+            }
+            return map;
         }
     }
 
@@ -231,10 +407,13 @@ public class TaskScope implements Scope {
      * {@link CheckedRunnable} or {@link CheckedSupplier}).
      * Particularly useful for asynchronous or parallel processing (using {@link ExecutorService},
      * or parallel streams), where code can be executed in a shared or dedicated task scope.
+     * Independent tasks can be fanned out in parallel with {@link #invokeAll(Executor, Collection, Duration)} and
+     * {@link #parallelMap(Executor, Collection, Function, Duration)}.
      */
     public static class ExecutionContext {
 
         private final ScopeInstance scope;
+        private final List<CapturedContext> capturedContexts = new ArrayList<>();
 
         private ExecutionContext() {
             this(null);
@@ -243,6 +422,9 @@ public class TaskScope implements Scope {
         private ExecutionContext(ScopeInstance scope) {
             this.scope = scope;
             checkScopeActive();
+            for (ContextPropagator contextPropagator : contextPropagators) {
+                Optional.ofNullable(contextPropagator.capture()).ifPresent(capturedContexts::add);
+            }
         }
 
         private void checkScopeActive() {
@@ -280,14 +462,116 @@ public class TaskScope implements Scope {
             ScopeInstance executionScope = scope != null ? scope : new ScopeInstance();
 
             TaskScope.scopeInstance.set(executionScope);
+            Runnable[] detachActions = new Runnable[capturedContexts.size()];
             try {
+                for (int i = 0; i < detachActions.length; i++) {
+                    detachActions[i] = capturedContexts.get(i).attach();
+                }
                 return supplier.supplyUnchecked();
             } finally {
+                for (int i = detachActions.length - 1; i >= 0; i--) {
+                    if (detachActions[i] != null) {
+                        detachActions[i].run();
+                    }
+                }
                 TaskScope.scopeInstance.set(backupScope);
                 if (scope == null) {
                     executionScope.destroy();
                 }
             }
         }
+
+        /**
+         * Execute the suppliers in parallel on the given executor, each in the task scope of the execution context, and
+         * wait for their results. When a supplier fails or not all suppliers complete before the timeout, the
+         * remaining suppliers are cancelled (interrupted if already running).
+         *
+         * @param executor  executor, required. When a {@link TaskScopeAwareExecutorService} is passed, its delegate
+         *                  is used, as the suppliers are already executed in this execution context
+         * @param suppliers suppliers, required
+         * @param timeout   max. time to wait for all results, required
+         * @param <T>       result type
+         * @return results, in the order of the suppliers
+         * @throws TimeoutException      when not all suppliers completed within the timeout
+         * @throws CancellationException when interrupted while waiting for the results
+         */
+        public <T> List<T> invokeAll(Executor executor, Collection<? extends CheckedSupplier<? extends T>> suppliers,
+                                     Duration timeout) throws TimeoutException {
+            if (executor == null) {
+                throw new IllegalArgumentException("Executor is required");
+            }
+            if (suppliers == null) {
+                throw new IllegalArgumentException("Suppliers are required");
+            }
+            if (timeout == null || timeout.isNegative()) {
+                throw new IllegalArgumentException("Timeout is required, and must not be negative");
+            }
+            checkScopeActive();
+            long deadlineNs = System.nanoTime() + timeout.toNanos();
+            Executor target = executor instanceof TaskScopeAwareExecutorService
+                    ? ((TaskScopeAwareExecutorService) executor).getDelegate()
+                    : executor;
+            CompletionService<T> completionService = new ExecutorCompletionService<>(target);
+            Map<Future<T>, Integer> indices = new IdentityHashMap<>();
+            try {
+                for (CheckedSupplier<? extends T> supplier : suppliers) {
+                    int index = indices.size();
+                    indices.put(completionService.submit(() -> execute(supplier)), index);
+                }
+                List<T> results = new ArrayList<>(Collections.nCopies(indices.size(), null));
+                for (int i = 0; i < indices.size(); i++) {
+                    Future<T> future = completionService.poll(Math.max(0, deadlineNs - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (future == null) {
+                        throw new TimeoutException("Not all tasks completed within " + timeout);
+                    }
+                    results.set(indices.get(future), future.get());
+                }
+                return results;
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new RuntimeException(cause);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                CancellationException cancellation = new CancellationException("Interrupted while waiting for the results");
+                cancellation.initCause(ex);
+                throw cancellation;
+            } finally {
+                // cancel the stragglers (no effect on completed tasks)
+                indices.keySet().forEach(future -> future.cancel(true));
+            }
+        }
+
+        /**
+         * Apply the function to the items in parallel on the given executor, each in the task scope of the execution
+         * context, see {@link #invokeAll(Executor, Collection, Duration)}.
+         *
+         * @param executor executor, required
+         * @param items    items, required
+         * @param function function to apply, required
+         * @param timeout  max. time to wait for all results, required
+         * @param <S>      item type
+         * @param <T>      result type
+         * @return results, in the order of the items
+         * @throws TimeoutException when not all items were processed within the timeout
+         */
+        public <S, T> List<T> parallelMap(Executor executor, Collection<? extends S> items,
+                                          Function<? super S, ? extends T> function, Duration timeout) throws TimeoutException {
+            if (items == null) {
+                throw new IllegalArgumentException("Items are required");
+            }
+            if (function == null) {
+                throw new IllegalArgumentException("Function is required");
+            }
+            List<CheckedSupplier<T>> suppliers = items.stream()
+                    .map(item -> (CheckedSupplier<T>) () -> function.apply(item))
+                    .collect(Collectors.toList());
+            return invokeAll(executor, suppliers, timeout);
+        }
     }
 }
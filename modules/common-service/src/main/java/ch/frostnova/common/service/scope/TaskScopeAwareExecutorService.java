@@ -0,0 +1,71 @@
+package ch.frostnova.common.service.scope;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executor service which runs each task in an {@link TaskScope.ExecutionContext} captured when the task is submitted:
+ * in the task scope of the submitting thread (if active, otherwise in a dedicated task scope per task), with the
+ * contexts of the registered {@link TaskScope.ContextPropagator}s (such as MDC, security or performance logging
+ * context). <p>
+ * This allows to submit tasks without wrapping them in <code>TaskScope.currentExecutionContext().execute(...)</code>
+ * by hand. Tasks are executed by the delegate executor service, which is shut down along with this executor service.
+ */
+public class TaskScopeAwareExecutorService extends AbstractExecutorService {
+
+    private final ExecutorService delegate;
+
+    public TaskScopeAwareExecutorService(ExecutorService delegate) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Delegate executor service is required");
+        }
+        this.delegate = delegate;
+    }
+
+    /**
+     * Delegate executor service, for tasks which are already wrapped in an execution context.
+     *
+     * @return delegate
+     */
+    ExecutorService getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new IllegalArgumentException("Command is required");
+        }
+        TaskScope.ExecutionContext executionContext = TaskScope.isActive()
+                ? TaskScope.currentExecutionContext()
+                : TaskScope.newExecutionContext();
+        delegate.execute(() -> executionContext.execute(command::run));
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+}
@@ -45,7 +45,8 @@ public class TaskScopeRequestScopeFilter implements Filter {
             return;
         }
         TaskScope.init();
-        final String conversationId = TaskScope.currentConversationId();
+        // the conversation id is only created when needed (scope is initialized lazily)
+        final String conversationId = logger.isDebugEnabled() ? TaskScope.currentConversationId() : null;
         try {
             logger.debug("Task scope created for request: {}", conversationId);
             chain.doFilter(request, response);
@@ -0,0 +1,38 @@
+package ch.frostnova.common.service.persistence;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test for {@link KeysetCursor}
+ */
+public class KeysetCursorTest {
+
+    @Test
+    public void testEncodeDecode() {
+
+        OffsetDateTime createdOn = OffsetDateTime.of(2019, 8, 7, 16, 54, 32, 123456000, ZoneOffset.ofHours(1));
+        KeysetCursor cursor = new KeysetCursor(createdOn, "5TRnwXvkSx4Jz2xz8cmVYb");
+
+        String token = cursor.encode();
+        assertThat(token).matches("[A-Za-z0-9_-]+");
+
+        KeysetCursor decoded = KeysetCursor.decode(token);
+        assertThat(decoded).isEqualTo(cursor);
+        assertThat(decoded.getCreatedOn()).isEqualTo(createdOn);
+        assertThat(decoded.getId()).isEqualTo("5TRnwXvkSx4Jz2xz8cmVYb");
+    }
+
+    @Test
+    public void testInvalid() {
+        for (String invalid : Arrays.asList("", "not a cursor", "Zm9vYmFy", "MjAxOS0wOC0wN3wxMjM0NQ", "MjAxOS0wOC0wN1QxNjo1NDozMiswMTowMHw")) {
+            assertThatThrownBy(() -> KeysetCursor.decode(invalid)).as(invalid).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+}
@@ -4,19 +4,25 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -278,4 +284,167 @@ public class TaskScopeExecutionContextTest {
             return null;
         }));
     }
+
+    @Test
+    public void testContextPropagation() throws ExecutionException, InterruptedException {
+        ThreadLocal<String> threadContext = new ThreadLocal<>();
+        TaskScope.ContextPropagator contextPropagator = () -> {
+            String value = threadContext.get();
+            return value == null ? null : () -> {
+                String previous = threadContext.get();
+                threadContext.set(value);
+                return () -> threadContext.set(previous);
+            };
+        };
+
+        TaskScope.addContextPropagator(contextPropagator);
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            threadContext.set("propagated");
+            TaskScope.ExecutionContext executionContext = TaskScope.newExecutionContext();
+            threadContext.set("changed");
+
+            List<Future<String>> futures = new LinkedList<>();
+            for (int i = 0; i < 10; i++) {
+                futures.add(executorService.submit(() -> executionContext.execute(threadContext::get)));
+            }
+            for (Future<String> future : futures) {
+                assertThat(future.get()).isEqualTo("propagated");
+            }
+            // restored after execution
+            assertThat(executorService.submit(threadContext::get).get()).isNull();
+            assertThat(executionContext.execute(threadContext::get)).isEqualTo("propagated");
+            assertThat(threadContext.get()).isEqualTo("changed");
+
+            // nothing captured without context
+            threadContext.remove();
+            assertThat(TaskScope.newExecutionContext().execute(threadContext::get)).isNull();
+        } finally {
+            executorService.shutdownNow();
+            TaskScope.removeContextPropagator(contextPropagator);
+            threadContext.remove();
+        }
+
+        threadContext.set("not propagated");
+        TaskScope.ExecutionContext executionContext = TaskScope.newExecutionContext();
+        threadContext.remove();
+        assertThat(executionContext.execute(threadContext::get)).isNull();
+    }
+
+    @Test
+    public void testTaskScopeAwareExecutorService() throws ExecutionException, InterruptedException {
+        TaskScope.ContextPropagator mdcContextPropagator = new MdcContextPropagator();
+        TaskScope.addContextPropagator(mdcContextPropagator);
+        ExecutorService executorService = new TaskScopeAwareExecutorService(Executors.newFixedThreadPool(4));
+        try {
+            // without active task scope: dedicated task scope per task
+            List<Future<String>> futures = new LinkedList<>();
+            for (int i = 0; i < 10; i++) {
+                futures.add(executorService.submit(() -> taskScopedComponent.getUuid()));
+            }
+            Set<String> results = new HashSet<>();
+            for (Future<String> future : futures) {
+                results.add(future.get());
+            }
+            assertThat(results).hasSize(10);
+
+            // with active task scope: task scope and MDC of the submitting thread
+            TaskScope.init();
+            String uuid = taskScopedComponent.getUuid();
+            MDC.put("user", "test-user");
+            futures.clear();
+            for (int i = 0; i < 10; i++) {
+                futures.add(executorService.submit(() -> taskScopedComponent.getUuid() + ":" + MDC.get("user")));
+            }
+            for (Future<String> future : futures) {
+                assertThat(future.get()).isEqualTo(uuid + ":test-user");
+            }
+        } finally {
+            MDC.remove("user");
+            executorService.shutdownNow();
+            TaskScope.removeContextPropagator(mdcContextPropagator);
+        }
+        assertThat(executorService.isShutdown()).isTrue();
+    }
+
+    @Test
+    public void testInvokeAll() throws TimeoutException {
+        TaskScope.init();
+        String uuid = taskScopedComponent.getUuid();
+        ExecutorService executorService = new TaskScopeAwareExecutorService(Executors.newFixedThreadPool(4));
+        try {
+            TaskScope.ExecutionContext executionContext = TaskScope.currentExecutionContext();
+            List<TaskScope.CheckedSupplier<String>> suppliers = List.of(
+                    () -> "a:" + taskScopedComponent.getUuid(),
+                    () -> {
+                        Thread.sleep(50);
+                        return "b:" + taskScopedComponent.getUuid();
+                    },
+                    () -> "c:" + taskScopedComponent.getUuid());
+            assertThat(executionContext.invokeAll(executorService, suppliers, Duration.ofSeconds(5)))
+                    .containsExactly("a:" + uuid, "b:" + uuid, "c:" + uuid);
+
+            assertThat(executionContext.parallelMap(executorService, List.of(1, 2, 3, 4, 5), x -> x * x, Duration.ofSeconds(5)))
+                    .containsExactly(1, 4, 9, 16, 25);
+
+            // failures are rethrown
+            assertThatThrownBy(() -> executionContext.parallelMap(executorService, List.of(1, 0), x -> 1 / x, Duration.ofSeconds(5)))
+                    .isInstanceOf(ArithmeticException.class);
+
+            assertThatThrownBy(() -> executionContext.invokeAll(executorService, suppliers, null))
+                    .isInstanceOf(IllegalArgumentException.class);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testInvokeAllResolvesScopedBeanOnce() throws TimeoutException {
+        TaskScope.init();
+        ExecutorService executorService = Executors.newFixedThreadPool(16);
+        try {
+            // the task-scoped bean is not created yet: the suppliers race to resolve it
+            TaskScope.ExecutionContext executionContext = TaskScope.currentExecutionContext();
+            CyclicBarrier barrier = new CyclicBarrier(16);
+            List<String> uuids = executionContext.parallelMap(executorService, IntStream.range(0, 16).boxed().collect(Collectors.toList()), i -> {
+                try {
+                    barrier.await(5, TimeUnit.SECONDS);
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+                return taskScopedComponent.getUuid();
+            }, Duration.ofSeconds(10));
+
+            assertThat(uuids).hasSize(16);
+            assertThat(new HashSet<>(uuids)).containsExactly(taskScopedComponent.getUuid());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testInvokeAllTimeout() throws InterruptedException {
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        try {
+            TaskScope.ExecutionContext executionContext = TaskScope.newExecutionContext();
+            List<TaskScope.CheckedSupplier<String>> suppliers = List.of(
+                    () -> "fast",
+                    () -> {
+                        try {
+                            Thread.sleep(10000);
+                        } catch (InterruptedException ex) {
+                            interrupted.set(true);
+                        }
+                        return "slow";
+                    });
+            assertThatThrownBy(() -> executionContext.invokeAll(executorService, suppliers, Duration.ofMillis(100)))
+                    .isInstanceOf(TimeoutException.class);
+        } finally {
+            executorService.shutdown();
+            assertThat(executorService.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        }
+        // straggler was cancelled
+        assertThat(interrupted.get()).isTrue();
+    }
 }
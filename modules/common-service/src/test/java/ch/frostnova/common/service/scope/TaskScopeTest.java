@@ -84,4 +84,54 @@ public class TaskScopeTest {
             assertThat(callbackCount.get()).isEqualTo(1);
         }
     }
+
+    @Test
+    public void testConversationId() {
+        TaskScope.init();
+        String conversationId;
+        try {
+            conversationId = TaskScope.currentConversationId();
+            assertThat(conversationId).isNotNull().matches("[0-9a-z]+-[0-9a-z]+");
+            assertThat(TaskScope.currentConversationId()).isEqualTo(conversationId);
+        } finally {
+            TaskScope.destroy();
+        }
+        assertThat(TaskScope.currentConversationId()).isNull();
+
+        // same node prefix, new sequence number
+        TaskScope.init();
+        try {
+            String nextConversationId = TaskScope.currentConversationId();
+            assertThat(nextConversationId).isNotEqualTo(conversationId)
+                    .startsWith(conversationId.substring(0, conversationId.indexOf('-') + 1));
+        } finally {
+            TaskScope.destroy();
+        }
+    }
+
+    @Test
+    public void testScopeUnused() {
+        // scope instance and conversation id are only created on first use
+        long conversationIdCount = TaskScope.getConversationIdCount();
+        TaskScope.init();
+        assertThat(TaskScope.isActive()).isTrue();
+        assertThat(TaskScope.isScopeInstanceCreated()).isFalse();
+        TaskScope.destroy();
+        assertThat(TaskScope.isActive()).isFalse();
+        assertThat(TaskScope.isScopeInstanceCreated()).isFalse();
+        assertThat(TaskScope.getConversationIdCount()).isEqualTo(conversationIdCount);
+
+        TaskScope.init();
+        try {
+            assertThat(taskScopedComponent.getUuid()).isNotNull();
+            assertThat(TaskScope.isScopeInstanceCreated()).isTrue();
+            assertThat(TaskScope.getConversationIdCount()).isEqualTo(conversationIdCount);
+
+            assertThat(TaskScope.currentConversationId()).isNotNull();
+            assertThat(TaskScope.getConversationIdCount()).isEqualTo(conversationIdCount + 1);
+        } finally {
+            TaskScope.destroy();
+        }
+        assertThat(TaskScope.isScopeInstanceCreated()).isFalse();
+    }
 }
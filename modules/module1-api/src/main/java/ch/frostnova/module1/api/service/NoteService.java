@@ -1,12 +1,20 @@
 package ch.frostnova.module1.api.service;
 
 import ch.frostnova.common.api.exception.ResourceNotFoundException;
+import ch.frostnova.common.api.exception.ResourceVersionMismatchException;
+import ch.frostnova.common.api.model.BatchItemResult;
+import ch.frostnova.common.api.model.CursorPage;
 import ch.frostnova.module1.api.model.Note;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Note service contract
@@ -21,6 +29,16 @@ public interface NoteService {
      */
     Note get(String id);
 
+    /**
+     * Get the current version of a note (which is incremented on each update), or throw a
+     * {@link ResourceNotFoundException} when no such note exists. Cheaper than {@link #get(String)}, useful to check
+     * if a note a client already has is still up to date.
+     *
+     * @param id id, required
+     * @return version
+     */
+    long getVersion(String id);
+
     /**
      * Save (create or update) a note. When the note id is set, and no such note exists for update,
      * a {@link ResourceNotFoundException} is thrown.
@@ -30,6 +48,29 @@ public interface NoteService {
      */
     Note save(@NotNull @Valid Note note);
 
+    /**
+     * Update a note, if it still has the expected version (optimistic locking). The note is read first (from the
+     * second-level cache if cached, otherwise with an additional query), and then updated with a single versioned
+     * update statement, which also detects concurrent modifications since it was read.
+     *
+     * @param note            note to update, id required
+     * @param expectedVersion version the note is expected to have
+     * @return new version of the note
+     * @throws ResourceNotFoundException         when no such note exists
+     * @throws ResourceVersionMismatchException when the note exists, but has a different version
+     */
+    long update(@NotNull @Valid Note note, long expectedVersion);
+
+    /**
+     * Save (create or update) several notes in one transaction. Notes without id are created, notes with id are
+     * updated. Unlike {@link #save(Note)}, a note to update which does not exist does not fail the batch, but is
+     * reported with status {@link BatchItemResult.Status#NOT_FOUND}.
+     *
+     * @param notes notes to create or update (up to 1000)
+     * @return results, in the same order as the notes
+     */
+    List<BatchItemResult<Note>> saveAll(@NotNull @Size(max = 1000) List<@NotNull @Valid Note> notes);
+
     /**
      * List all notes.
      *
@@ -37,6 +78,25 @@ public interface NoteService {
      */
     List<Note> list();
 
+    /**
+     * List notes page by page (latest created first), using keyset pagination: the cost of fetching a page does not
+     * depend on how deep the page is. Pass the cursor of the previous page to get the next page.
+     *
+     * @param cursor cursor of the next page, as returned in the previous page, or null for the first page.
+     *               An invalid cursor results in an {@link IllegalArgumentException}.
+     * @param limit  max. number of notes on the page (1..1000)
+     * @return page of notes (never null)
+     */
+    CursorPage<Note> list(String cursor, @Min(1) @Max(1000) int limit);
+
+    /**
+     * Export all notes (oldest first), passing them one by one to the given consumer while they are read from the
+     * database. Memory usage is independent of the number of notes.
+     *
+     * @param consumer consumer for the exported notes, required
+     */
+    void export(@NotNull Consumer<Note> consumer);
+
     /**
      * Delete a note by id. or does nothing when no such note exists (considered already deleted).
      *
@@ -44,6 +104,14 @@ public interface NoteService {
      */
     void delete(String id);
 
+    /**
+     * Delete several notes by id. Ids of notes which do not exist are ignored (considered already deleted).
+     *
+     * @param ids ids, required
+     * @return number of deleted notes
+     */
+    int deleteAll(@NotNull Collection<@NotNull String> ids);
+
     /**
      * Find all notes matching the given search query.
      *
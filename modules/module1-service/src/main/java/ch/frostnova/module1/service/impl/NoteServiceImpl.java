@@ -1,23 +1,40 @@
 package ch.frostnova.module1.service.impl;
 
 import ch.frostnova.common.api.exception.ResourceNotFoundException;
+import ch.frostnova.common.api.exception.ResourceVersionMismatchException;
+import ch.frostnova.common.api.model.BatchItemResult;
+import ch.frostnova.common.api.model.CursorPage;
+import ch.frostnova.common.service.persistence.KeysetCursor;
 import ch.frostnova.module1.api.model.Note;
 import ch.frostnova.module1.api.service.NoteService;
 import ch.frostnova.module1.service.persistence.NoteEntity;
 import ch.frostnova.module1.service.persistence.NoteRepository;
+import ch.frostnova.module1.service.search.NoteSearchEngine;
+import ch.frostnova.module1.service.util.NoteConverter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
-import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.validation.annotation.Validated;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import javax.validation.constraints.NotBlank;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Implementation of the NoteService
@@ -28,13 +45,28 @@ import java.util.stream.Collectors;
 @Validated
 public class NoteServiceImpl implements NoteService {
 
+    private final static int MAX_SEARCH_RESULTS = 10;
+    private final static int MAX_IDS_PER_STATEMENT = 1000;
+
     @Autowired
     private NoteRepository repository;
 
+    @Autowired
+    private NoteSearchEngine searchEngine;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     @Override
     @Transactional(readOnly = true)
     public Note get(String id) {
-        return convert(load(id));
+        return NoteConverter.convert(load(id));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long getVersion(String id) {
+        return repository.findVersionById(id).orElseThrow(ResourceNotFoundException::new);
     }
 
     private NoteEntity load(String id) {
@@ -45,7 +77,72 @@ public class NoteServiceImpl implements NoteService {
     public Note save(Note note) {
         NoteEntity entity = Optional.ofNullable(note.getId()).map(this::load).orElseGet(NoteEntity::new);
         entity = update(entity, note);
-        return convert(repository.save(entity));
+        // flush, so the returned note has the incremented version
+        Note saved = NoteConverter.convert(repository.saveAndFlush(entity));
+        searchEngine.saved(saved);
+        return saved;
+    }
+
+    @Override
+    public long update(Note note, long expectedVersion) {
+        if (note.getId() == null) {
+            throw new IllegalArgumentException("Note id is required for update");
+        }
+        // versioned update of the loaded entity: the second-level cache is updated by Hibernate (only for this note)
+        NoteEntity entity = load(note.getId());
+        if (entity.getVersion() != expectedVersion) {
+            throw versionMismatch(note.getId(), expectedVersion);
+        }
+        entity.setText(note.getText());
+        try {
+            repository.saveAndFlush(entity);
+        } catch (OptimisticLockingFailureException ex) {
+            // concurrently updated since loaded
+            throw versionMismatch(note.getId(), expectedVersion);
+        }
+        Note updated = NoteConverter.convert(entity);
+        searchEngine.saved(updated);
+        return updated.getVersion();
+    }
+
+    private ResourceVersionMismatchException versionMismatch(String id, long expectedVersion) {
+        return new ResourceVersionMismatchException("Note " + id + " does not have the expected version " + expectedVersion);
+    }
+
+    @Override
+    public List<BatchItemResult<Note>> saveAll(List<Note> notes) {
+        // load all notes to update with one query
+        Set<String> ids = notes.stream().map(Note::getId).filter(Objects::nonNull).collect(Collectors.toSet());
+        Map<String, NoteEntity> existing = ids.isEmpty() ? Collections.emptyMap() : repository.findAllById(ids).stream()
+                .collect(Collectors.toMap(NoteEntity::getId, Function.identity()));
+
+        List<NoteEntity> entities = new ArrayList<>(notes.size());
+        for (Note note : notes) {
+            NoteEntity entity = note.getId() != null ? existing.get(note.getId()) : new NoteEntity();
+            if (entity != null) {
+                update(entity, note);
+                if (!entity.isPersistent()) {
+                    entityManager.persist(entity);
+                }
+            }
+            entities.add(entity);
+        }
+        // flush once, the inserts and updates are sent in JDBC batches
+        entityManager.flush();
+
+        List<BatchItemResult<Note>> results = new ArrayList<>(notes.size());
+        for (int i = 0; i < notes.size(); i++) {
+            NoteEntity entity = entities.get(i);
+            if (entity == null) {
+                results.add(new BatchItemResult<>(BatchItemResult.Status.NOT_FOUND, notes.get(i)));
+            } else {
+                Note saved = NoteConverter.convert(entity);
+                searchEngine.saved(saved);
+                BatchItemResult.Status status = notes.get(i).getId() != null ? BatchItemResult.Status.UPDATED : BatchItemResult.Status.CREATED;
+                results.add(new BatchItemResult<>(status, saved));
+            }
+        }
+        return results;
     }
 
     @Override
@@ -53,27 +150,56 @@ public class NoteServiceImpl implements NoteService {
     public List<Note> list() {
         return repository.findAll()
                 .stream()
-                .map(this::convert)
+                .map(NoteConverter::convert)
                 .collect(Collectors.toList());
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<Note> list(String cursor, int limit) {
+        PageRequest pageRequest = PageRequest.of(0, limit);
+        Slice<NoteEntity> slice;
+        if (cursor == null || cursor.isBlank()) {
+            slice = repository.findFirstPage(pageRequest);
+        } else {
+            KeysetCursor position = KeysetCursor.decode(cursor);
+            slice = repository.findPageAfter(position.getCreatedOn(), position.getId(), pageRequest);
+        }
+        List<NoteEntity> entities = slice.getContent();
+        String nextCursor = slice.hasNext() ? KeysetCursor.of(entities.get(entities.size() - 1)).encode() : null;
+        return new CursorPage<>(entities.stream().map(NoteConverter::convert).collect(Collectors.toList()), nextCursor);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void export(Consumer<Note> consumer) {
+        try (Stream<NoteEntity> notes = repository.streamAll()) {
+            notes.forEach(entity -> {
+                Note note = NoteConverter.convert(entity);
+                entityManager.detach(entity);
+                consumer.accept(note);
+            });
+        }
+    }
+
     @Override
     public void delete(String id) {
-        if (repository.existsById(id)) {
-            repository.deleteById(id);
+        if (repository.deleteNoteById(id) > 0) {
+            searchEngine.deleted(Collections.singleton(id));
         }
     }
 
-    private Note convert(NoteEntity entity) {
-        if (entity == null) {
-            return null;
+    @Override
+    public int deleteAll(Collection<String> ids) {
+        List<String> distinctIds = ids.stream().distinct().collect(Collectors.toList());
+        int deleted = 0;
+        for (int i = 0; i < distinctIds.size(); i += MAX_IDS_PER_STATEMENT) {
+            deleted += repository.deleteNotesByIds(distinctIds.subList(i, Math.min(i + MAX_IDS_PER_STATEMENT, distinctIds.size())));
+        }
+        if (deleted > 0) {
+            searchEngine.deleted(distinctIds);
         }
-        Note dto = new Note();
-        dto.setId(entity.getId());
-        dto.setText(entity.getText());
-        dto.setCreated(entity.getCreatedOn());
-        dto.setUpdated(entity.getLastUpdatedOn());
-        return dto;
+        return deleted;
     }
 
     private NoteEntity update(NoteEntity entity, Note dto) {
@@ -88,12 +214,6 @@ public class NoteServiceImpl implements NoteService {
     @Override
     @Transactional(readOnly = true)
     public List<Note> find(@NotBlank String searchQuery) {
-        // return max. 10 matches, ordered by latest created
-        PageRequest pageRequest = PageRequest.of(0, 10, Sort.Direction.DESC, "createdOn");
-        Specification<NoteEntity> fulltextSearch = NoteRepository.fulltextSearch(searchQuery);
-        return repository.findAll(fulltextSearch, pageRequest)
-                .stream()
-                .map(this::convert)
-                .collect(Collectors.toList());
+        return searchEngine.find(searchQuery, MAX_SEARCH_RESULTS);
     }
 }
@@ -1,18 +1,25 @@
 package ch.frostnova.module1.service.persistence;
 
 import ch.frostnova.common.service.persistence.BaseEntity;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Table;
 
 /**
- * Note Entity
+ * Note Entity, cached in the second-level cache (region {@value #CACHE_REGION}, configured in <code>ehcache.xml</code>).
  */
 @Entity
 @Table(name = "NOTE")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = NoteEntity.CACHE_REGION)
 public class NoteEntity extends BaseEntity {
 
+    public final static String CACHE_REGION = "note-entity";
+
     @Column(name = "TEXT", length = 2048, nullable = false)
     private String text;
 
@@ -1,19 +1,78 @@
 package ch.frostnova.module1.service.persistence;
 
 import ch.frostnova.module1.service.util.SearchQueryTokenizer;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
 import javax.persistence.criteria.Predicate;
+import java.time.OffsetDateTime;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_MODE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 /**
  * Spring JPA repository for Notes
  */
-public interface NoteRepository extends JpaRepository<NoteEntity, String>, JpaSpecificationExecutor<NoteEntity> {
+public interface NoteRepository extends JpaRepository<NoteEntity, String>, JpaSpecificationExecutor<NoteEntity>, NoteRepositoryCustom {
+
+    /**
+     * First page of notes in keyset order (latest created first, id as tie-breaker).
+     *
+     * @param pageable page size (the page number is ignored, use {@link #findPageAfter} to seek)
+     * @return slice of notes (no count query required)
+     */
+    @Query("select n from NoteEntity n order by n.createdOn desc, n.id desc")
+    Slice<NoteEntity> findFirstPage(Pageable pageable);
+
+    /**
+     * Page of notes following the given keyset position, in keyset order (latest created first, id as tie-breaker).
+     *
+     * @param createdOn creation date of the last note of the previous page
+     * @param id        id of the last note of the previous page
+     * @param pageable  page size (the page number is ignored)
+     * @return slice of notes (no count query required)
+     */
+    @Query("select n from NoteEntity n where n.createdOn < :createdOn or (n.createdOn = :createdOn and n.id < :id) order by n.createdOn desc, n.id desc")
+    Slice<NoteEntity> findPageAfter(@Param("createdOn") OffsetDateTime createdOn, @Param("id") String id, Pageable pageable);
+
+    /**
+     * Stream all notes (oldest first), fetching the rows in chunks from a forward-only cursor. The stream must be
+     * consumed within a transaction and closed afterwards. The entities are read-only, callers should detach them
+     * once processed to keep the persistence context small. The second-level cache is bypassed (cache mode
+     * <code>IGNORE</code>), so streaming all notes does not flood it and evict the hot notes.
+     *
+     * @return stream of all notes
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READONLY, value = "true"),
+            @QueryHint(name = HINT_CACHEABLE, value = "false"),
+            @QueryHint(name = HINT_CACHE_MODE, value = "IGNORE")})
+    @Query("select n from NoteEntity n order by n.createdOn, n.id")
+    Stream<NoteEntity> streamAll();
+
+    /**
+     * Get the version of a note, without loading the note.
+     *
+     * @param id id of the note
+     * @return version, or empty if no such note exists
+     */
+    @Query("select n.version from NoteEntity n where n.id = :id")
+    Optional<Long> findVersionById(@Param("id") String id);
 
     static Specification<NoteEntity> fulltextSearch(String queryString) {
         final List<String> tokens = SearchQueryTokenizer.tokenize(queryString)
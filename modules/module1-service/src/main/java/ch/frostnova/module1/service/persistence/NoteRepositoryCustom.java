@@ -0,0 +1,27 @@
+package ch.frostnova.module1.service.persistence;
+
+import java.util.Collection;
+
+/**
+ * Custom statements of the {@link NoteRepository}.
+ */
+public interface NoteRepositoryCustom {
+
+    /**
+     * Delete a note with a single statement, without loading it first. Only the deleted note is evicted from the
+     * second-level cache.
+     *
+     * @param id id of the note
+     * @return number of deleted notes (0 or 1)
+     */
+    int deleteNoteById(String id);
+
+    /**
+     * Delete several notes with a single statement, without loading them first. Only the deleted notes are evicted
+     * from the second-level cache.
+     *
+     * @param ids ids of the notes (keep the number of ids within the IN-list limit of the database)
+     * @return number of deleted notes
+     */
+    int deleteNotesByIds(Collection<String> ids);
+}
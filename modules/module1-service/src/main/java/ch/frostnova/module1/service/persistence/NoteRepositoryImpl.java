@@ -0,0 +1,62 @@
+package ch.frostnova.module1.service.persistence;
+
+import org.hibernate.query.NativeQuery;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Implementation of the {@link NoteRepositoryCustom} statements. <p>
+ * JPQL bulk statements make Hibernate evict the whole second-level cache region of the entity, so the deletes are
+ * native statements, synchronized on a dedicated query space (not the <code>NOTE</code> table, which would evict the
+ * region as well). The deleted notes are evicted by id instead: right away, and again once the transaction completed,
+ * in case a concurrent transaction loaded them into the cache in the meantime.
+ */
+public class NoteRepositoryImpl implements NoteRepositoryCustom {
+
+    private final static String DELETE_QUERY_SPACE = "NOTE_DELETE";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int deleteNoteById(String id) {
+        return deleteNotesByIds(List.of(id));
+    }
+
+    @Override
+    public int deleteNotesByIds(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        List<String> deletedIds = List.copyOf(ids);
+        entityManager.flush();
+        int deleted = entityManager.createNativeQuery("DELETE FROM {h-schema}NOTE WHERE ID IN (:ids)")
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace(DELETE_QUERY_SPACE)
+                .setParameterList("ids", deletedIds)
+                .executeUpdate();
+        if (deleted > 0) {
+            evict(deletedIds);
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        evict(deletedIds);
+                    }
+                });
+            }
+        }
+        return deleted;
+    }
+
+    private void evict(Collection<String> ids) {
+        Cache cache = entityManager.getEntityManagerFactory().getCache();
+        ids.forEach(id -> cache.evict(NoteEntity.class, id));
+    }
+}
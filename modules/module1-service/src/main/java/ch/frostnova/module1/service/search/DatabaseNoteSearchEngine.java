@@ -0,0 +1,36 @@
+package ch.frostnova.module1.service.search;
+
+import ch.frostnova.module1.api.model.Note;
+import ch.frostnova.module1.service.persistence.NoteEntity;
+import ch.frostnova.module1.service.persistence.NoteRepository;
+import ch.frostnova.module1.service.util.NoteConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Search engine querying the database with one <code>lower(TEXT) LIKE '%token%'</code> predicate per search token.
+ */
+@Component
+@ConditionalOnProperty(value = NoteSearchEngine.ENGINE_PROPERTY, havingValue = "database", matchIfMissing = true)
+public class DatabaseNoteSearchEngine implements NoteSearchEngine {
+
+    @Autowired
+    private NoteRepository repository;
+
+    @Override
+    public List<Note> find(String searchQuery, int limit) {
+        PageRequest pageRequest = PageRequest.of(0, limit, Sort.Direction.DESC, "createdOn");
+        Specification<NoteEntity> fulltextSearch = NoteRepository.fulltextSearch(searchQuery);
+        return repository.findAll(fulltextSearch, pageRequest)
+                .stream()
+                .map(NoteConverter::convert)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,325 @@
+package ch.frostnova.module1.service.search;
+
+import ch.frostnova.module1.api.model.Note;
+import ch.frostnova.module1.service.util.NoteConverter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory inverted index over notes: maps each term (lower-cased run of letters/digits) of the note texts to the
+ * sorted postings list of the notes containing it. <p>
+ * Notes are identified by ordinals, assigned in the order the notes are added. Notes should be added oldest first,
+ * so that higher ordinals are newer, and search results can be collected newest first by walking the postings
+ * backwards. An updated note keeps its ordinal, a deleted note leaves a tombstone. Stale postings (terms no longer
+ * contained in the note text) are harmless, as every candidate is verified against the current text, and are
+ * removed when the index is compacted. <p>
+ * A note matches when each word of every query token is a prefix of one of its terms (looked up as a range of the
+ * sorted term dictionary), and when it contains every query token as a (case-insensitive) substring (so quoted phrases
+ * match as phrases). Unlike the database search, words do not match in the middle of a term ('olo' does not match
+ * 'dolor'). <p>
+ * Memory: the index keeps a copy of every note in the heap, plus the term dictionary and postings, in the order of two
+ * to three times the size of the note texts. <p>
+ * Thread-safe, concurrent searches are possible while no update is in progress.
+ */
+public class InvertedIndex {
+
+    private final static int INITIAL_CAPACITY = 1024;
+    private final static int MIN_STALE_BEFORE_COMPACTION = 1024;
+    private final static int[] NONE = new int[0];
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private NavigableMap<String, Postings> postingsByTerm = new TreeMap<>();
+    private Map<String, Integer> ordinalById = new HashMap<>();
+    private Note[] documents = new Note[INITIAL_CAPACITY];
+    private int nextOrdinal;
+    private int staleCount;
+
+    /**
+     * Split a text into lower-cased terms (runs of letters and digits).
+     *
+     * @param text text
+     * @return distinct terms, in order of appearance
+     */
+    static Set<String> terms(String text) {
+        return new LinkedHashSet<>(words(text));
+    }
+
+    /**
+     * Split a text into lower-cased words (runs of letters and digits).
+     *
+     * @param text text
+     * @return words, in order of appearance (including duplicates)
+     */
+    static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        String lowerCase = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lowerCase.length(); i++) {
+            boolean termChar = i < lowerCase.length() && Character.isLetterOrDigit(lowerCase.charAt(i));
+            if (termChar && start < 0) {
+                start = i;
+            } else if (!termChar && start >= 0) {
+                words.add(lowerCase.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return n == result.length ? result : Arrays.copyOf(result, n);
+    }
+
+    /**
+     * Add or update a note.
+     *
+     * @param note note, required (with id)
+     */
+    public void put(Note note) {
+        Objects.requireNonNull(note.getId(), "note id is required");
+        lock.writeLock().lock();
+        try {
+            index(note);
+            compactIfRequired();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add or update several notes (oldest first).
+     *
+     * @param notes notes, required (with id)
+     */
+    public void putAll(Collection<Note> notes) {
+        lock.writeLock().lock();
+        try {
+            notes.forEach(this::index);
+            compactIfRequired();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove notes, ignoring ids that are not indexed.
+     *
+     * @param ids ids of the notes to remove
+     */
+    public void remove(Collection<String> ids) {
+        lock.writeLock().lock();
+        try {
+            for (String id : ids) {
+                Integer ordinal = ordinalById.remove(id);
+                if (ordinal != null) {
+                    documents[ordinal] = null;
+                    staleCount++;
+                }
+            }
+            compactIfRequired();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Number of indexed notes.
+     *
+     * @return number of notes
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinalById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the newest notes which contain all the given tokens (case-insensitive, words match term prefixes).
+     *
+     * @param tokens tokens (as produced by the {@link ch.frostnova.module1.service.util.SearchQueryTokenizer})
+     * @param limit  max. number of results
+     * @return matching notes, newest first (never null)
+     */
+    public List<Note> find(List<String> tokens, int limit) {
+        List<String> needles = tokens.stream()
+                .filter(s -> !s.isBlank())
+                .map(s -> s.toLowerCase(Locale.ROOT))
+                .distinct()
+                .collect(Collectors.toList());
+        if (needles.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            int[] candidates = null;
+            for (String needle : needles) {
+                for (String word : terms(needle)) {
+                    int[] postings = postingsWithPrefix(word);
+                    candidates = candidates == null ? postings : intersect(candidates, postings);
+                    if (candidates.length == 0) {
+                        return Collections.emptyList();
+                    }
+                }
+            }
+
+            List<Note> result = new ArrayList<>(Math.min(limit, 16));
+            int count = candidates != null ? candidates.length : nextOrdinal;
+            for (int i = count - 1; i >= 0 && result.size() < limit; i--) {
+                Note document = documents[candidates != null ? candidates[i] : i];
+                if (document != null && containsAll(document.getText().toLowerCase(Locale.ROOT), needles)) {
+                    result.add(NoteConverter.copy(document));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean containsAll(String text, List<String> needles) {
+        for (String needle : needles) {
+            if (!text.contains(needle)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Postings of the terms starting with the given word: the postings of a single term are used as they are, only
+     * several matching terms require a union.
+     */
+    private int[] postingsWithPrefix(String word) {
+        Collection<Postings> matches = postingsByTerm.subMap(word, true, word + Character.MAX_VALUE, false).values();
+        if (matches.isEmpty()) {
+            return NONE;
+        }
+        if (matches.size() == 1) {
+            return matches.iterator().next().toArray();
+        }
+        int total = matches.stream().mapToInt(p -> p.size).sum();
+        int[] union = new int[total];
+        int n = 0;
+        for (Postings postings : matches) {
+            System.arraycopy(postings.ordinals, 0, union, n, postings.size);
+            n += postings.size;
+        }
+        Arrays.sort(union);
+        int distinct = 0;
+        for (int i = 0; i < union.length; i++) {
+            if (i == 0 || union[i] != union[i - 1]) {
+                union[distinct++] = union[i];
+            }
+        }
+        return Arrays.copyOf(union, distinct);
+    }
+
+    private void index(Note note) {
+        Integer ordinal = ordinalById.get(note.getId());
+        if (ordinal == null) {
+            if (nextOrdinal == documents.length) {
+                documents = Arrays.copyOf(documents, documents.length * 2);
+            }
+            ordinal = nextOrdinal++;
+            ordinalById.put(note.getId(), ordinal);
+        } else {
+            staleCount++;
+        }
+        documents[ordinal] = NoteConverter.copy(note);
+        for (String term : terms(note.getText())) {
+            postingsByTerm.computeIfAbsent(term, t -> new Postings()).add(ordinal);
+        }
+    }
+
+    /**
+     * Rebuild the index when there are more stale entries (deleted or updated notes) than live notes.
+     */
+    private void compactIfRequired() {
+        if (staleCount < MIN_STALE_BEFORE_COMPACTION || staleCount < ordinalById.size()) {
+            return;
+        }
+        Note[] previousDocuments = documents;
+        int previousCount = nextOrdinal;
+
+        postingsByTerm = new TreeMap<>();
+        ordinalById = new HashMap<>();
+        documents = new Note[Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, previousCount - staleCount)) * 2)];
+        nextOrdinal = 0;
+        staleCount = 0;
+        for (int i = 0; i < previousCount; i++) {
+            if (previousDocuments[i] != null) {
+                index(previousDocuments[i]);
+            }
+        }
+    }
+
+    /**
+     * Sorted, growable postings list (note ordinals).
+     */
+    private static class Postings {
+
+        private int[] ordinals = new int[4];
+        private int size;
+
+        void add(int ordinal) {
+            if (size > 0 && ordinals[size - 1] >= ordinal) {
+                int index = Arrays.binarySearch(ordinals, 0, size, ordinal);
+                if (index >= 0) {
+                    return;
+                }
+                insert(-index - 1, ordinal);
+                return;
+            }
+            insert(size, ordinal);
+        }
+
+        private void insert(int index, int ordinal) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            System.arraycopy(ordinals, index, ordinals, index + 1, size - index);
+            ordinals[index] = ordinal;
+            size++;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(ordinals, size);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package ch.frostnova.module1.service.search;
+
+import ch.frostnova.module1.api.model.Note;
+import ch.frostnova.module1.service.persistence.NoteEntity;
+import ch.frostnova.module1.service.persistence.NoteRepository;
+import ch.frostnova.module1.service.util.NoteConverter;
+import ch.frostnova.module1.service.util.SearchQueryTokenizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Search engine answering queries from an in-memory {@link InvertedIndex}, without touching the database.
+ * The index is bootstrapped from the database when the application is ready (or on the first search, whichever comes
+ * first), and kept up to date with the changes made through the note service once their transaction commits.
+ * Changes made while the index is bootstrapping are applied after the bootstrap.
+ */
+@Component
+@ConditionalOnProperty(value = NoteSearchEngine.ENGINE_PROPERTY, havingValue = "index")
+public class InvertedIndexNoteSearchEngine implements NoteSearchEngine {
+
+    private final static int BOOTSTRAP_BATCH_SIZE = 1000;
+
+    private final Logger logger = LoggerFactory.getLogger(InvertedIndexNoteSearchEngine.class);
+
+    private final InvertedIndex index = new InvertedIndex();
+    /**
+     * Lock (instead of a monitor) for the bootstrap, which blocks on the database: a virtual thread blocking while
+     * holding a monitor would pin its carrier thread.
+     */
+    private final Lock bootstrapLock = new ReentrantLock();
+    private final Object updateLock = new Object();
+    private List<Consumer<InvertedIndex>> pendingUpdates = new ArrayList<>();
+    private volatile boolean ready;
+
+    @Autowired
+    private NoteRepository repository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        bootstrap();
+    }
+
+    @Override
+    public List<Note> find(String searchQuery, int limit) {
+        if (!ready) {
+            bootstrap();
+        }
+        return index.find(SearchQueryTokenizer.tokenize(searchQuery), limit);
+    }
+
+    @Override
+    public void saved(Note note) {
+        Note copy = NoteConverter.copy(note);
+        afterCommit(index -> index.put(copy));
+    }
+
+    @Override
+    public void deleted(Collection<String> ids) {
+        List<String> copy = new ArrayList<>(ids);
+        afterCommit(index -> index.remove(copy));
+    }
+
+    private void bootstrap() {
+        bootstrapLock.lock();
+        try {
+            if (!ready) {
+                bootstrapIndex();
+            }
+        } finally {
+            bootstrapLock.unlock();
+        }
+    }
+
+    private void bootstrapIndex() {
+        long startTime = System.nanoTime();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Note> batch = new ArrayList<>(BOOTSTRAP_BATCH_SIZE);
+            try (Stream<NoteEntity> notes = repository.streamAll()) {
+                notes.forEach(entity -> {
+                    batch.add(NoteConverter.convert(entity));
+                    entityManager.detach(entity);
+                    if (batch.size() == BOOTSTRAP_BATCH_SIZE) {
+                        index.putAll(batch);
+                        batch.clear();
+                    }
+                });
+            }
+            index.putAll(batch);
+        });
+        synchronized (updateLock) {
+            pendingUpdates.forEach(update -> update.accept(index));
+            pendingUpdates = null;
+            ready = true;
+        }
+        logger.info("Note search index bootstrapped with {} notes in {} ms", index.size(), (System.nanoTime() - startTime) / 1_000_000);
+    }
+
+    private void afterCommit(Consumer<InvertedIndex> update) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(update);
+                }
+            });
+        } else {
+            apply(update);
+        }
+    }
+
+    private void apply(Consumer<InvertedIndex> update) {
+        synchronized (updateLock) {
+            if (pendingUpdates != null) {
+                pendingUpdates.add(update);
+                return;
+            }
+        }
+        update.accept(index);
+    }
+}
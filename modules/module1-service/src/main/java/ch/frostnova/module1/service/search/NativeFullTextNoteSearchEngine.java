@@ -0,0 +1,196 @@
+package ch.frostnova.module1.service.search;
+
+import ch.frostnova.module1.api.model.Note;
+import ch.frostnova.module1.service.persistence.NoteEntity;
+import ch.frostnova.module1.service.util.NoteConverter;
+import ch.frostnova.module1.service.util.SearchQueryTokenizer;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Search engine using the full-text index of the database, when the database supports it:
+ * <ul>
+ * <li>MySQL: <code>MATCH(TEXT) AGAINST(...)</code> in boolean mode on the <code>FT_NOTE_TEXT</code> FULLTEXT index,
+ * every search token is required, single words match as prefix, multi-word tokens as phrase.</li>
+ * <li>H2: <code>FT_SEARCH_DATA(...)</code> on the H2 native full-text index, every word is required. The H2 index has
+ * no phrase search: multi-word tokens are matched as phrase by filtering the results (the words have to appear in
+ * sequence in the note text).</li>
+ * </ul>
+ * Full-text indices match on words (not on arbitrary substrings as the <code>LIKE</code> search does), with the
+ * database-specific word rules (e.g. MySQL ignores stopwords and words shorter than
+ * <code>innodb_ft_min_token_size</code>). <p>
+ * Falls back to the <code>LIKE</code> search of the {@link DatabaseNoteSearchEngine} when the database is not supported,
+ * the full-text index is missing, or the search query contains no words.
+ */
+@Component
+@ConditionalOnProperty(value = NoteSearchEngine.ENGINE_PROPERTY, havingValue = "native")
+public class NativeFullTextNoteSearchEngine extends DatabaseNoteSearchEngine {
+
+    private final static String MYSQL_QUERY = "SELECT * FROM {h-schema}NOTE WHERE MATCH(TEXT) AGAINST(?1 IN BOOLEAN MODE) ORDER BY CREATED_ON DESC, ID DESC";
+    private final static String H2_QUERY = "SELECT N.* FROM {h-schema}NOTE N JOIN FT_SEARCH_DATA(?1, 0, 0) FT ON FT.\"TABLE\" = 'NOTE' AND N.ID = FT.KEYS[1] ORDER BY N.CREATED_ON DESC, N.ID DESC";
+    private final static String H2_INDEX_QUERY = "SELECT 1 FROM FT.INDEXES WHERE \"TABLE\" = 'NOTE'";
+
+    private final Logger logger = LoggerFactory.getLogger(NativeFullTextNoteSearchEngine.class);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private volatile FullTextSupport fullTextSupport;
+
+    @Override
+    public List<Note> find(String searchQuery, int limit) {
+        List<List<String>> tokenWords = SearchQueryTokenizer.tokenize(searchQuery).stream()
+                .map(InvertedIndex::words)
+                .filter(words -> !words.isEmpty())
+                .collect(Collectors.toList());
+        FullTextSupport support = fullTextSupport();
+        if (support == FullTextSupport.NONE || tokenWords.isEmpty()) {
+            return super.find(searchQuery, limit);
+        }
+        if (support == FullTextSupport.MYSQL) {
+            return find(MYSQL_QUERY, mysqlBooleanQuery(tokenWords), limit);
+        }
+        List<List<String>> phrases = tokenWords.stream()
+                .filter(words -> words.size() > 1)
+                .collect(Collectors.toList());
+        if (phrases.isEmpty()) {
+            return find(H2_QUERY, h2Query(tokenWords), limit);
+        }
+
+        // the H2 index only matches words: stream the candidates until enough of them contain the phrases
+        @SuppressWarnings("unchecked")
+        Stream<NoteEntity> candidates = entityManager.createNativeQuery(H2_QUERY, NoteEntity.class)
+                .setParameter(1, h2Query(tokenWords))
+                .getResultStream();
+        try (candidates) {
+            return candidates
+                    .filter(note -> containsPhrases(note.getText(), phrases))
+                    .limit(limit)
+                    .map(NoteConverter::convert)
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private List<Note> find(String sql, String fullTextQuery, int limit) {
+        @SuppressWarnings("unchecked")
+        List<NoteEntity> result = entityManager.createNativeQuery(sql, NoteEntity.class)
+                .setParameter(1, fullTextQuery)
+                .setMaxResults(limit)
+                .getResultList();
+        return result.stream()
+                .map(NoteConverter::convert)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * MySQL boolean mode query: every token is required, single words match as prefix, multiple words as phrase.
+     */
+    private String mysqlBooleanQuery(List<List<String>> tokenWords) {
+        List<String> terms = new ArrayList<>();
+        for (List<String> words : tokenWords) {
+            terms.add(words.size() == 1 ? "+" + words.get(0) + "*" : "+\"" + String.join(" ", words) + "\"");
+        }
+        return String.join(" ", terms);
+    }
+
+    /**
+     * H2 full-text query: space-separated words, all required.
+     */
+    private String h2Query(List<List<String>> tokenWords) {
+        return tokenWords.stream()
+                .flatMap(List::stream)
+                .distinct()
+                .collect(Collectors.joining(" "));
+    }
+
+    /**
+     * Check if the words of the text contain each phrase (sequence of words).
+     */
+    static boolean containsPhrases(String text, List<List<String>> phrases) {
+        List<String> words = InvertedIndex.words(text);
+        for (List<String> phrase : phrases) {
+            if (Collections.indexOfSubList(words, phrase) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private FullTextSupport fullTextSupport() {
+        if (fullTextSupport == null) {
+            fullTextSupport = detectFullTextSupport();
+            logger.info("Full-text search support: {}", fullTextSupport);
+        }
+        return fullTextSupport;
+    }
+
+    private FullTextSupport detectFullTextSupport() {
+        Dialect dialect = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            if (dialect instanceof MySQLDialect && hasIndex(metaData, "FT_NOTE_TEXT")) {
+                return FullTextSupport.MYSQL;
+            }
+            if (dialect instanceof H2Dialect && hasTable(metaData, "FT", "INDEXES") && hasH2FullTextIndex(connection)) {
+                return FullTextSupport.H2;
+            }
+        } catch (SQLException ex) {
+            logger.warn("Unable to detect full-text search support, falling back to LIKE search", ex);
+        }
+        return FullTextSupport.NONE;
+    }
+
+    private boolean hasIndex(DatabaseMetaData metaData, String indexName) throws SQLException {
+        try (ResultSet resultSet = metaData.getIndexInfo(null, null, "NOTE", false, false)) {
+            while (resultSet.next()) {
+                if (indexName.equalsIgnoreCase(resultSet.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean hasH2FullTextIndex(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(H2_INDEX_QUERY);
+             ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next();
+        }
+    }
+
+    private boolean hasTable(DatabaseMetaData metaData, String schema, String table) throws SQLException {
+        try (ResultSet resultSet = metaData.getTables(null, schema, table, null)) {
+            return resultSet.next();
+        }
+    }
+
+    private enum FullTextSupport {
+        MYSQL,
+        H2,
+        NONE
+    }
+}
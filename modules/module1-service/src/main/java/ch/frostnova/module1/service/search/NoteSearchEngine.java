@@ -0,0 +1,48 @@
+package ch.frostnova.module1.service.search;
+
+import ch.frostnova.module1.api.model.Note;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Search engine for notes. The engine is selected with the <code>ch.frostnova.module1.search.engine</code> property:
+ * <ul>
+ * <li><code>database</code> (default): <code>LIKE</code> queries on the database, see {@link DatabaseNoteSearchEngine}</li>
+ * <li><code>index</code>: in-memory inverted index (words match term prefixes, requires heap for a copy of all
+ * notes), see {@link InvertedIndexNoteSearchEngine}</li>
+ * <li><code>native</code>: full-text index of the database, see {@link NativeFullTextNoteSearchEngine}</li>
+ * </ul>
+ * A note matches when it contains every token of the search query (case-insensitive).
+ */
+public interface NoteSearchEngine {
+
+    String ENGINE_PROPERTY = "ch.frostnova.module1.search.engine";
+
+    /**
+     * Find the newest notes matching the given search query.
+     *
+     * @param searchQuery search query (tokens separated by whitespace, comma or semicolon, quoting supported)
+     * @param limit       max. number of results
+     * @return matching notes, newest first (never null)
+     */
+    List<Note> find(String searchQuery, int limit);
+
+    /**
+     * Notification that a note was created or updated. Engines maintaining their own index should apply the change
+     * once the current transaction commits.
+     *
+     * @param note saved note
+     */
+    default void saved(Note note) {
+    }
+
+    /**
+     * Notification that notes were deleted. Engines maintaining their own index should apply the change once the
+     * current transaction commits.
+     *
+     * @param ids ids of the deleted notes
+     */
+    default void deleted(Collection<String> ids) {
+    }
+}
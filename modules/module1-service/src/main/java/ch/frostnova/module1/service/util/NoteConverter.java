@@ -0,0 +1,39 @@
+package ch.frostnova.module1.service.util;
+
+import ch.frostnova.module1.api.model.Note;
+import ch.frostnova.module1.service.persistence.NoteEntity;
+
+/**
+ * Converts note entities to DTOs.
+ */
+public final class NoteConverter {
+
+    private NoteConverter() {
+
+    }
+
+    public static Note convert(NoteEntity entity) {
+        if (entity == null) {
+            return null;
+        }
+        Note dto = new Note();
+        dto.setId(entity.getId());
+        dto.setVersion(entity.getVersion());
+        dto.setText(entity.getText());
+        dto.setCreated(entity.getCreatedOn());
+        dto.setUpdated(entity.getLastUpdatedOn());
+        return dto;
+    }
+
+    public static Note copy(Note note) {
+        if (note == null) {
+            return null;
+        }
+        Note copy = new Note(note.getText());
+        copy.setId(note.getId());
+        copy.setVersion(note.getVersion());
+        copy.setCreated(note.getCreated());
+        copy.setUpdated(note.getUpdated());
+        return copy;
+    }
+}
@@ -1,6 +1,9 @@
 package ch.frostnova.module1.service;
 
 import ch.frostnova.common.api.exception.ResourceNotFoundException;
+import ch.frostnova.common.api.exception.ResourceVersionMismatchException;
+import ch.frostnova.common.api.model.BatchItemResult;
+import ch.frostnova.common.api.model.CursorPage;
 import ch.frostnova.common.service.scope.TaskScope;
 import ch.frostnova.module1.api.model.Note;
 import ch.frostnova.module1.api.service.NoteService;
@@ -16,11 +19,16 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import javax.validation.ValidationException;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -112,6 +120,54 @@ public class NoteServiceTest {
         assertThat(list.contains(note)).isTrue();
     }
 
+    @Test
+    public void testListPaged() {
+
+        Set<String> created = new HashSet<>();
+        for (int i = 0; i < 25; i++) {
+            created.add(noteService.save(new Note(UUID.randomUUID().toString())).getId());
+        }
+
+        List<Note> all = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<Note> page = noteService.list(cursor, 7);
+            assertThat(page.getItems().size()).isBetween(1, 7);
+            all.addAll(page.getItems());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertThat(all).doesNotHaveDuplicates();
+        assertThat(all.stream().map(Note::getId).collect(Collectors.toSet())).containsAll(created);
+        assertThat(all).isSortedAccordingTo(Comparator.comparing(Note::getCreated).thenComparing(Note::getId).reversed());
+        assertThat(all.size()).isEqualTo(noteService.list().size());
+    }
+
+    @Test
+    public void testListPagedValidation() {
+
+        assertThatThrownBy(() -> noteService.list(null, 0)).isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> noteService.list(null, 1001)).isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> noteService.list("not-a-cursor", 10)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testExport() {
+
+        Set<String> created = new HashSet<>();
+        for (int i = 0; i < 5; i++) {
+            created.add(noteService.save(new Note(UUID.randomUUID().toString())).getId());
+        }
+
+        List<Note> exported = new ArrayList<>();
+        noteService.export(exported::add);
+
+        assertThat(exported).doesNotHaveDuplicates();
+        assertThat(exported.stream().map(Note::getId).collect(Collectors.toSet())).containsAll(created);
+        assertThat(exported).allMatch(n -> n.getText() != null && n.getCreated() != null);
+        assertThat(exported.size()).isEqualTo(noteService.list().size());
+    }
+
     @Test
     public void testUpdate() {
 
@@ -126,6 +182,64 @@ public class NoteServiceTest {
         assertThat(updated.getText()).isEqualTo(note.getText());
     }
 
+    @Test
+    public void testConditionalUpdate() {
+
+        Note note = noteService.save(new Note(UUID.randomUUID().toString()));
+        long version = note.getVersion();
+        assertThat(noteService.getVersion(note.getId())).isEqualTo(version);
+
+        note.setText("updated");
+        long newVersion = noteService.update(note, version);
+        assertThat(newVersion).isEqualTo(version + 1);
+        assertThat(noteService.getVersion(note.getId())).isEqualTo(newVersion);
+
+        Note updated = noteService.get(note.getId());
+        assertThat(updated.getText()).isEqualTo("updated");
+        assertThat(updated.getVersion()).isEqualTo(newVersion);
+        assertThat(updated.getUpdated()).isAfterOrEqualTo(updated.getCreated());
+
+        note.setText("stale update");
+        assertThatThrownBy(() -> noteService.update(note, version)).isInstanceOf(ResourceVersionMismatchException.class);
+        assertThat(noteService.get(note.getId()).getText()).isEqualTo("updated");
+
+        Note unknown = new Note("unknown");
+        unknown.setId(UUID.randomUUID().toString());
+        assertThatThrownBy(() -> noteService.update(unknown, 0)).isInstanceOf(ResourceNotFoundException.class);
+        assertThatThrownBy(() -> noteService.getVersion(unknown.getId())).isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    public void testSaveAll() {
+
+        Note existing = noteService.save(new Note(UUID.randomUUID().toString()));
+
+        Note update = new Note("updated");
+        update.setId(existing.getId());
+        Note unknown = new Note("unknown");
+        unknown.setId(UUID.randomUUID().toString());
+
+        List<BatchItemResult<Note>> results = noteService.saveAll(Arrays.asList(new Note("first"), update, unknown, new Note("second")));
+        assertThat(results.stream().map(BatchItemResult::getStatus)).containsExactly(
+                BatchItemResult.Status.CREATED, BatchItemResult.Status.UPDATED, BatchItemResult.Status.NOT_FOUND, BatchItemResult.Status.CREATED);
+        assertThat(results.stream().map(r -> r.getResource().getText())).containsExactly("first", "updated", "unknown", "second");
+
+        Note created = results.get(0).getResource();
+        assertThat(created.getId()).isNotNull();
+        assertThat(created.getCreated()).isNotNull();
+        assertThat(noteService.get(created.getId()).getText()).isEqualTo("first");
+        assertThat(noteService.get(existing.getId()).getText()).isEqualTo("updated");
+        assertThatThrownBy(() -> noteService.get(unknown.getId())).isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    public void testSaveAllValidation() {
+
+        assertThatThrownBy(() -> noteService.saveAll(Arrays.asList(new Note("valid"), new Note("")))).isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> noteService.saveAll(IntStream.range(0, 1001).mapToObj(i -> new Note("note " + i)).collect(Collectors.toList())))
+                .isInstanceOf(ValidationException.class);
+    }
+
     @Test
     public void testDelete() {
 
@@ -138,6 +252,26 @@ public class NoteServiceTest {
         assertThat(noteService.list().stream().anyMatch(n -> n.getId().equals(id))).isFalse();
     }
 
+    @Test
+    public void testDeleteAll() {
+
+        List<String> ids = IntStream.range(0, 5)
+                .mapToObj(i -> noteService.save(new Note(UUID.randomUUID().toString())).getId())
+                .collect(Collectors.toList());
+        Note remaining = noteService.save(new Note(UUID.randomUUID().toString()));
+
+        List<String> toDelete = new ArrayList<>(ids);
+        toDelete.add(ids.get(0));
+        toDelete.add(UUID.randomUUID().toString());
+        assertThat(noteService.deleteAll(toDelete)).isEqualTo(5);
+        assertThat(noteService.deleteAll(ids)).isEqualTo(0);
+
+        for (String id : ids) {
+            assertThatThrownBy(() -> noteService.get(id)).isInstanceOf(ResourceNotFoundException.class);
+        }
+        assertThat(noteService.get(remaining.getId())).isEqualTo(remaining);
+    }
+
     @Test
     public void testFind() {
 
@@ -8,11 +8,15 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.transaction.TestTransaction;
 
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
 import java.time.OffsetDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.Arrays;
 import java.util.NoSuchElementException;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -30,6 +34,9 @@ public class NoteRepositoryTest {
     @Autowired
     private NoteRepository repository;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @Test
     public void testCRUD() {
 
@@ -73,6 +80,89 @@ public class NoteRepositoryTest {
         assertThat(note).isNull();
     }
 
+    @Test
+    public void testDelete() {
+        NoteEntity first = new NoteEntity();
+        first.setText("first");
+        String firstId = repository.save(first).getId();
+        NoteEntity second = new NoteEntity();
+        second.setText("second");
+        String secondId = repository.save(second).getId();
+        NoteEntity third = new NoteEntity();
+        third.setText("third");
+        String thirdId = repository.save(third).getId();
+
+        assertThat(repository.deleteNoteById(firstId)).isEqualTo(1);
+        assertThat(repository.deleteNoteById(firstId)).isEqualTo(0);
+        assertThat(repository.findById(firstId)).isEmpty();
+
+        assertThat(repository.deleteNotesByIds(Arrays.asList(firstId, secondId, thirdId, "unknown"))).isEqualTo(2);
+        assertThat(repository.findAllById(Arrays.asList(secondId, thirdId))).isEmpty();
+    }
+
+    @Test
+    public void testSecondLevelCache() {
+        Cache cache = entityManagerFactory.getCache();
+
+        NoteEntity note = new NoteEntity();
+        note.setText("cached");
+        String id = repository.save(note).getId();
+        NoteEntity other = new NoteEntity();
+        other.setText("other");
+        String otherId = repository.save(other).getId();
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+        cache.evict(NoteEntity.class, id);
+        cache.evict(NoteEntity.class, otherId);
+
+        // loaded from the database and put in the cache
+        TestTransaction.start();
+        assertThat(cache.contains(NoteEntity.class, id)).isFalse();
+        assertThat(repository.findById(id)).isPresent();
+        assertThat(repository.findById(otherId)).isPresent();
+        assertThat(cache.contains(NoteEntity.class, id)).isTrue();
+        assertThat(cache.contains(NoteEntity.class, otherId)).isTrue();
+        TestTransaction.end();
+
+        // invalidated on delete, other notes stay cached
+        TestTransaction.start();
+        TestTransaction.flagForCommit();
+        assertThat(repository.deleteNoteById(id)).isEqualTo(1);
+        TestTransaction.end();
+        assertThat(cache.contains(NoteEntity.class, id)).isFalse();
+        assertThat(cache.contains(NoteEntity.class, otherId)).isTrue();
+
+        TestTransaction.start();
+        TestTransaction.flagForCommit();
+        assertThat(repository.findById(id)).isEmpty();
+        assertThat(repository.deleteNotesByIds(Arrays.asList(id, otherId))).isEqualTo(1);
+        TestTransaction.end();
+        assertThat(cache.contains(NoteEntity.class, otherId)).isFalse();
+
+        TestTransaction.start();
+        assertThat(repository.findById(otherId)).isEmpty();
+    }
+
+    @Test
+    public void testStreamAllBypassesSecondLevelCache() {
+        Cache cache = entityManagerFactory.getCache();
+
+        NoteEntity note = new NoteEntity();
+        note.setText("streamed");
+        String id = repository.save(note).getId();
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+        cache.evict(NoteEntity.class, id);
+
+        TestTransaction.start();
+        try (Stream<NoteEntity> notes = repository.streamAll()) {
+            assertThat(notes.map(NoteEntity::getId)).contains(id);
+        }
+        assertThat(cache.contains(NoteEntity.class, id)).isFalse();
+        TestTransaction.flagForCommit();
+        repository.deleteNoteById(id);
+    }
+
     @Test
     public void testFind() {
         NoteEntity note = new NoteEntity();
@@ -0,0 +1,117 @@
+package ch.frostnova.module1.service.search;
+
+import ch.frostnova.module1.api.model.Note;
+import ch.frostnova.module1.service.util.SearchQueryTokenizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link InvertedIndex}
+ */
+public class InvertedIndexTest {
+
+    private static Note note(String id, String text) {
+        Note note = new Note(text);
+        note.setId(id);
+        return note;
+    }
+
+    private static List<Note> find(InvertedIndex index, String query, int limit) {
+        return index.find(SearchQueryTokenizer.tokenize(query), limit);
+    }
+
+    @Test
+    public void testTerms() {
+        assertThat(InvertedIndex.terms("Lorem ipsum, DOLOR sit-amet 42 lorem")).containsExactly("lorem", "ipsum", "dolor", "sit", "amet", "42");
+        assertThat(InvertedIndex.terms("  ,;  ")).isEmpty();
+        assertThat(InvertedIndex.terms(null)).isEmpty();
+    }
+
+    @Test
+    public void testIntersect() {
+        assertThat(InvertedIndex.intersect(new int[]{1, 3, 5, 7, 9}, new int[]{2, 3, 4, 9, 10})).containsExactly(3, 9);
+        assertThat(InvertedIndex.intersect(new int[]{1, 2}, new int[]{3, 4})).isEmpty();
+        assertThat(InvertedIndex.intersect(new int[0], new int[]{3, 4})).isEmpty();
+    }
+
+    @Test
+    public void testFind() {
+        InvertedIndex index = new InvertedIndex();
+        Note note = note("1", "Lorem ipsum dolor sit amet");
+        index.put(note);
+        index.put(note("2", "Aloha"));
+
+        for (String positive : Arrays.asList("Lorem", "IPSUM", "LOR", "dolor ips", "sit, lo", "'sit amet'", "'ipsum dol")) {
+            assertThat(find(index, positive, 10)).as(positive).containsExactly(note);
+        }
+
+        for (String negative : Arrays.asList("L0rem", "QUIPSUM", "foo", "dolor ups", "sit# lo", "'sitamet'", "'lorem dolor", "oLo", "'em IP")) {
+            assertThat(find(index, negative, 10)).as(negative).isEmpty();
+        }
+        assertThat(find(index, "  ", 10)).isEmpty();
+    }
+
+    @Test
+    public void testNewestFirst() {
+        InvertedIndex index = new InvertedIndex();
+        index.putAll(IntStream.range(0, 100)
+                .mapToObj(i -> note(String.valueOf(i), "note number " + i))
+                .collect(Collectors.toList()));
+
+        List<Note> result = find(index, "number", 10);
+        assertThat(result.stream().map(Note::getId)).containsExactly("99", "98", "97", "96", "95", "94", "93", "92", "91", "90");
+        assertThat(find(index, "number 4", 3).stream().map(Note::getId)).containsExactly("49", "48", "47");
+        assertThat(find(index, "number 99", 3).stream().map(Note::getId)).containsExactly("99");
+    }
+
+    @Test
+    public void testUpdateAndRemove() {
+        InvertedIndex index = new InvertedIndex();
+        Note first = note("1", "Lorem ipsum");
+        Note second = note("2", "Lorem dolor");
+        index.putAll(Arrays.asList(first, second));
+        assertThat(index.size()).isEqualTo(2);
+
+        index.put(note("1", "Aloha"));
+        assertThat(find(index, "ipsum", 10)).isEmpty();
+        assertThat(find(index, "lorem", 10)).containsExactly(second);
+        assertThat(find(index, "aloha", 10)).containsExactly(first);
+        assertThat(find(index, "aloha", 10).get(0).getText()).isEqualTo("Aloha");
+
+        index.remove(Collections.singleton("2"));
+        index.remove(Collections.singleton("unknown"));
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(find(index, "lorem", 10)).isEmpty();
+    }
+
+    @Test
+    public void testCompaction() {
+        InvertedIndex index = new InvertedIndex();
+        index.putAll(IntStream.range(0, 5000)
+                .mapToObj(i -> note(String.valueOf(i), "note " + i))
+                .collect(Collectors.toList()));
+        index.remove(IntStream.range(0, 4990).mapToObj(String::valueOf).collect(Collectors.toList()));
+
+        assertThat(index.size()).isEqualTo(10);
+        assertThat(find(index, "note", 20).stream().map(Note::getId)).containsExactly("4999", "4998", "4997", "4996", "4995", "4994", "4993", "4992", "4991", "4990");
+
+        index.put(note("new", "new note"));
+        assertThat(find(index, "note", 1).stream().map(Note::getId)).containsExactly("new");
+    }
+
+    @Test
+    public void testResultsAreCopies() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(note("1", "Lorem ipsum"));
+
+        find(index, "lorem", 10).get(0).setText("changed");
+        assertThat(find(index, "lorem", 10).get(0).getText()).isEqualTo("Lorem ipsum");
+    }
+}
@@ -0,0 +1,86 @@
+package ch.frostnova.module1.service.search;
+
+import ch.frostnova.module1.api.model.Note;
+import ch.frostnova.module1.service.TestConfig;
+import ch.frostnova.module1.service.persistence.NoteEntity;
+import ch.frostnova.module1.service.persistence.NoteRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test for the {@link NativeFullTextNoteSearchEngine} on the H2 full-text index.
+ */
+@ExtendWith(SpringExtension.class)
+@DataJpaTest
+@ActiveProfiles("test")
+@ContextConfiguration(classes = TestConfig.class)
+@TestPropertySource(properties = NoteSearchEngine.ENGINE_PROPERTY + "=native")
+public class NativeFullTextNoteSearchEngineTest {
+
+    @Autowired
+    private NoteSearchEngine searchEngine;
+
+    @Autowired
+    private NoteRepository repository;
+
+    private static List<String> ids(List<Note> notes) {
+        return notes.stream().map(Note::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testFind() {
+
+        assertThat(searchEngine).isInstanceOf(NativeFullTextNoteSearchEngine.class);
+
+        NoteEntity note = new NoteEntity();
+        note.setText("Lorem ipsum dolor sit amet");
+        String id = repository.saveAndFlush(note).getId();
+
+        for (String positive : Arrays.asList("Lorem", "IPSUM", "dolor sit", "sit, amet", "'ipsum dolor'", "'Dolor, sit amet' lorem")) {
+            assertThat(ids(searchEngine.find(positive, 10))).as(positive).contains(id);
+        }
+        for (String negative : Arrays.asList("L0rem", "QUIPSUM", "foo", "dolor ups", "'lorem dolor'", "'amet sit'")) {
+            assertThat(ids(searchEngine.find(negative, 10))).as(negative).doesNotContain(id);
+        }
+    }
+
+    @Test
+    public void testLimitAndOrder() {
+
+        for (int i = 0; i < 5; i++) {
+            NoteEntity note = new NoteEntity();
+            note.setText("Aloha number " + i);
+            repository.saveAndFlush(note);
+        }
+
+        List<Note> result = searchEngine.find("aloha", 3);
+        assertThat(result).hasSize(3);
+        assertThat(result.stream().map(Note::getText)).containsExactly("Aloha number 4", "Aloha number 3", "Aloha number 2");
+
+        NoteEntity note = new NoteEntity();
+        note.setText("number aloha");
+        repository.saveAndFlush(note);
+        assertThat(searchEngine.find("'aloha number'", 2).stream().map(Note::getText)).containsExactly("Aloha number 4", "Aloha number 3");
+    }
+
+    @Test
+    public void testContainsPhrases() {
+        String text = "Lorem ipsum, dolor sit amet";
+        assertThat(NativeFullTextNoteSearchEngine.containsPhrases(text, List.of(List.of("ipsum", "dolor")))).isTrue();
+        assertThat(NativeFullTextNoteSearchEngine.containsPhrases(text, List.of(List.of("lorem", "ipsum"), List.of("sit", "amet")))).isTrue();
+        assertThat(NativeFullTextNoteSearchEngine.containsPhrases(text, List.of(List.of("lorem", "dolor")))).isFalse();
+        assertThat(NativeFullTextNoteSearchEngine.containsPhrases(text, List.of(List.of("lorem", "ipsum"), List.of("amet", "sit")))).isFalse();
+    }
+}
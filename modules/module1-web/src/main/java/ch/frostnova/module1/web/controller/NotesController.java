@@ -1,14 +1,24 @@
 package ch.frostnova.module1.web.controller;
 
+import ch.frostnova.common.api.exception.ResourceVersionMismatchException;
+import ch.frostnova.common.api.model.BatchItemResult;
+import ch.frostnova.common.api.model.CursorPage;
 import ch.frostnova.module1.api.model.Note;
 import ch.frostnova.module1.api.service.NoteService;
+import ch.frostnova.module1.web.util.ETags;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -16,27 +26,41 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.NoSuchElementException;
 
 /**
  * Notes web service endpoint <p>
- * Full local path: <a href="https://localhost/api/notes">https://localhost/api/notes</a>
+ * Full local path: <a href="https://localhost/api/notes">https://localhost/api/notes</a> <p>
+ * Notes and lists of notes are returned with an ETag (see {@link ETags}), clients can send it in the
+ * <code>If-None-Match</code> header to get a <code>304 NOT MODIFIED</code> response if nothing changed,
+ * and in the <code>If-Match</code> header on updates to detect concurrent modifications.
  */
 @RestController
 @RequestMapping(path = "api/notes")
-@CrossOrigin(origins = "*", allowedHeaders = "origin, content-type, accept, authorization", methods = {RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT, RequestMethod.DELETE, RequestMethod.OPTIONS, RequestMethod.HEAD}, maxAge = 1209600)
+@CrossOrigin(origins = "*", allowedHeaders = "origin, content-type, accept, authorization, if-none-match, if-match", exposedHeaders = "etag", methods = {RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT, RequestMethod.DELETE, RequestMethod.OPTIONS, RequestMethod.HEAD}, maxAge = 1209600)
 public class NotesController {
 
+    private final static int DEFAULT_PAGE_SIZE = 100;
+
     @Autowired
     private NoteService noteService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
      * Lists all notes, or find by query (fulltext search)
      *
@@ -45,27 +69,80 @@ public class NotesController {
      */
     @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
     @Operation(summary = "Lists all notes, or find by query (fulltext search)")
+    @ApiResponses({@ApiResponse(responseCode = "200", description = "ok"), @ApiResponse(responseCode = "304", description = "not modified")})
+    public ResponseEntity<List<Note>> list(@Parameter(description = "optional query text (space or comma-separated tokens, single/double quoting supported") @RequestParam(value = "query", required = false) String query) {
+        List<Note> result = (query != null && !query.isBlank()) ? noteService.find(query) : noteService.list();
+        return ResponseEntity.ok().eTag(ETags.of(result)).body(result);
+    }
+
+    /**
+     * Lists notes page by page (latest created first). Pass the cursor of the previous page to fetch the next page.
+     *
+     * @param cursor optional cursor (as returned in the previous page), omit to fetch the first page
+     * @param limit  max. number of notes per page (1..1000), defaults to 100
+     * @return page of notes
+     */
+    @GetMapping(path = "/page", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Lists notes page by page (keyset pagination)")
+    @ApiResponses({@ApiResponse(responseCode = "200", description = "ok"), @ApiResponse(responseCode = "304", description = "not modified"), @ApiResponse(responseCode = "400", description = "bad request (invalid cursor or limit)")})
+    public ResponseEntity<CursorPage<Note>> page(@Parameter(description = "cursor of the page to fetch (as returned in the previous page), omit for the first page") @RequestParam(value = "cursor", required = false) String cursor,
+                                 @Parameter(description = "max. number of notes per page (1..1000)") @RequestParam(value = "limit", required = false) Integer limit) {
+        CursorPage<Note> result = noteService.list(cursor, limit != null ? limit : DEFAULT_PAGE_SIZE);
+        return ResponseEntity.ok().eTag(ETags.of(result.getItems(), String.valueOf(result.getNextCursor()))).body(result);
+    }
+
+    /**
+     * Exports all notes (oldest first) as newline-delimited JSON (one note per line). The notes are streamed to the
+     * client while being read from the database, so memory usage does not depend on the number of notes.
+     *
+     * @param response response to write to
+     * @throws IOException when writing to the response failed
+     */
+    @GetMapping(path = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Exports all notes as newline-delimited JSON")
     @ApiResponse(responseCode = "200", description = "ok")
-    public List<Note> list(@Parameter(description = "optional query text (space or comma-separated tokens, single/double quoting supported") @RequestParam(value = "query", required = false) String query) {
-        if (query != null && !query.isBlank()) {
-            return noteService.find(query);
+    public void export(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        ObjectWriter writer = objectMapper.writerFor(Note.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            noteService.export(note -> {
+                try {
+                    writer.writeValue(generator, note);
+                    generator.writeRaw('\n');
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
         }
-        return noteService.list();
     }
 
     /**
      * Get a record by id. If the record was not found, a NoSuchElementException will be thrown (resulting in a 404 NOT FOUND).
+     * When the client already has the current version (<code>If-None-Match</code> header matching the ETag),
+     * a <code>304 NOT MODIFIED</code> is returned, which only requires a version lookup instead of loading the record.
      *
-     * @param id id of the record
+     * @param id          id of the record
+     * @param ifNoneMatch optional ETag(s) of the representation the client already has
      * @return record
      */
     @GetMapping(path = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
     @Operation(summary = "Get a specific note")
-    @ApiResponses({@ApiResponse(responseCode = "200", description = "ok"), @ApiResponse(responseCode = "404", description = "not found")})
-    public Note get(@Parameter(description = "ID of the note to fetch", required = true) @PathVariable("id") String id) {
+    @ApiResponses({@ApiResponse(responseCode = "200", description = "ok"), @ApiResponse(responseCode = "304", description = "not modified"), @ApiResponse(responseCode = "404", description = "not found")})
+    public ResponseEntity<Note> get(@Parameter(description = "ID of the note to fetch", required = true) @PathVariable("id") String id,
+                                    @Parameter(description = "ETag of the note the client already has") @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            String etag = ETags.of(id, noteService.getVersion(id));
+            if (ETags.matches(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+        }
         Note result = noteService.get(id);
         if (result != null) {
-            return result;
+            return ResponseEntity.ok().eTag(ETags.of(result)).body(result);
         }
         throw new NoSuchElementException();
     }
@@ -86,18 +163,49 @@ public class NotesController {
     }
 
     /**
-     * Update a record
+     * Create or update several records in one transaction (records with id are updated, records without id created).
      *
-     * @param id   id of the record to update
-     * @param note new data to set
+     * @param notes records to create or update (up to 1000)
+     * @return results, in the same order as the submitted records
+     */
+    @PostMapping(path = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Create or update several notes at once")
+    @ApiResponses({@ApiResponse(responseCode = "200", description = "ok"), @ApiResponse(responseCode = "400", description = "bad request")})
+    public List<BatchItemResult<Note>> batch(@Parameter(description = "Notes to create (without id) or update (with id)", required = true) @RequestBody List<Note> notes) {
+        return noteService.saveAll(notes);
+    }
+
+    /**
+     * Update a record. When the <code>If-Match</code> header contains the ETag of the record, the record is only updated
+     * if it still has that version, otherwise a <code>412 PRECONDITION FAILED</code> is returned. The record is read
+     * first (from the second-level cache if cached, otherwise with an additional query), its version compared, and then
+     * updated with a versioned update statement (concurrent modifications in between are detected as well). The ETag of
+     * the updated record is returned.
+     *
+     * @param id      id of the record to update
+     * @param ifMatch optional ETag of the record version the update is based on
+     * @param note    new data to set
+     * @return response with the new ETag
      */
     @PutMapping(path = "/{id}", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    @ResponseStatus(HttpStatus.NO_CONTENT)
     @Operation(summary = "Update an existing note")
-    @ApiResponses({@ApiResponse(responseCode = "200", description = "ok"), @ApiResponse(responseCode = "400", description = "bad request"), @ApiResponse(responseCode = "404", description = "not found")})
-    public void update(@Parameter(description = "ID of the note to update", required = true) @PathVariable("id") String id, @Parameter(description = "Note data to update", required = true) @RequestBody Note note) {
+    @ApiResponses({@ApiResponse(responseCode = "204", description = "updated"), @ApiResponse(responseCode = "400", description = "bad request"), @ApiResponse(responseCode = "404", description = "not found"), @ApiResponse(responseCode = "412", description = "precondition failed (modified concurrently)")})
+    public ResponseEntity<Void> update(@Parameter(description = "ID of the note to update", required = true) @PathVariable("id") String id,
+                                       @Parameter(description = "ETag of the note version the update is based on") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                       @Parameter(description = "Note data to update", required = true) @RequestBody Note note) {
         note.setId(id);
-        noteService.save(note);
+        if (ifMatch == null || ifMatch.trim().equals(ETags.ANY)) {
+            Note saved = noteService.save(note);
+            return ResponseEntity.noContent().eTag(ETags.of(saved)).build();
+        }
+        long expectedVersion = ETags.version(ifMatch, id).orElseThrow(() ->
+                new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "If-Match does not contain an ETag of this note"));
+        try {
+            long version = noteService.update(note, expectedVersion);
+            return ResponseEntity.noContent().eTag(ETags.of(id, version)).build();
+        } catch (ResourceVersionMismatchException ex) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, ex.getMessage(), ex);
+        }
     }
 
     /**
@@ -111,4 +219,17 @@ public class NotesController {
     public void delete(@Parameter(description = "ID of the note to delete", required = true) @PathVariable("id") String id) {
         noteService.delete(id);
     }
+
+    /**
+     * Delete several records at once
+     *
+     * @param ids ids of the records (comma-separated, or the parameter repeated)
+     */
+    @DeleteMapping
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @Operation(summary = "Delete several notes at once")
+    @ApiResponses({@ApiResponse(responseCode = "204", description = "deleted"), @ApiResponse(responseCode = "400", description = "bad request")})
+    public void deleteAll(@Parameter(description = "IDs of the notes to delete", required = true) @RequestParam("ids") List<String> ids) {
+        noteService.deleteAll(ids);
+    }
 }
@@ -0,0 +1,117 @@
+package ch.frostnova.module1.web.util;
+
+import ch.frostnova.common.api.model.BaseResource;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.OptionalLong;
+
+/**
+ * Entity tags (ETags) for resources, derived from the resource id and version (which changes on each update): <p>
+ * <ul>
+ * <li>single resource: strong ETag <code>"id-version"</code>, which can be computed from a version lookup without
+ * loading the resource.</li>
+ * <li>list of resources: strong ETag with the MD5 hash over the ids and versions of all resources (in order), and
+ * additional state such as a pagination cursor.</li>
+ * </ul>
+ */
+public final class ETags {
+
+    public final static String ANY = "*";
+    private final static String WEAK_PREFIX = "W/";
+
+    private ETags() {
+
+    }
+
+    /**
+     * ETag of a resource.
+     *
+     * @param resource resource, required (with id and version)
+     * @return ETag (quoted)
+     */
+    public static String of(BaseResource<?> resource) {
+        return of(resource.getId(), resource.getVersion());
+    }
+
+    /**
+     * ETag of a resource with the given id and version.
+     *
+     * @param id      id, required
+     * @param version version
+     * @return ETag (quoted)
+     */
+    public static String of(Object id, long version) {
+        return "\"" + id + "-" + version + "\"";
+    }
+
+    /**
+     * Aggregate ETag of a list of resources.
+     *
+     * @param resources  resources, required
+     * @param additional additional state the representation depends on (such as the next page cursor), optional
+     * @return ETag (quoted)
+     */
+    public static String of(Collection<? extends BaseResource<?>> resources, String... additional) {
+        StringBuilder builder = new StringBuilder(resources.size() * 32);
+        for (BaseResource<?> resource : resources) {
+            builder.append(resource.getId()).append('-').append(resource.getVersion()).append('\n');
+        }
+        for (String value : additional) {
+            builder.append('+').append(value).append('\n');
+        }
+        return "\"" + DigestUtils.md5DigestAsHex(builder.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    /**
+     * Get the version from an <code>If-Match</code> header value, containing the (strong) ETag of the resource with
+     * the given id. Weak ETags and ETags of other resources are ignored.
+     *
+     * @param ifMatch header value (comma-separated ETags), required
+     * @param id      id of the resource, required
+     * @return version of the first matching ETag, empty if there is none
+     */
+    public static OptionalLong version(String ifMatch, Object id) {
+        String prefix = "\"" + id + "-";
+        for (String value : ifMatch.split(",")) {
+            String tag = value.trim();
+            if (tag.startsWith(prefix) && tag.endsWith("\"") && tag.length() > prefix.length() + 1) {
+                try {
+                    return OptionalLong.of(Long.parseLong(tag.substring(prefix.length(), tag.length() - 1)));
+                } catch (NumberFormatException ignored) {
+                    // not an ETag of this resource
+                }
+            }
+        }
+        return OptionalLong.empty();
+    }
+
+    /**
+     * Check if an <code>If-None-Match</code> header value matches the given ETag (weak comparison, as required for
+     * <code>If-None-Match</code>).
+     *
+     * @param ifNoneMatch header value (comma-separated ETags, or <code>*</code>), optional
+     * @param etag        current ETag (quoted), required
+     * @return true if the ETag matches (the client has the current representation), false otherwise
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        String currentTag = etag.startsWith(WEAK_PREFIX) ? etag.substring(WEAK_PREFIX.length()) : etag;
+        for (String value : ifNoneMatch.split(",")) {
+            String tag = value.trim();
+            if (tag.equals(ANY)) {
+                return true;
+            }
+            if (tag.startsWith(WEAK_PREFIX)) {
+                tag = tag.substring(WEAK_PREFIX.length());
+            }
+            if (tag.equals(currentTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
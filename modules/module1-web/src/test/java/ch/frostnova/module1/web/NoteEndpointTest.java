@@ -1,13 +1,18 @@
 package ch.frostnova.module1.web;
 
 
+import ch.frostnova.common.api.model.BatchItemResult;
+import ch.frostnova.common.api.model.CursorPage;
 import ch.frostnova.common.service.scope.TaskScope;
 import ch.frostnova.module1.api.model.Note;
 import ch.frostnova.module1.web.client.NoteClient;
+import ch.frostnova.module1.web.util.ETags;
 import ch.frostnova.spring.boot.platform.model.UserInfo;
 import ch.frostnova.spring.boot.platform.service.TokenAuthenticator;
 import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.ClientErrorException;
 import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.core.Response;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -25,6 +30,9 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
 
@@ -67,6 +75,7 @@ public class NoteEndpointTest {
         testToken = UUID.randomUUID().toString();
         UserInfo testUser = aUserInfo().tenant("test-tenant").login("test-user").role("A").role("B").role("C").build();
         when(tokenAuthenticator.authenticate(Mockito.eq(testToken))).thenReturn(testUser);
+        when(tokenAuthenticator.authenticate(Mockito.eq(testToken), Mockito.any())).thenReturn(testUser);
     }
 
     @AfterEach
@@ -126,6 +135,73 @@ public class NoteEndpointTest {
         }
     }
 
+    @Test
+    public void testConditionalGet() {
+        try (NoteClient noteClient = new NoteClient(baseURL, testToken)) {
+
+            Note note = noteClient.create(new Note("Version 1"));
+            assertThat(note.getVersion()).isNotNull();
+            String etag = ETags.of(note);
+
+            // unchanged
+            assertThat(noteClient.getIfModified(note.getId(), etag)).isNull();
+            assertThat(noteClient.getIfModified(note.getId(), "W/" + etag)).isNull();
+            assertThat(noteClient.getIfModified(note.getId(), "\"other\", " + etag)).isNull();
+
+            // changed
+            note.setText("Version 2");
+            noteClient.save(note);
+            Note updated = noteClient.getIfModified(note.getId(), etag);
+            assertThat(updated).isNotNull();
+            assertThat(updated.getText()).isEqualTo("Version 2");
+            assertThat(updated.getVersion()).isGreaterThan(note.getVersion());
+            assertThat(noteClient.getIfModified(note.getId(), ETags.of(updated))).isNull();
+
+            // list
+            Response response = noteClient.listIfModified("\"none\"");
+            assertThat(response.getStatus()).isEqualTo(200);
+            String listETag = response.getHeaderString("ETag");
+            response.close();
+            assertThat(listETag).isNotNull();
+            response = noteClient.listIfModified(listETag);
+            assertThat(response.getStatus()).isEqualTo(304);
+            response.close();
+
+            noteClient.delete(note.getId());
+            response = noteClient.listIfModified(listETag);
+            assertThat(response.getStatus()).isEqualTo(200);
+            response.close();
+            assertThatThrownBy(() -> noteClient.getIfModified(note.getId(), ETags.of(updated))).isInstanceOf(NotFoundException.class);
+        }
+    }
+
+    @Test
+    public void testConditionalUpdate() {
+        try (NoteClient noteClient = new NoteClient(baseURL, testToken)) {
+
+            Note note = noteClient.create(new Note("Version 1"));
+            String etag = ETags.of(note);
+
+            note.setText("Version 2");
+            String updatedETag = noteClient.save(note, etag);
+            assertThat(updatedETag).isNotEqualTo(etag);
+            Note updated = noteClient.get(note.getId());
+            assertThat(updated.getText()).isEqualTo("Version 2");
+            assertThat(ETags.of(updated)).isEqualTo(updatedETag);
+
+            // lost update prevented
+            note.setText("Version 2b");
+            assertThatThrownBy(() -> noteClient.save(note, etag))
+                    .isInstanceOfSatisfying(ClientErrorException.class, ex -> assertThat(ex.getResponse().getStatus()).isEqualTo(412));
+            assertThatThrownBy(() -> noteClient.save(note, "\"unrelated\""))
+                    .isInstanceOfSatisfying(ClientErrorException.class, ex -> assertThat(ex.getResponse().getStatus()).isEqualTo(412));
+            assertThat(noteClient.get(note.getId()).getText()).isEqualTo("Version 2");
+
+            noteClient.delete(note.getId());
+            assertThatThrownBy(() -> noteClient.save(note, updatedETag)).isInstanceOf(NotFoundException.class);
+        }
+    }
+
     @Test
     public void testFind() {
         try (NoteClient noteClient = new NoteClient(baseURL, testToken)) {
@@ -150,6 +226,79 @@ public class NoteEndpointTest {
         }
     }
 
+    @Test
+    public void testPage() {
+        try (NoteClient noteClient = new NoteClient(baseURL, testToken)) {
+
+            List<String> created = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                created.add(noteClient.create(new Note("Note " + i)).getId());
+            }
+
+            List<String> listed = new ArrayList<>();
+            String cursor = null;
+            do {
+                CursorPage<Note> page = noteClient.page(cursor, 2);
+                assertThat(page.getItems().size()).isBetween(1, 2);
+                page.getItems().forEach(n -> listed.add(n.getId()));
+                cursor = page.getNextCursor();
+            } while (cursor != null);
+
+            assertThat(listed).doesNotHaveDuplicates().containsAll(created);
+            assertThatThrownBy(() -> noteClient.page("not-a-cursor", 2)).isInstanceOf(BadRequestException.class);
+        }
+    }
+
+    @Test
+    public void testExport() {
+        try (NoteClient noteClient = new NoteClient(baseURL, testToken)) {
+
+            Note note = noteClient.create(new Note("Export " + UUID.randomUUID()));
+
+            List<Note> exported = noteClient.export();
+            assertThat(exported).doesNotHaveDuplicates().contains(note);
+            Note exportedNote = exported.get(exported.indexOf(note));
+            assertThat(exportedNote.getText()).isEqualTo(note.getText());
+        }
+    }
+
+    @Test
+    public void testBatch() {
+        try (NoteClient noteClient = new NoteClient(baseURL, testToken)) {
+
+            Note existing = noteClient.create(new Note("Aloha"));
+            existing.setText("Aloha, updated");
+
+            List<BatchItemResult<Note>> results = noteClient.batch(Arrays.asList(new Note("Batch 1"), existing, new Note("Batch 2")));
+            assertThat(results.stream().map(BatchItemResult::getStatus)).containsExactly(
+                    BatchItemResult.Status.CREATED, BatchItemResult.Status.UPDATED, BatchItemResult.Status.CREATED);
+
+            assertThat(noteClient.get(results.get(0).getResource().getId()).getText()).isEqualTo("Batch 1");
+            assertThat(noteClient.get(existing.getId()).getText()).isEqualTo("Aloha, updated");
+
+            assertThatThrownBy(() -> noteClient.batch(Arrays.asList(new Note("Batch 3"), new Note()))).isInstanceOf(BadRequestException.class);
+        }
+    }
+
+    @Test
+    public void testDeleteAll() {
+        try (NoteClient noteClient = new NoteClient(baseURL, testToken)) {
+
+            List<String> ids = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                ids.add(noteClient.create(new Note("Delete me " + i)).getId());
+            }
+
+            noteClient.deleteAll(ids);
+            // delete again - must not result in an exception
+            noteClient.deleteAll(ids);
+
+            for (String id : ids) {
+                assertThatThrownBy(() -> noteClient.get(id)).isInstanceOf(NotFoundException.class);
+            }
+        }
+    }
+
     @Test
     public void testValidation() {
         try (NoteClient noteClient = new NoteClient(baseURL, testToken)) {
@@ -1,15 +1,27 @@
 package ch.frostnova.module1.web.client;
 
+import ch.frostnova.common.api.model.BatchItemResult;
+import ch.frostnova.common.api.model.CursorPage;
 import ch.frostnova.module1.api.model.Note;
 import ch.frostnova.module1.web.config.ResponseExceptionMapper;
 import ch.frostnova.module1.web.config.RestClientConfig;
+import com.fasterxml.jackson.databind.ObjectReader;
 import jakarta.ws.rs.NotFoundException;
 import jakarta.ws.rs.client.Client;
 import jakarta.ws.rs.client.Entity;
 import jakarta.ws.rs.client.Invocation;
+import jakarta.ws.rs.client.WebTarget;
 import jakarta.ws.rs.core.GenericType;
 import jakarta.ws.rs.core.Response;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -54,6 +66,27 @@ public class NoteClient implements AutoCloseable {
         });
     }
 
+    /**
+     * List notes page by page
+     *
+     * @param cursor cursor of the page to fetch, or null for the first page
+     * @param limit  max. number of notes on the page
+     * @return page of notes
+     */
+    public CursorPage<Note> page(String cursor, int limit) {
+        WebTarget target = client
+                .target(baseURL + "/page")
+                .queryParam("limit", limit);
+        if (cursor != null) {
+            target = target.queryParam("cursor", cursor);
+        }
+        Invocation invocation = authenticated(target.request()).buildGet();
+
+        Response response = ResponseExceptionMapper.check(invocation.invoke(), 200);
+        return response.readEntity(new GenericType<>() {
+        });
+    }
+
     /**
      * Find notes
      *
@@ -71,6 +104,33 @@ public class NoteClient implements AutoCloseable {
         });
     }
 
+    /**
+     * Export all notes (newline-delimited JSON)
+     *
+     * @return list of exported notes (never null)
+     */
+    public List<Note> export() {
+        Invocation invocation = authenticated(client
+                .target(baseURL + "/export")
+                .request("application/x-ndjson"))
+                .buildGet();
+
+        Response response = ResponseExceptionMapper.check(invocation.invoke(), 200);
+        ObjectReader reader = RestClientConfig.objectMapper().readerFor(Note.class);
+        List<Note> result = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(response.readEntity(InputStream.class), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!line.isBlank()) {
+                    result.add(reader.readValue(line));
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return result;
+    }
+
     /**
      * Get a note by id. Throws a {@link NotFoundException} if the note wasn't found.
      *
@@ -88,6 +148,45 @@ public class NoteClient implements AutoCloseable {
         return response.readEntity(Note.class);
     }
 
+    /**
+     * Get a note by id, unless it was not modified. Throws a {@link NotFoundException} if the note wasn't found.
+     *
+     * @param id          id
+     * @param ifNoneMatch ETag of the note the client already has
+     * @return note, or null if the note was not modified
+     */
+    public Note getIfModified(String id, String ifNoneMatch) {
+
+        Invocation invocation = authenticated(client
+                .target(baseURL + "/" + id)
+                .request())
+                .header("If-None-Match", ifNoneMatch)
+                .buildGet();
+
+        Response response = ResponseExceptionMapper.check(invocation.invoke(), 200, 304);
+        if (response.getStatus() == 304) {
+            response.close();
+            return null;
+        }
+        return response.readEntity(Note.class);
+    }
+
+    /**
+     * List all notes, unless the list was not modified
+     *
+     * @param ifNoneMatch ETag of the list the client already has
+     * @return response (status 200 with the list, or 304 when not modified)
+     */
+    public Response listIfModified(String ifNoneMatch) {
+        Invocation invocation = authenticated(client
+                .target(baseURL)
+                .request())
+                .header("If-None-Match", ifNoneMatch)
+                .buildGet();
+
+        return invocation.invoke();
+    }
+
     /**
      * Create a new note with the provided data
      *
@@ -104,6 +203,23 @@ public class NoteClient implements AutoCloseable {
         return response.readEntity(Note.class);
     }
 
+    /**
+     * Create or update several notes at once (notes with id are updated, notes without id created)
+     *
+     * @param notes notes to create or update
+     * @return results, in the same order as the notes
+     */
+    public List<BatchItemResult<Note>> batch(List<Note> notes) {
+        Invocation invocation = authenticated(client
+                .target(baseURL + "/batch")
+                .request())
+                .buildPost(Entity.json(notes));
+
+        Response response = ResponseExceptionMapper.check(invocation.invoke(), 200);
+        return response.readEntity(new GenericType<>() {
+        });
+    }
+
     /**
      * Update a note
      *
@@ -123,6 +239,26 @@ public class NoteClient implements AutoCloseable {
         ResponseExceptionMapper.check(invocation.invoke(), 204);
     }
 
+    /**
+     * Update a note, if it was not modified since the client got the given ETag.
+     * Throws a {@link jakarta.ws.rs.ClientErrorException} with status 412 if the note was modified.
+     *
+     * @param note    note (whose id is required)
+     * @param ifMatch ETag of the note version the update is based on
+     * @return ETag of the updated note
+     */
+    public String save(Note note, String ifMatch) {
+
+        Invocation invocation = authenticated(client
+                .target(baseURL + "/" + note.getId())
+                .request())
+                .header("If-Match", ifMatch)
+                .buildPut(Entity.json(note));
+
+        Response response = ResponseExceptionMapper.check(invocation.invoke(), 204);
+        return response.getHeaderString("ETag");
+    }
+
     /**
      * Delete the note with the given id, if it exists (no error thrown otherwise).
      *
@@ -138,4 +274,20 @@ public class NoteClient implements AutoCloseable {
         ResponseExceptionMapper.check(invocation.invoke(), 204);
     }
 
+    /**
+     * Delete the notes with the given ids, if they exist (no error thrown otherwise).
+     *
+     * @param ids ids of the records
+     */
+    public void deleteAll(Collection<String> ids) {
+
+        Invocation invocation = authenticated(client
+                .target(baseURL)
+                .queryParam("ids", ids.toArray())
+                .request())
+                .buildDelete();
+
+        ResponseExceptionMapper.check(invocation.invoke(), 204);
+    }
+
 }
@@ -1,6 +1,7 @@
 package ch.frostnova.module1.web.config;
 
 import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.ClientErrorException;
 import jakarta.ws.rs.ForbiddenException;
 import jakarta.ws.rs.InternalServerErrorException;
 import jakarta.ws.rs.NotAllowedException;
@@ -64,6 +65,9 @@ public final class ResponseExceptionMapper {
             if (status == 405) {
                 throw new NotAllowedException(response.readEntity(String.class));
             }
+            if (status == 412) {
+                throw new ClientErrorException(response.readEntity(String.class), status);
+            }
             if (status == 500) {
                 throw new InternalServerErrorException(response.readEntity(String.class));
             }
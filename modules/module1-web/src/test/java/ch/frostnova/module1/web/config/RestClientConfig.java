@@ -44,7 +44,7 @@ public final class RestClientConfig {
         }
     }
 
-    private static ObjectMapper objectMapper() {
+    public static ObjectMapper objectMapper() {
         return new ObjectMapper()
                 .setAnnotationIntrospector(new JacksonAnnotationIntrospector())
                 .registerModule(new JavaTimeModule())
@@ -0,0 +1,75 @@
+package ch.frostnova.module1.web.util;
+
+import ch.frostnova.module1.api.model.Note;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test for {@link ETags}
+ */
+public class ETagsTest {
+
+    @Test
+    public void testResourceETag() {
+        Note note = note("abc", 3);
+        assertThat(ETags.of(note)).isEqualTo("\"abc-3\"");
+        assertThat(ETags.of("abc", 3)).isEqualTo(ETags.of(note));
+        assertThat(ETags.of(note("abc", 4))).isNotEqualTo(ETags.of(note));
+    }
+
+    @Test
+    public void testAggregateETag() {
+        Note a = note("a", 1);
+        Note b = note("b", 2);
+
+        String etag = ETags.of(Arrays.asList(a, b));
+        assertThat(etag).matches("\"[0-9a-f]{32}\"");
+        assertThat(ETags.of(Arrays.asList(note("a", 1), note("b", 2)))).isEqualTo(etag);
+
+        assertThat(ETags.of(Arrays.asList(b, a))).isNotEqualTo(etag);
+        assertThat(ETags.of(Arrays.asList(a, note("b", 3)))).isNotEqualTo(etag);
+        assertThat(ETags.of(Collections.singletonList(a))).isNotEqualTo(etag);
+        assertThat(ETags.of(Arrays.asList(a, b), "cursor")).isNotEqualTo(etag);
+        assertThat(ETags.of(Collections.emptyList())).isNotEqualTo(ETags.of(Collections.emptyList(), "cursor"));
+    }
+
+    @Test
+    public void testMatches() {
+        String etag = "\"abc-3\"";
+
+        assertThat(ETags.matches("\"abc-3\"", etag)).isTrue();
+        assertThat(ETags.matches("W/\"abc-3\"", etag)).isTrue();
+        assertThat(ETags.matches("\"xyz-1\", \"abc-3\"", etag)).isTrue();
+        assertThat(ETags.matches("*", etag)).isTrue();
+
+        assertThat(ETags.matches(null, etag)).isFalse();
+        assertThat(ETags.matches("", etag)).isFalse();
+        assertThat(ETags.matches("\"abc-2\"", etag)).isFalse();
+        assertThat(ETags.matches("abc-3", etag)).isFalse();
+        assertThat(ETags.matches("\"xyz-1\", W/\"abc-4\"", etag)).isFalse();
+    }
+
+    @Test
+    public void testVersion() {
+        assertThat(ETags.version("\"abc-3\"", "abc")).hasValue(3);
+        assertThat(ETags.version("\"xyz-1\", \"abc-42\"", "abc")).hasValue(42);
+
+        assertThat(ETags.version("W/\"abc-3\"", "abc")).isEmpty();
+        assertThat(ETags.version("\"xyz-3\"", "abc")).isEmpty();
+        assertThat(ETags.version("\"abc-\"", "abc")).isEmpty();
+        assertThat(ETags.version("\"abc-x\"", "abc")).isEmpty();
+        assertThat(ETags.version("abc-3", "abc")).isEmpty();
+        assertThat(ETags.version("*", "abc")).isEmpty();
+    }
+
+    private static Note note(String id, long version) {
+        Note note = new Note("text");
+        note.setId(id);
+        note.setVersion(version);
+        return note;
+    }
+}
@@ -0,0 +1,159 @@
+package ch.frostnova.spring.boot.platform.benchmark;
+
+import ch.frostnova.spring.boot.platform.PlatformConfig;
+import ch.frostnova.spring.boot.platform.config.SigningConfig.SigningKeyType;
+import ch.frostnova.spring.boot.platform.model.UserInfo;
+import ch.frostnova.spring.boot.platform.service.JWTSigningService;
+import ch.frostnova.spring.boot.platform.service.JWTVerificationService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * JWT sign and verify throughput of the JWT services, per signing key type (asymmetric RSA/EC and symmetric HMAC): <p>
+ * <ul>
+ * <li>sign: issue a token with the {@link JWTSigningService} (as the login endpoint does).</li>
+ * <li>verifyUncached: verify a token with the {@link JWTVerificationService} which is not cached (structural check,
+ * signature verification and caching of the verified token). The token cache of this service holds a single token,
+ * and the benchmark alternates between two tokens.</li>
+ * <li>verifyCached: verify an already verified token (lookup by token digest).</li>
+ * </ul>
+ * The services run in a Spring context of the {@link PlatformConfig}, with a generated signing key.
+ * Run with <code>gradlew :platform:jmh</code> (results in <code>platform/build/results/jmh</code>).
+ */
+@State(Scope.Benchmark)
+public class JWTBenchmark {
+
+    private final static String SIGNING_PROPERTIES = "ch.frostnova.platform.security.signing.";
+
+    @Param({"RSA", "EC", "HS256", "HS512"})
+    private SigningKeyType keyType;
+
+    private Path keyDirectory;
+    private final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+    private JWTSigningService signingService;
+    private JWTVerificationService verificationService;
+    private JWTVerificationService uncachedVerificationService;
+    private UserInfo userInfo;
+    private String token;
+    private String[] uncachedTokens;
+    private int next;
+
+    private static String pem(String type, byte[] encoded) {
+        return "-----BEGIN " + type + "-----\n"
+                + Base64.getMimeEncoder().encodeToString(encoded)
+                + "\n-----END " + type + "-----\n";
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        keyDirectory = Files.createTempDirectory("jwt-benchmark");
+        List<String> keyProperties = new ArrayList<>();
+        keyProperties.add(SIGNING_PROPERTIES + "key-type=" + keyType);
+        if (keyType.isSymmetric()) {
+            byte[] secret = new byte[keyType.getMinSecretLength()];
+            new SecureRandom().nextBytes(secret);
+            Path secretFile = Files.writeString(keyDirectory.resolve("jwt.secret"), Base64.getEncoder().encodeToString(secret));
+            keyProperties.add(SIGNING_PROPERTIES + "secret=" + secretFile);
+        } else {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance(keyType.getKeyType());
+            if (keyType == SigningKeyType.EC) {
+                generator.initialize(new ECGenParameterSpec("secp256r1"));
+            } else {
+                generator.initialize(2048);
+            }
+            KeyPair keyPair = generator.generateKeyPair();
+            Path privateKey = Files.writeString(keyDirectory.resolve("jwt.pem"), pem("PRIVATE KEY", keyPair.getPrivate().getEncoded()), StandardCharsets.ISO_8859_1);
+            Path publicKey = Files.writeString(keyDirectory.resolve("jwt.pub.pem"), pem("PUBLIC KEY", keyPair.getPublic().getEncoded()), StandardCharsets.ISO_8859_1);
+            keyProperties.add(SIGNING_PROPERTIES + "private-key=" + privateKey);
+            keyProperties.add(SIGNING_PROPERTIES + "public-key=" + publicKey);
+        }
+
+        ConfigurableApplicationContext context = start(keyProperties, 10000);
+        signingService = context.getBean(JWTSigningService.class);
+        verificationService = context.getBean(JWTVerificationService.class);
+        uncachedVerificationService = start(keyProperties, 1).getBean(JWTVerificationService.class);
+
+        userInfo = UserInfo.aUserInfo()
+                .tenant("test-tenant")
+                .login("test-user")
+                .role("RoleA")
+                .role("RoleB")
+                .role("RoleC")
+                .additionalClaim("loginDeviceId", "device-001")
+                .build();
+        token = sign();
+        verificationService.verify(token);
+        uncachedTokens = new String[]{sign(), sign()};
+    }
+
+    private ConfigurableApplicationContext start(List<String> keyProperties, int cacheSize) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(BenchmarkConfig.class)
+                .web(WebApplicationType.NONE)
+                .properties(keyProperties.toArray(new String[0]))
+                .properties("spring.main.lazy-initialization=true",
+                        "spring.main.banner-mode=off",
+                        "ch.frostnova.platform.security.jwt-cache.max-size=" + cacheSize)
+                .run();
+        contexts.add(context);
+        return context;
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        contexts.forEach(ConfigurableApplicationContext::close);
+        contexts.clear();
+        try (Stream<Path> files = Files.list(keyDirectory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(keyDirectory);
+    }
+
+    @Benchmark
+    public String sign() {
+        return signingService.createJWT(userInfo, OffsetDateTime.now(), Duration.ofHours(1));
+    }
+
+    @Benchmark
+    public Jws<Claims> verifyUncached() {
+        return uncachedVerificationService.verify(uncachedTokens[next++ & 1]);
+    }
+
+    @Benchmark
+    public Jws<Claims> verifyCached() {
+        return verificationService.verify(token);
+    }
+
+    @Configuration
+    @EnableConfigurationProperties
+    @Import(PlatformConfig.class)
+    static class BenchmarkConfig {
+    }
+}
@@ -0,0 +1,113 @@
+package ch.frostnova.spring.boot.platform.aspect;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Aggregated call tree profile over a time range, see {@link CallTreeProfiler}.
+ */
+public class CallTreeProfile {
+
+    private final Instant from;
+    private final Instant to;
+    private final long trees;
+    private final long droppedPaths;
+    private final List<PathStatistics> paths;
+
+    public CallTreeProfile(Instant from, Instant to, long trees, long droppedPaths, List<PathStatistics> paths) {
+        this.from = from;
+        this.to = to;
+        this.trees = trees;
+        this.droppedPaths = droppedPaths;
+        this.paths = Collections.unmodifiableList(paths);
+    }
+
+    public Instant getFrom() {
+        return from;
+    }
+
+    public Instant getTo() {
+        return to;
+    }
+
+    /**
+     * Number of aggregated invocation trees (root invocations).
+     *
+     * @return number of trees
+     */
+    public long getTrees() {
+        return trees;
+    }
+
+    /**
+     * Number of invocations not aggregated, because the max. number of distinct call paths was exceeded.
+     *
+     * @return number of dropped invocations
+     */
+    public long getDroppedPaths() {
+        return droppedPaths;
+    }
+
+    public List<PathStatistics> getPaths() {
+        return paths;
+    }
+
+    /**
+     * Format the profile as collapsed stacks (one line per call path: semicolon-separated frames, followed by a space
+     * and the value), as loaded by flame graph tools (e.g. <code>flamegraph.pl</code> or speedscope). Paths with a
+     * value of zero are omitted.
+     *
+     * @param calls value to use: number of calls if true, self time in microseconds otherwise
+     * @return collapsed stacks
+     */
+    public String toCollapsedStacks(boolean calls) {
+        StringBuilder builder = new StringBuilder(paths.size() * 128);
+        for (PathStatistics path : paths) {
+            long value = calls ? path.calls : path.selfTimeNs / 1000;
+            if (value > 0) {
+                builder.append(path.path).append(' ').append(value).append('\n');
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Statistics of a call path.
+     */
+    public static class PathStatistics {
+
+        private final String path;
+        private final long calls;
+        private final long totalTimeNs;
+        private final long selfTimeNs;
+
+        public PathStatistics(String path, long calls, long totalTimeNs, long selfTimeNs) {
+            this.path = path;
+            this.calls = calls;
+            this.totalTimeNs = totalTimeNs;
+            this.selfTimeNs = selfTimeNs;
+        }
+
+        /**
+         * Call path: semicolon-separated invocations, from the root invocation down to the nested invocation.
+         *
+         * @return path
+         */
+        public String getPath() {
+            return path;
+        }
+
+        public long getCalls() {
+            return calls;
+        }
+
+        public double getTotalTimeMs() {
+            return totalTimeNs * 0.000001;
+        }
+
+        public double getSelfTimeMs() {
+            return selfTimeNs * 0.000001;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package ch.frostnova.spring.boot.platform.aspect;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.context.annotation.Profile;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Actuator endpoint for the {@link CallTreeProfiler} (with the <code>performance-logging</code> profile):
+ * <ul>
+ * <li><code>GET /profile?windows=n</code>: profile as JSON (call paths with number of calls, total and self time),
+ * merged over the last <code>n</code> windows (default: all)</li>
+ * <li><code>GET /profile/collapsed?windows=n&amp;value=self|calls</code>: profile as collapsed stacks (text), to be
+ * loaded into flame graph tools, with the self time in microseconds (default) or the number of calls as value</li>
+ * <li><code>POST /profile</code> with <code>{"window": "1m", "windows": 15}</code>: change the window duration and
+ * number of windows (discards the current profile)</li>
+ * <li><code>DELETE /profile</code>: discard the current profile</li>
+ * </ul>
+ */
+@Component
+@Profile("performance-logging")
+@Endpoint(id = "profile")
+public class CallTreeProfileEndpoint {
+
+    private final static String FORMAT_COLLAPSED = "collapsed";
+    private final static String VALUE_CALLS = "calls";
+    private final static String VALUE_SELF = "self";
+
+    @Autowired
+    private CallTreeProfiler profiler;
+
+    @ReadOperation
+    public CallTreeProfile profile(@Nullable Integer windows) {
+        return profiler.getProfile(windows);
+    }
+
+    @ReadOperation(produces = "text/plain")
+    public String collapsed(@Selector String format, @Nullable Integer windows, @Nullable String value) {
+        if (!FORMAT_COLLAPSED.equals(format)) {
+            return null;
+        }
+        if (value != null && !VALUE_CALLS.equals(value) && !VALUE_SELF.equals(value)) {
+            throw new IllegalArgumentException("value must be '" + VALUE_SELF + "' or '" + VALUE_CALLS + "'");
+        }
+        return profiler.getProfile(windows).toCollapsedStacks(VALUE_CALLS.equals(value));
+    }
+
+    @WriteOperation
+    public void configure(@Nullable Duration window, @Nullable Integer windows) {
+        profiler.configure(window != null ? window : profiler.getWindow(), windows != null ? windows : profiler.getWindowCount());
+    }
+
+    @DeleteOperation
+    public void reset() {
+        profiler.reset();
+    }
+}
@@ -0,0 +1,219 @@
+package ch.frostnova.spring.boot.platform.aspect;
+
+import ch.frostnova.spring.boot.platform.aspect.PerformanceLoggingAspect.PerformanceLoggingContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Application-level profiler: aggregates the invocation trees captured by the {@link PerformanceLoggingAspect} into a
+ * call tree per time window, with the number of calls, total and self time per call path (root invocation down to the
+ * nested invocation, e.g. <code>NoteController.get(..);NoteServiceImpl.get(..);NoteRepository.findById(..)</code>). <p>
+ * The windows roll over (default: 15 windows of 1 minute), so the profile always covers the recent past. Trees are
+ * aggregated on the background emitter thread, the request threads only pay for the capture. In the
+ * <code>sampling</code> mode, only the sampled trees are aggregated. <p>
+ * Exposed as collapsed stacks (as loaded by flame graph tools) by the {@link CallTreeProfileEndpoint}.
+ */
+@Component
+@Lazy(false)
+@Profile("performance-logging")
+public class CallTreeProfiler {
+
+    /**
+     * Max. number of distinct call paths per window, further paths are counted as dropped.
+     */
+    private final static int MAX_PATHS_PER_WINDOW = 10_000;
+    private final static int MAX_WINDOWS = 1440;
+
+    private final Clock clock;
+    private final Consumer<InvocationTree> listener = this::add;
+
+    @Value("${ch.frostnova.platform.performance-logging.profile.window:1m}")
+    private Duration window = Duration.ofMinutes(1);
+
+    @Value("${ch.frostnova.platform.performance-logging.profile.windows:15}")
+    private int windowCount = 15;
+
+    private Window[] windows;
+    private int currentIndex;
+
+    public CallTreeProfiler() {
+        this(Clock.systemUTC());
+    }
+
+    CallTreeProfiler(Clock clock) {
+        this.clock = Objects.requireNonNull(clock, "clock is required");
+        reset();
+    }
+
+    @PostConstruct
+    public void init() {
+        configure(window, windowCount);
+        PerformanceLoggingContext.addTreeListener(listener);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        PerformanceLoggingContext.removeTreeListener(listener);
+    }
+
+    /**
+     * Change the window duration and number of windows. Discards the current profile.
+     *
+     * @param window      duration of a window, required (at least 1 second)
+     * @param windowCount number of windows (1..1440)
+     */
+    public synchronized void configure(Duration window, int windowCount) {
+        if (window == null || window.compareTo(Duration.ofSeconds(1)) < 0) {
+            throw new IllegalArgumentException("window must be at least 1 second");
+        }
+        if (windowCount < 1 || windowCount > MAX_WINDOWS) {
+            throw new IllegalArgumentException("windowCount must be between 1 and " + MAX_WINDOWS);
+        }
+        this.window = window;
+        this.windowCount = windowCount;
+        reset();
+    }
+
+    /**
+     * Discard the current profile.
+     */
+    public synchronized void reset() {
+        windows = new Window[windowCount];
+        currentIndex = 0;
+        windows[0] = new Window(clock.millis());
+    }
+
+    public synchronized Duration getWindow() {
+        return window;
+    }
+
+    public synchronized int getWindowCount() {
+        return windowCount;
+    }
+
+    /**
+     * Add a completed invocation tree to the current window.
+     *
+     * @param tree tree, required
+     */
+    synchronized void add(InvocationTree tree) {
+        Window current = currentWindow(clock.millis());
+        current.trees++;
+        String[] pathByLevel = new String[8];
+        for (int i = 0; i < tree.size(); i++) {
+            int level = tree.getLevel(i);
+            if (level >= pathByLevel.length) {
+                pathByLevel = Arrays.copyOf(pathByLevel, Math.max(pathByLevel.length * 2, level + 1));
+            }
+            String frame = tree.getInvocation(i).replace(';', ',');
+            String path = level == 0 ? frame : pathByLevel[level - 1] + ';' + frame;
+            pathByLevel[level] = path;
+            current.record(path, tree.getElapsedTimeNs(i), tree.getSelfTimeNs(i));
+        }
+    }
+
+    /**
+     * Get the profile, merged over the most recent windows (including the current one).
+     *
+     * @param lastWindows number of windows to merge, or all windows if null
+     * @return profile
+     */
+    public synchronized CallTreeProfile getProfile(Integer lastWindows) {
+        long now = clock.millis();
+        Window current = currentWindow(now);
+        int count = lastWindows != null ? Math.max(1, Math.min(lastWindows, windowCount)) : windowCount;
+
+        Map<String, long[]> merged = new HashMap<>();
+        long trees = 0;
+        long droppedPaths = 0;
+        long from = current.startTimeMillis;
+        for (int n = 0; n < count; n++) {
+            Window past = windows[Math.floorMod(currentIndex - n, windowCount)];
+            if (past == null) {
+                continue;
+            }
+            from = Math.min(from, past.startTimeMillis);
+            trees += past.trees;
+            droppedPaths += past.droppedPaths;
+            past.statistics.forEach((path, stats) -> {
+                long[] total = merged.computeIfAbsent(path, p -> new long[3]);
+                for (int i = 0; i < 3; i++) {
+                    total[i] += stats[i];
+                }
+            });
+        }
+
+        List<CallTreeProfile.PathStatistics> paths = new ArrayList<>(merged.size());
+        merged.forEach((path, stats) -> paths.add(new CallTreeProfile.PathStatistics(path, stats[0], stats[1], stats[2])));
+        paths.sort(Comparator.comparing(CallTreeProfile.PathStatistics::getPath));
+        return new CallTreeProfile(Instant.ofEpochMilli(from), Instant.ofEpochMilli(now), trees, droppedPaths, paths);
+    }
+
+    /**
+     * Get the window for the given point in time, rolling over to new windows as required.
+     */
+    private Window currentWindow(long now) {
+        Window current = windows[currentIndex];
+        long windowMillis = window.toMillis();
+        long elapsedWindows = (now - current.startTimeMillis) / windowMillis;
+        if (elapsedWindows <= 0) {
+            return current;
+        }
+        for (long n = 0; n < Math.min(elapsedWindows, windowCount); n++) {
+            currentIndex = (currentIndex + 1) % windowCount;
+            windows[currentIndex] = null;
+        }
+        current = new Window(current.startTimeMillis + elapsedWindows * windowMillis);
+        windows[currentIndex] = current;
+        return current;
+    }
+
+    /**
+     * Aggregated call paths of one time window.
+     */
+    private static class Window {
+
+        private final long startTimeMillis;
+        /**
+         * Statistics by call path: number of calls, total time (ns), self time (ns).
+         */
+        private final Map<String, long[]> statistics = new HashMap<>();
+        private long trees;
+        private long droppedPaths;
+
+        Window(long startTimeMillis) {
+            this.startTimeMillis = startTimeMillis;
+        }
+
+        void record(String path, long elapsedTimeNs, long selfTimeNs) {
+            long[] stats = statistics.get(path);
+            if (stats == null) {
+                if (statistics.size() >= MAX_PATHS_PER_WINDOW) {
+                    droppedPaths++;
+                    return;
+                }
+                stats = new long[3];
+                statistics.put(path, stats);
+            }
+            stats[0]++;
+            stats[1] += elapsedTimeNs;
+            stats[2] += selfTimeNs;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package ch.frostnova.spring.boot.platform.aspect;
+
+/**
+ * Immutable snapshot of a completed invocation tree (raw timestamps, in invocation order), handed over to the
+ * {@link PerformanceLogEmitter} for formatting (if it is to be logged) and aggregation (e.g. by the
+ * {@link CallTreeProfiler}).
+ */
+final class InvocationTree {
+
+    private final static String SYMBOL_SPACE = " ";
+    private final static String SYMBOL_INDENTATION = ""; // unicode alternative: "\u2937"
+    private final static String SYMBOL_RIGHT_ARROW = "->"; // unicode alternative: "\u2192"
+
+    /**
+     * Threshold (in nanoseconds) under which calls are no longer reported in detail.
+     */
+    private final static long DETAIL_THRESHOLD_NS = 1_000_000; // 1 ms
+
+    private final boolean logged;
+    private final int size;
+    private final String[] invocations;
+    private final int[] levels;
+    private final long[] startTimesNs;
+    private final long[] endTimesNs;
+    private final long[] nestedTimesNs;
+    private final String[] results;
+    /**
+     * Thread names, set for invocations which were the first on their thread (root invocation, and nested invocations
+     * executed in parallel on other threads), null otherwise.
+     */
+    private final String[] threads;
+    /**
+     * JDBC statements, JDBC time and rows fetched, including nested invocations.
+     */
+    private final int[] statementCounts;
+    private final long[] jdbcTimesNs;
+    private final long[] rowCounts;
+    /**
+     * Tenant and user (MDC values) of the thread which executed the root invocation, if any.
+     */
+    private final String tenant;
+    private final String user;
+
+    /**
+     * Create a snapshot, taking ownership of the given arrays (which must no longer be modified).
+     */
+    InvocationTree(boolean logged, int size, String[] invocations, int[] levels, long[] startTimesNs,
+                   long[] endTimesNs, long[] nestedTimesNs, String[] results, String[] threads,
+                   int[] statementCounts, long[] jdbcTimesNs, long[] rowCounts, String tenant, String user) {
+        this.logged = logged;
+        this.size = size;
+        this.invocations = invocations;
+        this.levels = levels;
+        this.startTimesNs = startTimesNs;
+        this.endTimesNs = endTimesNs;
+        this.nestedTimesNs = nestedTimesNs;
+        this.results = results;
+        this.threads = threads;
+        this.statementCounts = statementCounts;
+        this.jdbcTimesNs = jdbcTimesNs;
+        this.rowCounts = rowCounts;
+        this.tenant = tenant;
+        this.user = user;
+    }
+
+    private static void appendTimeMs(StringBuilder builder, long timeNs) {
+        long hundredths = (timeNs + 5_000) / 10_000;
+        long fraction = hundredths % 100;
+        builder.append(hundredths / 100).append('.');
+        if (fraction < 10) {
+            builder.append('0');
+        }
+        builder.append(fraction).append(" ms");
+    }
+
+    /**
+     * Whether the tree is to be logged (otherwise it is only aggregated).
+     */
+    boolean isLogged() {
+        return logged;
+    }
+
+    /**
+     * Same tree, with a different decision whether it is to be logged.
+     */
+    InvocationTree withLogged(boolean logged) {
+        return new InvocationTree(logged, size, invocations, levels, startTimesNs, endTimesNs, nestedTimesNs, results, threads,
+                statementCounts, jdbcTimesNs, rowCounts, tenant, user);
+    }
+
+    String getTenant() {
+        return tenant;
+    }
+
+    String getUser() {
+        return user;
+    }
+
+    /**
+     * Number of invocations in the tree.
+     */
+    int size() {
+        return size;
+    }
+
+    String getInvocation(int index) {
+        return invocations[index];
+    }
+
+    int getLevel(int index) {
+        return levels[index];
+    }
+
+    long getStartTimeNs(int index) {
+        return startTimesNs[index];
+    }
+
+    long getEndTimeNs(int index) {
+        return endTimesNs[index];
+    }
+
+    long getNestedTimeNs(int index) {
+        return nestedTimesNs[index];
+    }
+
+    String getResult(int index) {
+        return results[index];
+    }
+
+    String getThread(int index) {
+        return threads[index];
+    }
+
+    int getStatementCount(int index) {
+        return statementCounts[index];
+    }
+
+    long getJdbcTimeNs(int index) {
+        return jdbcTimesNs[index];
+    }
+
+    long getRowCount(int index) {
+        return rowCounts[index];
+    }
+
+    long getElapsedTimeNs(int index) {
+        return endTimesNs[index] - startTimesNs[index];
+    }
+
+    long getSelfTimeNs(int index) {
+        return getElapsedTimeNs(index) - nestedTimesNs[index];
+    }
+
+    /**
+     * Format the invocation tree: merge consecutive invocations of the same leaf, and skip the details of
+     * fast invocations. Invocations executed in parallel on other threads are marked as <code>[parallel]</code>,
+     * invocations which executed JDBC statements show the number of statements, JDBC time and rows fetched.
+     *
+     * @return formatted tree (one line per invocation)
+     */
+    String format() {
+        StringBuilder builder = new StringBuilder(size * 64);
+        int skipFromLevel = -1;
+        int i = 0;
+        while (i < size) {
+            int level = levels[i];
+            long startTimeNs = startTimesNs[i];
+            long endTimeNs = endTimesNs[i];
+            int mergeCount = 1;
+            int statementCount = statementCounts[i];
+            long jdbcTimeNs = jdbcTimesNs[i];
+            long rowCount = rowCounts[i];
+            int next = i + 1;
+            while (next < size && nestedTimesNs[i] == 0 && nestedTimesNs[next] == 0 && levels[next] == level
+                    && invocations[next].equals(invocations[i]) && (threads[next] == null) == (threads[i] == null)) {
+                startTimeNs = Math.min(startTimeNs, startTimesNs[next]);
+                endTimeNs = Math.max(endTimeNs, endTimesNs[next]);
+                statementCount += statementCounts[next];
+                jdbcTimeNs += jdbcTimesNs[next];
+                rowCount += rowCounts[next];
+                mergeCount++;
+                next++;
+            }
+            long elapsedTimeNs = endTimeNs - startTimeNs;
+
+            if (skipFromLevel >= 0) {
+                if (level > skipFromLevel) {
+                    i = next;
+                    continue;
+                }
+                skipFromLevel = -1;
+            }
+            if (elapsedTimeNs < DETAIL_THRESHOLD_NS && level > 1) {
+                skipFromLevel = level;
+            }
+            if (builder.length() > 0) {
+                builder.append('\n');
+            }
+            appendLine(builder, i, mergeCount, elapsedTimeNs);
+            if (statementCount > 0) {
+                builder.append(", sql: ").append(statementCount).append(statementCount == 1 ? " statement, " : " statements, ");
+                appendTimeMs(builder, jdbcTimeNs);
+                builder.append(", ").append(rowCount).append(rowCount == 1 ? " row" : " rows");
+            }
+            if (i == 0 && threads[i] != null) {
+                builder.append(" [").append(threads[i]).append(']');
+            } else if (threads[i] != null) {
+                builder.append(mergeCount > 1 ? " [parallel]" : " [parallel: " + threads[i] + "]");
+            }
+            i = next;
+        }
+        return builder.toString();
+    }
+
+    private void appendLine(StringBuilder builder, int index, int mergeCount, long elapsedTimeNs) {
+        int level = levels[index];
+        if (level > 0) {
+            for (int l = 0; l < level; l++) {
+                builder.append("  ");
+            }
+            builder.append(SYMBOL_INDENTATION);
+            builder.append(SYMBOL_SPACE);
+        }
+        if (mergeCount > 1) {
+            builder.append(mergeCount);
+            builder.append("x ");
+        }
+        builder.append(invocations[index]);
+        builder.append(SYMBOL_SPACE);
+        builder.append(SYMBOL_RIGHT_ARROW);
+        builder.append(SYMBOL_SPACE);
+        if (results[index] != null) {
+            builder.append(results[index]);
+            builder.append(", ");
+        }
+        appendTimeMs(builder, elapsedTimeNs);
+        if (nestedTimesNs[index] > 0) {
+            builder.append(", self: ");
+            appendTimeMs(builder, elapsedTimeNs - nestedTimesNs[index]);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return format();
+    }
+}
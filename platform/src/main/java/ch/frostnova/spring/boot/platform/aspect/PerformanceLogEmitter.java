@@ -0,0 +1,215 @@
+package ch.frostnova.spring.boot.platform.aspect;
+
+import ch.frostnova.spring.boot.platform.util.RingBuffer;
+import ch.frostnova.spring.boot.platform.web.filter.BearerTokenAuthenticationFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Formats and logs completed invocation trees on a background (daemon) thread, so request threads only pay for
+ * handing over the raw snapshot. Trees are passed through a bounded {@link RingBuffer}: when the emitter cannot keep
+ * up, trees are dropped (and counted) instead of slowing down the request threads. Dropped trees are reported
+ * periodically with a warning. <p>
+ * Registered tree listeners (such as the {@link CallTreeProfiler}) are notified of every tree on the same thread, so
+ * they can aggregate trees without synchronizing with the request threads. Trees which are only submitted for the tree
+ * listeners (not to be logged) are passed through a separate buffer, and emitted with lower priority: they can never
+ * crowd out trees to be logged. <p>
+ * The background thread is started on the first submitted tree, and parks while there are no trees to emit (woken up
+ * by the next submitted tree). The tenant and user of the request are restored in the MDC of the background thread
+ * while a tree is logged, so the log pattern can include them as for any other log entry.
+ */
+class PerformanceLogEmitter implements Runnable {
+
+    private final static long STOP_TIMEOUT_MS = 1000;
+
+    private final Logger log = LoggerFactory.getLogger(PerformanceLoggingAspect.class);
+
+    private final String threadName;
+    private final RingBuffer<InvocationTree> buffer;
+    private final RingBuffer<InvocationTree> unloggedBuffer;
+    private final Consumer<String> sink;
+    private final List<Consumer<InvocationTree>> treeListeners = new CopyOnWriteArrayList<>();
+    private volatile Thread thread;
+    private volatile boolean parked;
+    private long reportedDropCount;
+    private long reportedUnloggedDropCount;
+
+    /**
+     * Create an emitter.
+     *
+     * @param threadName name of the background thread, required
+     * @param capacity   max. number of trees waiting to be emitted (each for trees to be logged, and trees only for
+     *                   the tree listeners)
+     * @param sink       receiver of the formatted trees, required
+     */
+    PerformanceLogEmitter(String threadName, int capacity, Consumer<String> sink) {
+        this.threadName = Objects.requireNonNull(threadName, "threadName is required");
+        this.buffer = new RingBuffer<>(capacity);
+        this.unloggedBuffer = new RingBuffer<>(capacity);
+        this.sink = Objects.requireNonNull(sink, "sink is required");
+    }
+
+    /**
+     * Submit a tree for emission, without blocking.
+     *
+     * @param tree tree, required
+     * @return true if submitted, false if dropped because the buffer is full
+     */
+    boolean submit(InvocationTree tree) {
+        if (thread == null) {
+            start();
+        }
+        boolean submitted = (tree.isLogged() ? buffer : unloggedBuffer).offer(tree);
+        if (parked) {
+            parked = false;
+            LockSupport.unpark(thread);
+        }
+        return submitted;
+    }
+
+    /**
+     * Register a listener, which is notified of every submitted tree (on the emitter thread).
+     *
+     * @param listener listener, required
+     */
+    void addTreeListener(Consumer<InvocationTree> listener) {
+        treeListeners.add(Objects.requireNonNull(listener, "listener is required"));
+    }
+
+    /**
+     * Unregister a tree listener.
+     *
+     * @param listener listener
+     */
+    void removeTreeListener(Consumer<InvocationTree> listener) {
+        treeListeners.remove(listener);
+    }
+
+    /**
+     * Whether there are tree listeners, which need all trees (not just the logged ones).
+     *
+     * @return true if there are tree listeners
+     */
+    boolean hasTreeListeners() {
+        return !treeListeners.isEmpty();
+    }
+
+    /**
+     * Number of trees dropped so far.
+     *
+     * @return number of dropped trees
+     */
+    long getDropCount() {
+        return buffer.getDropCount() + unloggedBuffer.getDropCount();
+    }
+
+    /**
+     * Number of trees waiting to be emitted.
+     *
+     * @return number of pending trees
+     */
+    int getPendingCount() {
+        return buffer.size() + unloggedBuffer.size();
+    }
+
+    private synchronized void start() {
+        if (thread == null) {
+            Thread emitterThread = new Thread(this, threadName);
+            emitterThread.setDaemon(true);
+            thread = emitterThread;
+            emitterThread.start();
+        }
+    }
+
+    /**
+     * Stop the background thread, after emitting the pending trees (waits at most one second). The thread is started
+     * again when the next tree is submitted.
+     */
+    synchronized void stop() {
+        Thread emitterThread = thread;
+        if (emitterThread == null) {
+            return;
+        }
+        thread = null;
+        LockSupport.unpark(emitterThread);
+        try {
+            emitterThread.join(STOP_TIMEOUT_MS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        Thread current = Thread.currentThread();
+        while (thread == current && !current.isInterrupted()) {
+            InvocationTree tree = poll();
+            if (tree != null) {
+                emit(tree);
+                continue;
+            }
+            reportDrops();
+            // announce parking before checking the buffer again, so a tree submitted in between unparks this thread
+            parked = true;
+            if (thread == current && getPendingCount() == 0) {
+                LockSupport.park(this);
+            }
+            parked = false;
+        }
+        InvocationTree tree;
+        while ((tree = poll()) != null) {
+            emit(tree);
+        }
+        reportDrops();
+    }
+
+    /**
+     * Next tree to emit, trees to be logged first.
+     */
+    private InvocationTree poll() {
+        InvocationTree tree = buffer.poll();
+        return tree != null ? tree : unloggedBuffer.poll();
+    }
+
+    private void emit(InvocationTree tree) {
+        try {
+            if (tree.isLogged()) {
+                if (tree.getUser() != null) {
+                    MDC.put(BearerTokenAuthenticationFilter.MDC_KEY_TENANT, tree.getTenant());
+                    MDC.put(BearerTokenAuthenticationFilter.MDC_KEY_USER, tree.getUser());
+                }
+                try {
+                    sink.accept(tree.format());
+                } finally {
+                    MDC.remove(BearerTokenAuthenticationFilter.MDC_KEY_TENANT);
+                    MDC.remove(BearerTokenAuthenticationFilter.MDC_KEY_USER);
+                }
+            }
+            for (Consumer<InvocationTree> listener : treeListeners) {
+                listener.accept(tree);
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Performance log emission failed: {}", ex.toString());
+        }
+    }
+
+    private void reportDrops() {
+        long dropCount = buffer.getDropCount();
+        if (dropCount > reportedDropCount) {
+            log.warn("Dropped {} performance log entries (emitter buffer of {} full)", dropCount - reportedDropCount, buffer.capacity());
+            reportedDropCount = dropCount;
+        }
+        long unloggedDropCount = unloggedBuffer.getDropCount();
+        if (unloggedDropCount > reportedUnloggedDropCount) {
+            log.warn("Dropped {} invocation trees for profiling (emitter buffer of {} full)", unloggedDropCount - reportedUnloggedDropCount, unloggedBuffer.capacity());
+            reportedUnloggedDropCount = unloggedDropCount;
+        }
+    }
+}
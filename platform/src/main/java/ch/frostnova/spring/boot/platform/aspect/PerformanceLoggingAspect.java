@@ -1,22 +1,34 @@
 package ch.frostnova.spring.boot.platform.aspect;
 
+import ch.frostnova.spring.boot.platform.util.VirtualThreads;
+import ch.frostnova.spring.boot.platform.web.filter.BearerTokenAuthenticationFilter;
 import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.util.Deque;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.Optional;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
 import java.util.concurrent.Callable;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
 
 /**
  * Performance logging aspect, logs performance and result state (ok or exception) for (nested) service calls.<br> Activated by profile
@@ -48,30 +60,34 @@ import java.util.stream.Collectors;
 @Profile("performance-logging")
 public class PerformanceLoggingAspect {
 
-    private final static String SYMBOL_SPACE = " ";
-    private final static String SYMBOL_INDENTATION = ""; // unicode alternative: "\u2937"
-    private final static String SYMBOL_RIGHT_ARROW = "->"; // unicode alternative: "\u2192"
-
     private static final Logger log = LoggerFactory.getLogger(PerformanceLoggingAspect.class);
 
     /**
-     * Threshold (in nanoseconds) under which calls are no longer reported in detail.
+     * Short invocation signatures by method, so the signature string is not built again for every invocation.
      */
-    private static final long DETAIL_THRESHOLD_NS = 1_000_000; // 1 ms
+    private static final Map<Method, String> invocationNames = new ConcurrentHashMap<>();
 
     /**
      * Bind aspect to any Spring @Service, @Controller, @RestController and Repository
      *
      * @param joinPoint aspect join point
      * @return invocation result
+     * @throws Throwable invocation exception
      */
     @Around("(@within(ch.frostnova.spring.boot.platform.aspect.PerformanceLogging)" +
             "|| @within(org.springframework.scheduling.annotation.Scheduled)" +
             "|| @within(org.springframework.web.bind.annotation.RestController))"
     )
-    public static Object around(ProceedingJoinPoint joinPoint) {
-        String invocation = joinPoint.getSignature().toShortString();
-        return PerformanceLoggingContext.current().execute(invocation, (CheckedSupplier<Object>) joinPoint::proceed);
+    public static Object around(ProceedingJoinPoint joinPoint) throws Throwable {
+        Settings settings = PerformanceLoggingContext.settings;
+        if (settings.mode == PerformanceLoggingMode.OFF) {
+            return joinPoint.proceed();
+        }
+        PerformanceLoggingContext context = PerformanceLoggingContext.current();
+        if (!context.isIntermediateInvocation() && !settings.sample()) {
+            return joinPoint.proceed();
+        }
+        return context.invoke(invocationName(joinPoint), joinPoint::proceed);
     }
 
     /**
@@ -85,12 +101,21 @@ public class PerformanceLoggingAspect {
             "|| this(org.springframework.data.repository.Repository)" +
             "|| @within(org.springframework.stereotype.Component)")
     public static Object aroundIntermediate(ProceedingJoinPoint joinPoint) throws Throwable {
-        if (PerformanceLoggingContext.current().isIntermediateInvocation()) {
-            return around(joinPoint);
+        PerformanceLoggingContext context = PerformanceLoggingContext.current.get();
+        if (context != null && context.isIntermediateInvocation()) {
+            return context.invoke(invocationName(joinPoint), joinPoint::proceed);
         }
         return joinPoint.proceed();
     }
 
+    private static String invocationName(ProceedingJoinPoint joinPoint) {
+        Signature signature = joinPoint.getSignature();
+        if (signature instanceof MethodSignature) {
+            return invocationNames.computeIfAbsent(((MethodSignature) signature).getMethod(), m -> signature.toShortString());
+        }
+        return signature.toShortString();
+    }
+
     /**
      * Functional interface for a runnable which can throw a checked exception.
      */
@@ -121,13 +146,113 @@ public class PerformanceLoggingAspect {
         T supply() throws Throwable;
     }
 
+    /**
+     * Capture settings (immutable, replaced as a whole when reconfigured).
+     */
+    private static class Settings {
+
+        private final PerformanceLoggingMode mode;
+        private final int sampleRate;
+        private final long thresholdNs;
+
+        Settings(PerformanceLoggingMode mode, int sampleRate, long thresholdNs) {
+            this.mode = mode;
+            this.sampleRate = sampleRate;
+            this.thresholdNs = thresholdNs;
+        }
+
+        /**
+         * Decide whether a root invocation is captured.
+         */
+        boolean sample() {
+            return mode != PerformanceLoggingMode.SAMPLING || sampleRate <= 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0;
+        }
+
+        /**
+         * Decide whether a captured invocation tree is logged.
+         */
+        boolean log(String result, long elapsedTimeNs) {
+            return mode != PerformanceLoggingMode.TAIL || result != null || elapsedTimeNs >= thresholdNs;
+        }
+    }
+
+    /**
+     * Performance logging context of the current thread. Invocations are recorded as raw timestamps into reusable,
+     * pre-sized arrays (grown as needed). When the root invocation completes, a snapshot of the tree is handed over to
+     * the background {@link PerformanceLogEmitter}, which does the merging, pruning and formatting. <p>
+     * Work fanned out to other threads can be attributed to the current invocation by {@link #capture() capturing} it,
+     * and {@link CapturedInvocation#attach() attaching} it on the other threads: the invocations there are recorded in a
+     * child context, and handed back to the parent context as fragments when they complete. The parent grafts the
+     * fragments under the invocation they were captured from when that invocation completes, and computes its self
+     * time as the elapsed time minus the union (not the sum) of the intervals of its children, so parallel children are
+     * not counted multiple times. Fragments completing after the captured invocation are logged as separate trees: when
+     * the root invocation of the parent is still in progress, on its completion, otherwise right away by the child
+     * context (the parent thread may stay idle, or never run another invocation). <p>
+     * JDBC statements (reported by the {@link StatementTrackingDataSource}) are accounted to the invocation in progress
+     * (number of statements, JDBC time and rows fetched, including nested invocations). Statements executed repeatedly
+     * within the same root invocation (at least {@link #setRepeatedStatementThreshold(int) threshold} times) are
+     * reported as suspected N+1 queries.
+     */
     public static class PerformanceLoggingContext {
 
+        private final static int INITIAL_CAPACITY = 32;
+        private final static int CHILD_INITIAL_CAPACITY = 8;
+        private final static int MAX_TRACKED_STATEMENTS = 1000;
+        private final static int MAX_RETAINED_CAPACITY = 1024;
+        private final static int EMITTER_CAPACITY = 1024;
+
         private final static ThreadLocal<PerformanceLoggingContext> current = new ThreadLocal<>();
+        private final static List<PerformanceLoggingListener> listeners = new CopyOnWriteArrayList<>();
+        private final static PerformanceLogEmitter emitter = new PerformanceLogEmitter("performance-log-emitter", EMITTER_CAPACITY, log::info);
+        private static volatile Settings settings = new Settings(PerformanceLoggingMode.ALL, 1, 0);
+        private static volatile int repeatedStatementThreshold = 10;
+
+        private String[] invocations;
+        private int[] levels;
+        private long[] startTimesNs;
+        private long[] endTimesNs;
+        private long[] nestedTimesNs;
+        private String[] results;
+        private String[] threads;
+        private int[] statementCounts;
+        private long[] jdbcTimesNs;
+        private long[] rowCounts;
+        private int size;
+
+        /**
+         * Number of executions by SQL statement, within the current root invocation.
+         */
+        private Map<String, int[]> statementExecutions = new HashMap<>();
+
+        private int[] invocationStack = new int[INITIAL_CAPACITY];
+        private int depth;
+
+        /**
+         * Incremented when the root invocation completes (volatile: read by the child contexts on other threads, to
+         * detect that the invocation they were captured from is gone).
+         */
+        private volatile long generation;
+
+        /**
+         * Completed invocation trees of child contexts (on other threads), to be grafted into this context.
+         */
+        private final Queue<Fragment> fragments = new ConcurrentLinkedQueue<>();
+
+        private final PerformanceLoggingContext parent;
+        private final int parentIndex;
+        private final long parentGeneration;
 
-        private final Deque<InvocationInfo> invocations = new LinkedList<>();
-        private final Deque<InvocationInfo> invocationStack = new LinkedList<>();
-        private final Deque<AtomicLong> nestedTime = new LinkedList<>();
+        private PerformanceLoggingContext() {
+            // virtual threads are not reused: start small, as the context only lives for one task
+            this(null, -1, -1, VirtualThreads.isVirtual(Thread.currentThread()) ? CHILD_INITIAL_CAPACITY : INITIAL_CAPACITY);
+        }
+
+        private PerformanceLoggingContext(PerformanceLoggingContext parent, int parentIndex, long parentGeneration, int capacity) {
+            this.parent = parent;
+            this.parentIndex = parentIndex;
+            this.parentGeneration = parentGeneration;
+            allocate(capacity);
+        }
 
         public static PerformanceLoggingContext current() {
             PerformanceLoggingContext context = current.get();
@@ -138,66 +263,421 @@ public class PerformanceLoggingAspect {
             return context;
         }
 
+        /**
+         * Capture the invocation in progress on the current thread, so invocations on other threads can be attributed
+         * to it (see {@link CapturedInvocation#attach()}).
+         *
+         * @return captured invocation, or null if there is no invocation in progress
+         */
+        public static CapturedInvocation capture() {
+            PerformanceLoggingContext context = current.get();
+            if (context == null || context.depth == 0) {
+                return null;
+            }
+            return new CapturedInvocation(context, context.invocationStack[context.depth - 1], context.generation);
+        }
+
+        /**
+         * Configure the capture mode.
+         *
+         * @param mode        mode, required
+         * @param sampleRate  sample rate (1 in N root invocations) for the {@link PerformanceLoggingMode#SAMPLING} mode
+         * @param threshold   latency threshold for the {@link PerformanceLoggingMode#TAIL} mode, required
+         */
+        public static void configure(PerformanceLoggingMode mode, int sampleRate, Duration threshold) {
+            if (sampleRate < 1) {
+                throw new IllegalArgumentException("sampleRate must be at least 1");
+            }
+            settings = new Settings(Objects.requireNonNull(mode, "mode is required"), sampleRate, threshold.toNanos());
+            log.info("Performance logging mode: {}{}", mode,
+                    mode == PerformanceLoggingMode.SAMPLING ? " (1 in " + sampleRate + ")" :
+                            mode == PerformanceLoggingMode.TAIL ? " (threshold: " + threshold.toMillis() + " ms)" : "");
+        }
+
+        /**
+         * Set the number of executions of the same SQL statement within a root invocation, from which on the statement
+         * is reported as suspected N+1 query.
+         *
+         * @param threshold threshold (at least 2)
+         */
+        public static void setRepeatedStatementThreshold(int threshold) {
+            if (threshold < 2) {
+                throw new IllegalArgumentException("threshold must be at least 2");
+            }
+            repeatedStatementThreshold = threshold;
+        }
+
+        /**
+         * Account an executed JDBC statement to the invocation in progress on the current thread (if any).
+         *
+         * @param sql           SQL statement, optional
+         * @param elapsedTimeNs execution time
+         */
+        static void statementExecuted(String sql, long elapsedTimeNs) {
+            PerformanceLoggingContext context = current.get();
+            if (context == null || context.depth == 0) {
+                return;
+            }
+            int index = context.invocationStack[context.depth - 1];
+            context.statementCounts[index]++;
+            context.jdbcTimesNs[index] += elapsedTimeNs;
+            if (sql != null) {
+                int[] executions = context.statementExecutions.get(sql);
+                if (executions != null) {
+                    executions[0]++;
+                } else if (context.statementExecutions.size() < MAX_TRACKED_STATEMENTS) {
+                    context.statementExecutions.put(sql, new int[]{1});
+                }
+            }
+        }
+
+        /**
+         * Account fetched rows (and the time spent fetching them) to the invocation in progress on the current thread
+         * (if any).
+         *
+         * @param rows          number of rows
+         * @param elapsedTimeNs time spent fetching the rows
+         */
+        static void rowsFetched(long rows, long elapsedTimeNs) {
+            PerformanceLoggingContext context = current.get();
+            if (context == null || context.depth == 0) {
+                return;
+            }
+            int index = context.invocationStack[context.depth - 1];
+            context.rowCounts[index] += rows;
+            context.jdbcTimesNs[index] += elapsedTimeNs;
+        }
+
+        private static void notifyRepeatedStatement(String rootInvocation, String sql, int executions) {
+            for (PerformanceLoggingListener listener : listeners) {
+                try {
+                    listener.repeatedStatementDetected(rootInvocation, sql, executions);
+                } catch (RuntimeException ex) {
+                    PerformanceLoggingAspect.log.warn("Performance logging listener failed: {}", ex.toString());
+                }
+            }
+        }
+
+        /**
+         * Register a listener, which is notified of every completed invocation.
+         *
+         * @param listener listener, required
+         */
+        public static void addListener(PerformanceLoggingListener listener) {
+            listeners.add(Objects.requireNonNull(listener, "listener is required"));
+        }
+
+        /**
+         * Unregister a listener.
+         *
+         * @param listener listener
+         */
+        public static void removeListener(PerformanceLoggingListener listener) {
+            listeners.remove(listener);
+        }
+
+        /**
+         * Number of invocation trees dropped so far, because the background emitter could not keep up.
+         *
+         * @return number of dropped trees
+         */
+        public static long getDroppedTreeCount() {
+            return emitter.getDropCount();
+        }
+
+        /**
+         * Stop the background emitter thread, after emitting the pending invocation trees. The emitter is started again
+         * when the next tree is submitted.
+         */
+        public static void stopEmitter() {
+            emitter.stop();
+        }
+
+        /**
+         * Register a listener, which is notified of every completed invocation tree on the background emitter thread.
+         *
+         * @param listener listener, required
+         */
+        static void addTreeListener(Consumer<InvocationTree> listener) {
+            emitter.addTreeListener(listener);
+        }
+
+        /**
+         * Unregister a tree listener.
+         *
+         * @param listener listener
+         */
+        static void removeTreeListener(Consumer<InvocationTree> listener) {
+            emitter.removeTreeListener(listener);
+        }
+
+        private static void notifyListeners(String invocation, String result, long elapsedTimeNs, long selfTimeNs) {
+            for (PerformanceLoggingListener listener : listeners) {
+                try {
+                    listener.invocationCompleted(invocation, result, elapsedTimeNs, selfTimeNs);
+                } catch (RuntimeException ex) {
+                    PerformanceLoggingAspect.log.warn("Performance logging listener failed: {}", ex.toString());
+                }
+            }
+        }
+
         boolean isIntermediateInvocation() {
-            return invocationStack.size() > 0;
+            return depth > 0 || parent != null;
+        }
+
+        private void allocate(int capacity) {
+            invocations = new String[capacity];
+            levels = new int[capacity];
+            startTimesNs = new long[capacity];
+            endTimesNs = new long[capacity];
+            nestedTimesNs = new long[capacity];
+            results = new String[capacity];
+            threads = new String[capacity];
+            statementCounts = new int[capacity];
+            jdbcTimesNs = new long[capacity];
+            rowCounts = new long[capacity];
+        }
+
+        private void grow() {
+            int capacity = invocations.length * 2;
+            invocations = Arrays.copyOf(invocations, capacity);
+            levels = Arrays.copyOf(levels, capacity);
+            startTimesNs = Arrays.copyOf(startTimesNs, capacity);
+            endTimesNs = Arrays.copyOf(endTimesNs, capacity);
+            nestedTimesNs = Arrays.copyOf(nestedTimesNs, capacity);
+            results = Arrays.copyOf(results, capacity);
+            threads = Arrays.copyOf(threads, capacity);
+            statementCounts = Arrays.copyOf(statementCounts, capacity);
+            jdbcTimesNs = Arrays.copyOf(jdbcTimesNs, capacity);
+            rowCounts = Arrays.copyOf(rowCounts, capacity);
         }
 
         private void enter(String invocation) {
-            long time = System.nanoTime();
-            InvocationInfo invocationInfo = new InvocationInfo(invocationStack.size(), invocation, time);
-            invocations.add(invocationInfo);
-            invocationStack.push(invocationInfo);
-            nestedTime.push(new AtomicLong());
+            if (size == invocations.length) {
+                grow();
+            }
+            if (depth == invocationStack.length) {
+                invocationStack = Arrays.copyOf(invocationStack, depth * 2);
+            }
+            int index = size++;
+            invocations[index] = invocation;
+            levels[index] = depth;
+            nestedTimesNs[index] = 0;
+            results[index] = null;
+            threads[index] = depth == 0 ? Thread.currentThread().getName() : null;
+            statementCounts[index] = 0;
+            jdbcTimesNs[index] = 0;
+            rowCounts[index] = 0;
+            invocationStack[depth++] = index;
+            startTimesNs[index] = System.nanoTime();
         }
 
         private void exit(Throwable t) {
             long time = System.nanoTime();
-            if (invocationStack.isEmpty()) {
+            if (depth == 0) {
                 throw new IllegalStateException("No invocation in progress");
             }
 
-            InvocationInfo info = invocationStack.pop();
-            info.done(time, t != null ? t.getClass().getName() : null);
-            info.setNestedTimeNs(nestedTime.pop().get());
-
-            Optional.ofNullable(nestedTime.peek()).ifPresent(x -> x.addAndGet(info.getElapsedTimeNs()));
-
-            if (invocationStack.isEmpty()) {
+            int index = invocationStack[--depth];
+            String result = t != null ? t.getClass().getName() : null;
+            long elapsedTimeNs = time - startTimesNs[index];
+            endTimesNs[index] = time;
+            results[index] = result;
+            if (!fragments.isEmpty()) {
+                graftFragments(index);
+            }
+            notifyListeners(invocations[index], result, elapsedTimeNs, elapsedTimeNs - nestedTimesNs[index]);
 
-                InvocationInfo previous = null;
-                Iterator<InvocationInfo> iterator = invocations.iterator();
-                while (iterator.hasNext()) {
-                    InvocationInfo invocationInfo = iterator.next();
-                    if (previous != null && previous.merge(invocationInfo)) {
-                        iterator.remove();
-                    } else {
-                        previous = invocationInfo;
+            if (depth > 0) {
+                int callerIndex = invocationStack[depth - 1];
+                nestedTimesNs[callerIndex] += elapsedTimeNs;
+                addStatements(callerIndex, index);
+                return;
+            }
+            try {
+                if (parent != null) {
+                    Fragment fragment = new Fragment(parentIndex, parentGeneration, snapshot(false),
+                            statementExecutions.isEmpty() ? null : statementExecutions);
+                    parent.fragments.add(fragment);
+                    // added before checking the generation, and the parent increments it before emitting its orphaned
+                    // fragments: if the root invocation of the parent already completed, remove the fragment again
+                    // (unless the parent already took it) and log it right away, as nothing will pick it up anymore
+                    if (parent.generation != parentGeneration && parent.fragments.remove(fragment)) {
+                        submitSeparately(fragment.tree);
                     }
-                }
-                iterator = invocations.iterator();
-                InvocationInfo skipFromLevel = null;
-                while (iterator.hasNext()) {
-                    InvocationInfo invocationInfo = iterator.next();
-                    if (skipFromLevel != null) {
-                        if (invocationInfo.level > skipFromLevel.level) {
-                            iterator.remove();
-                        } else {
-                            skipFromLevel = null;
-                        }
+                } else {
+                    checkRepeatedStatements(invocations[index]);
+                    boolean logged = settings.log(result, elapsedTimeNs) && PerformanceLoggingAspect.log.isInfoEnabled();
+                    if (logged || emitter.hasTreeListeners()) {
+                        emitter.submit(snapshot(logged));
                     }
-                    if (skipFromLevel == null && invocationInfo.getElapsedTimeNs() < PerformanceLoggingAspect.DETAIL_THRESHOLD_NS && invocationInfo.level > 1) {
-                        skipFromLevel = invocationInfo;
+                }
+            } finally {
+                reset();
+            }
+            emitOrphanedFragments();
+        }
+
+        /**
+         * Graft the fragments captured from the given invocation (which just completed) as its children, and update its
+         * nested time to the union of the intervals of all its children.
+         */
+        private void graftFragments(int index) {
+            boolean grafted = false;
+            long currentGeneration = generation;
+            for (Iterator<Fragment> iterator = fragments.iterator(); iterator.hasNext(); ) {
+                Fragment fragment = iterator.next();
+                if (fragment.index == index && fragment.generation == currentGeneration) {
+                    iterator.remove();
+                    int fragmentIndex = size;
+                    append(fragment.tree, levels[index] + 1);
+                    addStatements(index, fragmentIndex);
+                    if (fragment.statementExecutions != null) {
+                        fragment.statementExecutions.forEach((sql, executions) -> {
+                            int[] total = statementExecutions.get(sql);
+                            if (total != null) {
+                                total[0] += executions[0];
+                            } else if (statementExecutions.size() < MAX_TRACKED_STATEMENTS) {
+                                statementExecutions.put(sql, executions);
+                            }
+                        });
                     }
+                    grafted = true;
+                }
+            }
+            if (grafted) {
+                nestedTimesNs[index] = childIntervalUnionNs(index);
+            }
+        }
+
+        private void append(InvocationTree tree, int levelOffset) {
+            for (int i = 0; i < tree.size(); i++) {
+                if (size == invocations.length) {
+                    grow();
                 }
+                int target = size++;
+                invocations[target] = tree.getInvocation(i);
+                levels[target] = tree.getLevel(i) + levelOffset;
+                startTimesNs[target] = tree.getStartTimeNs(i);
+                endTimesNs[target] = tree.getEndTimeNs(i);
+                nestedTimesNs[target] = tree.getNestedTimeNs(i);
+                results[target] = tree.getResult(i);
+                threads[target] = tree.getThread(i);
+                statementCounts[target] = tree.getStatementCount(i);
+                jdbcTimesNs[target] = tree.getJdbcTimeNs(i);
+                rowCounts[target] = tree.getRowCount(i);
+            }
+        }
+
+        /**
+         * Add the statements of an invocation (including its nested invocations) to its parent invocation.
+         */
+        private void addStatements(int parentIndex, int index) {
+            statementCounts[parentIndex] += statementCounts[index];
+            jdbcTimesNs[parentIndex] += jdbcTimesNs[index];
+            rowCounts[parentIndex] += rowCounts[index];
+        }
 
-                PerformanceLoggingAspect.log.info(invocations.stream()
-                        .map(InvocationInfo::toString)
-                        .collect(Collectors.joining("\n")));
-                invocations.clear();
-                current.remove();
+        /**
+         * Report statements which were executed repeatedly within the root invocation as suspected N+1 queries.
+         */
+        private void checkRepeatedStatements(String rootInvocation) {
+            if (statementExecutions.isEmpty()) {
+                return;
             }
+            int threshold = repeatedStatementThreshold;
+            statementExecutions.forEach((sql, executions) -> {
+                if (executions[0] >= threshold) {
+                    PerformanceLoggingAspect.log.warn("Suspected N+1 query: statement executed {} times in {}: {}", executions[0], rootInvocation, sql);
+                    notifyRepeatedStatement(rootInvocation, sql, executions[0]);
+                }
+            });
         }
 
+        /**
+         * Total time covered by the children of the given invocation (overlapping intervals of parallel children only
+         * counted once), within the interval of the invocation.
+         */
+        private long childIntervalUnionNs(int index) {
+            int childLevel = levels[index] + 1;
+            long[][] intervals = new long[size - index - 1][];
+            int count = 0;
+            for (int i = index + 1; i < size; i++) {
+                if (levels[i] == childLevel) {
+                    intervals[count++] = new long[]{
+                            Math.max(startTimesNs[i], startTimesNs[index]),
+                            Math.min(endTimesNs[i], endTimesNs[index])};
+                }
+            }
+            Arrays.sort(intervals, 0, count, Comparator.comparingLong((long[] interval) -> interval[0]));
+            long union = 0;
+            long coveredUntil = Long.MIN_VALUE;
+            for (int i = 0; i < count; i++) {
+                long start = Math.max(intervals[i][0], coveredUntil);
+                if (intervals[i][1] > start) {
+                    union += intervals[i][1] - start;
+                    coveredUntil = intervals[i][1];
+                }
+            }
+            return union;
+        }
+
+        /**
+         * Fragments whose captured invocation already completed can no longer be grafted: log them as separate trees.
+         * Called after the root invocation completed (and the generation was incremented).
+         */
+        private void emitOrphanedFragments() {
+            Fragment fragment;
+            while ((fragment = fragments.poll()) != null) {
+                submitSeparately(fragment.tree);
+            }
+        }
+
+        /**
+         * Submit the tree of a fragment which can no longer be grafted as a separate tree.
+         */
+        private static void submitSeparately(InvocationTree tree) {
+            boolean logged = settings.log(tree.getResult(0), tree.getElapsedTimeNs(0)) && PerformanceLoggingAspect.log.isInfoEnabled();
+            if (logged || emitter.hasTreeListeners()) {
+                emitter.submit(tree.withLogged(logged));
+            }
+        }
+
+        private InvocationTree snapshot(boolean logged) {
+            return new InvocationTree(logged, size,
+                    Arrays.copyOf(invocations, size),
+                    Arrays.copyOf(levels, size),
+                    Arrays.copyOf(startTimesNs, size),
+                    Arrays.copyOf(endTimesNs, size),
+                    Arrays.copyOf(nestedTimesNs, size),
+                    Arrays.copyOf(results, size),
+                    Arrays.copyOf(threads, size),
+                    Arrays.copyOf(statementCounts, size),
+                    Arrays.copyOf(jdbcTimesNs, size),
+                    Arrays.copyOf(rowCounts, size),
+                    MDC.get(BearerTokenAuthenticationFilter.MDC_KEY_TENANT),
+                    MDC.get(BearerTokenAuthenticationFilter.MDC_KEY_USER));
+        }
+
+        private void reset() {
+            if (invocations.length > MAX_RETAINED_CAPACITY) {
+                allocate(INITIAL_CAPACITY);
+            } else {
+                Arrays.fill(invocations, 0, size, null);
+                Arrays.fill(results, 0, size, null);
+                Arrays.fill(threads, 0, size, null);
+            }
+            size = 0;
+            generation++;
+            if (!statementExecutions.isEmpty()) {
+                // handed over to the parent context with the fragment
+                if (parent != null) {
+                    statementExecutions = new HashMap<>();
+                } else {
+                    statementExecutions.clear();
+                }
+            }
+        }
 
         /**
          * Run code inside the performance logging context
@@ -206,118 +686,105 @@ public class PerformanceLoggingAspect {
          * @param runnable       runnable to execute, required
          */
         public void execute(String invocationInfo, CheckedRunnable runnable) {
-            enter(invocationInfo);
+            execute(invocationInfo, () -> {
+                runnable.run();
+                return null;
+            });
+        }
 
-            Throwable error = null;
+        /**
+         * Run code inside the performance logging context
+         *
+         * @param invocationInfo invocationInfo
+         * @param supplier       supplier to execute, required
+         */
+        public <T> T execute(String invocationInfo, CheckedSupplier<T> supplier) {
             try {
-                runnable.run();
+                return invoke(invocationInfo, supplier);
             } catch (RuntimeException ex) {
-                error = ex;
                 throw ex;
             } catch (Throwable ex) {
-                error = ex;
-                throw ex instanceof RuntimeException ? (RuntimeException) ex : new RuntimeException(ex);
-            } finally {
-                exit(error);
+                throw new RuntimeException(ex);
             }
         }
 
         /**
-         * Run code inside the performance logging context
+         * Run code inside the performance logging context, passing any exception on as is (the aspect must not change
+         * the exceptions of the advised methods).
          *
          * @param invocationInfo invocationInfo
          * @param supplier       supplier to execute, required
+         * @throws Throwable exception of the supplier
          */
-        public <T> T execute(String invocationInfo, CheckedSupplier<T> supplier) {
+        <T> T invoke(String invocationInfo, CheckedSupplier<T> supplier) throws Throwable {
             enter(invocationInfo);
 
             Throwable error = null;
             try {
                 return supplier.supply();
-            } catch (RuntimeException ex) {
-                error = ex;
-                throw ex;
             } catch (Throwable ex) {
                 error = ex;
-                throw ex instanceof RuntimeException ? (RuntimeException) ex : new RuntimeException(ex);
+                throw ex;
             } finally {
                 exit(error);
             }
         }
     }
 
-    private static class InvocationInfo {
-
-        private final int level;
-        private final String invocation;
-        private int mergeCount = 1;
-        private long startTimeNs;
-        private long endTimeNs;
-        private String result;
-        private long nestedTimeNs;
-
-        InvocationInfo(int level, String invocation, long startTimeNs) {
-            this.level = level;
-            this.startTimeNs = startTimeNs;
-            this.invocation = invocation;
-        }
-
-        private static String formatTimeMs(long timeNs) {
-            return BigDecimal.valueOf(timeNs * 0.000001).setScale(2, RoundingMode.HALF_EVEN) + " ms";
-        }
-
-        void done(long endTimeNs, String result) {
-            this.endTimeNs = endTimeNs;
-            this.result = result;
-        }
+    /**
+     * Invocation captured on one thread, to which invocations on other threads are attributed.
+     */
+    public static class CapturedInvocation {
 
-        long getElapsedTimeNs() {
-            return endTimeNs - startTimeNs;
-        }
+        private final PerformanceLoggingContext context;
+        private final int index;
+        private final long generation;
 
-        void setNestedTimeNs(long timeNs) {
-            nestedTimeNs = timeNs;
+        private CapturedInvocation(PerformanceLoggingContext context, int index, long generation) {
+            this.context = context;
+            this.index = index;
+            this.generation = generation;
         }
 
-        boolean merge(InvocationInfo other) {
-            if (other != null && nestedTimeNs == 0 && other.nestedTimeNs == 0 && level == other.level && invocation.equals(other.invocation)) {
-                startTimeNs = Math.min(startTimeNs, other.startTimeNs);
-                endTimeNs = Math.max(endTimeNs, other.endTimeNs);
-                mergeCount++;
-                return true;
+        /**
+         * Attach the captured invocation to the current thread: invocations on this thread (until the returned action
+         * is run) are recorded as nested invocations of the captured invocation. Has no effect when called on the
+         * thread the invocation was captured on.
+         *
+         * @return action to detach again, restoring the previous context of the current thread
+         */
+        public Runnable attach() {
+            PerformanceLoggingContext previous = PerformanceLoggingContext.current.get();
+            if (previous == context) {
+                return () -> {
+                };
             }
-            return false;
+            PerformanceLoggingContext.current.set(new PerformanceLoggingContext(context, index, generation, PerformanceLoggingContext.CHILD_INITIAL_CAPACITY));
+            return () -> {
+                if (previous != null) {
+                    PerformanceLoggingContext.current.set(previous);
+                } else {
+                    PerformanceLoggingContext.current.remove();
+                }
+            };
         }
+    }
 
-        @Override
-        public String toString() {
-
-            long durationNs = endTimeNs - startTimeNs;
-
-            StringBuilder builder = new StringBuilder();
-            if (level > 0) {
-                builder.append("  ".repeat(level));
-                builder.append(SYMBOL_INDENTATION);
-                builder.append(SYMBOL_SPACE);
-            }
-            if (mergeCount > 1) {
-                builder.append(mergeCount);
-                builder.append("x ");
-            }
-            builder.append(invocation);
-            builder.append(SYMBOL_SPACE);
-            builder.append(SYMBOL_RIGHT_ARROW);
-            builder.append(SYMBOL_SPACE);
-            if (result != null) {
-                builder.append(result);
-                builder.append(", ");
-            }
-            builder.append(formatTimeMs(durationNs));
-            if (nestedTimeNs > 0) {
-                builder.append(", self: ");
-                builder.append(formatTimeMs(durationNs - nestedTimeNs));
-            }
-            return builder.toString();
+    /**
+     * Completed invocation tree of a child context, to be grafted under the invocation it was captured from.
+     */
+    private static class Fragment {
+
+        private final int index;
+        private final long generation;
+        private final InvocationTree tree;
+        private final Map<String, int[]> statementExecutions;
+
+        Fragment(int index, long generation, InvocationTree tree, Map<String, int[]> statementExecutions) {
+            this.index = index;
+            this.generation = generation;
+            this.tree = tree;
+            this.statementExecutions = statementExecutions;
         }
     }
 }
@@ -0,0 +1,30 @@
+package ch.frostnova.spring.boot.platform.aspect;
+
+/**
+ * Listener for invocations recorded by the {@link PerformanceLoggingAspect}, register with
+ * {@link PerformanceLoggingAspect.PerformanceLoggingContext#addListener(PerformanceLoggingListener)}. <p>
+ * Listeners are called synchronously on the invoking thread, and should therefore be fast and not block.
+ */
+@FunctionalInterface
+public interface PerformanceLoggingListener {
+
+    /**
+     * Called when an invocation is completed.
+     *
+     * @param invocation    invocation (short signature, e.g. <code>NoteServiceImpl.get(..)</code>)
+     * @param result        null if the invocation completed normally, the exception class name otherwise
+     * @param elapsedTimeNs elapsed (total) time in nanoseconds
+     * @param selfTimeNs    self time in nanoseconds (elapsed time minus the time spent in nested invocations)
+     */
+    void invocationCompleted(String invocation, String result, long elapsedTimeNs, long selfTimeNs);
+
+    /**
+     * Called when the same SQL statement was executed repeatedly within a root invocation (suspected N+1 query).
+     *
+     * @param rootInvocation root invocation (short signature)
+     * @param sql            SQL statement
+     * @param executions     number of executions
+     */
+    default void repeatedStatementDetected(String rootInvocation, String sql, int executions) {
+    }
+}
@@ -0,0 +1,29 @@
+package ch.frostnova.spring.boot.platform.aspect;
+
+/**
+ * Capture mode of the {@link PerformanceLoggingAspect}.
+ */
+public enum PerformanceLoggingMode {
+
+    /**
+     * Capture and log every invocation tree.
+     */
+    ALL,
+
+    /**
+     * Head sampling: capture and log 1 in N root invocations (with their nested invocations), the other invocations
+     * are not captured (and not recorded in the metrics).
+     */
+    SAMPLING,
+
+    /**
+     * Tail capture: capture every invocation tree (and record the metrics), but only log it when the root invocation
+     * exceeds the latency threshold or throws an exception.
+     */
+    TAIL,
+
+    /**
+     * Nothing is captured or logged.
+     */
+    OFF
+}
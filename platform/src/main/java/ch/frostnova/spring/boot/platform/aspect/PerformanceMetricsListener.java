@@ -0,0 +1,107 @@
+package ch.frostnova.spring.boot.platform.aspect;
+
+import ch.frostnova.spring.boot.platform.aspect.PerformanceLoggingAspect.PerformanceLoggingContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the invocations of the {@link PerformanceLoggingAspect} as Micrometer timers (with percentile histogram and
+ * SLO buckets), tagged by <code>invocation</code> (short signature) and <code>result</code> (<code>ok</code> or the
+ * exception class name):
+ * <ul>
+ * <li><code>performance.invocation</code>: total time of the invocation</li>
+ * <li><code>performance.invocation.self</code>: self time of the invocation (without nested invocations)</li>
+ * </ul>
+ * Also publishes <code>performance.trees.dropped</code>, the number of invocation trees which were not logged because
+ * the background emitter could not keep up, and <code>performance.jdbc.repeated.statements</code>, the number of
+ * suspected N+1 queries (tagged by root <code>invocation</code>).
+ * Active with the <code>performance-logging</code> profile, when a {@link MeterRegistry} is available.
+ */
+@Component
+@Lazy(false)
+@Profile("performance-logging")
+public class PerformanceMetricsListener implements PerformanceLoggingListener {
+
+    public final static String TIMER_TOTAL = "performance.invocation";
+    public final static String TIMER_SELF = "performance.invocation.self";
+    public final static String COUNTER_DROPPED = "performance.trees.dropped";
+    public final static String COUNTER_REPEATED_STATEMENTS = "performance.jdbc.repeated.statements";
+    public final static String RESULT_OK = "ok";
+
+    private final static Duration[] SERVICE_LEVEL_OBJECTIVES = {
+            Duration.ofMillis(1),
+            Duration.ofMillis(5),
+            Duration.ofMillis(10),
+            Duration.ofMillis(50),
+            Duration.ofMillis(100),
+            Duration.ofMillis(500),
+            Duration.ofSeconds(1),
+            Duration.ofSeconds(5)
+    };
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Timers (total and self time) by invocation and result.
+     */
+    private final Map<String, Map<String, Timer[]>> timers = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        if (meterRegistry != null) {
+            FunctionCounter.builder(COUNTER_DROPPED, PerformanceLoggingContext.class, c -> PerformanceLoggingContext.getDroppedTreeCount())
+                    .description("invocation trees dropped because the performance log emitter could not keep up")
+                    .register(meterRegistry);
+            PerformanceLoggingContext.addListener(this);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        PerformanceLoggingContext.removeListener(this);
+    }
+
+    @Override
+    public void invocationCompleted(String invocation, String result, long elapsedTimeNs, long selfTimeNs) {
+        Timer[] invocationTimers = timers.computeIfAbsent(invocation, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(result != null ? result : RESULT_OK, r -> new Timer[]{
+                        timer(TIMER_TOTAL, "total time of the invocation", invocation, r),
+                        timer(TIMER_SELF, "self time of the invocation (without nested invocations)", invocation, r)
+                });
+        invocationTimers[0].record(elapsedTimeNs, TimeUnit.NANOSECONDS);
+        invocationTimers[1].record(selfTimeNs, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void repeatedStatementDetected(String rootInvocation, String sql, int executions) {
+        Counter.builder(COUNTER_REPEATED_STATEMENTS)
+                .description("SQL statements executed repeatedly within a root invocation (suspected N+1 queries)")
+                .tag("invocation", rootInvocation)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private Timer timer(String name, String description, String invocation, String result) {
+        return Timer.builder(name)
+                .description(description)
+                .tag("invocation", invocation)
+                .tag("result", result)
+                .publishPercentileHistogram()
+                .serviceLevelObjectives(SERVICE_LEVEL_OBJECTIVES)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,194 @@
+package ch.frostnova.spring.boot.platform.aspect;
+
+import ch.frostnova.spring.boot.platform.aspect.PerformanceLoggingAspect.PerformanceLoggingContext;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+
+/**
+ * Data source which accounts the executed JDBC statements (number of statements, execution and fetch time, rows
+ * fetched) to the invocation in progress in the {@link PerformanceLoggingContext}. <p>
+ * Connections, statements and result sets are wrapped in lightweight dynamic proxies, which only measure the
+ * execution methods (<code>execute*</code>) and <code>ResultSet.next()</code>, and delegate all other methods. <p>
+ * Batches are accounted as statements (with their execution time), but do not count towards the detection of repeated
+ * statements (N+1 queries): executing a statement in batches is the remedy for such queries.
+ */
+public class StatementTrackingDataSource extends DelegatingDataSource {
+
+    private final static Set<String> EXECUTE_METHODS = Set.of("execute", "executeQuery", "executeUpdate",
+            "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+    private final static Set<String> BATCH_METHODS = Set.of("executeBatch", "executeLargeBatch");
+
+    public StatementTrackingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(StatementTrackingDataSource.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    /**
+     * Identity semantics for the proxies (the delegates would compare themselves with the proxy).
+     */
+    private static Object identityMethod(Object proxy, Method method, Object[] args) {
+        if (method.getName().equals("equals") && args != null && args.length == 1) {
+            return proxy == args[0];
+        }
+        if (method.getName().equals("hashCode") && (args == null || args.length == 0)) {
+            return System.identityHashCode(proxy);
+        }
+        return null;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(super.getConnection()));
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(super.getConnection(username, password)));
+    }
+
+    private static class ConnectionHandler implements InvocationHandler {
+
+        private final Connection connection;
+
+        ConnectionHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object identity = identityMethod(proxy, method, args);
+            if (identity != null) {
+                return identity;
+            }
+            Object result = StatementTrackingDataSource.invoke(connection, method, args);
+            String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+            if (result instanceof CallableStatement && method.getName().equals("prepareCall")) {
+                return proxy(CallableStatement.class, new StatementHandler((Statement) result, sql));
+            }
+            if (result instanceof PreparedStatement && method.getName().equals("prepareStatement")) {
+                return proxy(PreparedStatement.class, new StatementHandler((Statement) result, sql));
+            }
+            if (result instanceof Statement && method.getName().equals("createStatement")) {
+                return proxy(Statement.class, new StatementHandler((Statement) result, null));
+            }
+            return result;
+        }
+    }
+
+    private static class StatementHandler implements InvocationHandler {
+
+        private final Statement statement;
+        private final String sql;
+        private ResultSetHandler resultSetHandler;
+
+        StatementHandler(Statement statement, String sql) {
+            this.statement = statement;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object identity = identityMethod(proxy, method, args);
+            if (identity != null) {
+                return identity;
+            }
+            String name = method.getName();
+            if (EXECUTE_METHODS.contains(name)) {
+                // batches are not tracked by SQL statement
+                String executedSql = BATCH_METHODS.contains(name) ? null
+                        : args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+                long startTimeNs = System.nanoTime();
+                try {
+                    return wrapResultSet(StatementTrackingDataSource.invoke(statement, method, args));
+                } finally {
+                    PerformanceLoggingContext.statementExecuted(executedSql, System.nanoTime() - startTimeNs);
+                }
+            }
+            if (name.equals("getResultSet")) {
+                return wrapResultSet(StatementTrackingDataSource.invoke(statement, method, args));
+            }
+            if (name.equals("close") && resultSetHandler != null) {
+                resultSetHandler.report();
+            }
+            return StatementTrackingDataSource.invoke(statement, method, args);
+        }
+
+        private Object wrapResultSet(Object result) {
+            if (!(result instanceof ResultSet)) {
+                return result;
+            }
+            if (resultSetHandler != null) {
+                resultSetHandler.report();
+            }
+            resultSetHandler = new ResultSetHandler((ResultSet) result);
+            return proxy(ResultSet.class, resultSetHandler);
+        }
+    }
+
+    private static class ResultSetHandler implements InvocationHandler {
+
+        private final ResultSet resultSet;
+        private long rows;
+        private long fetchTimeNs;
+        private boolean reported;
+
+        ResultSetHandler(ResultSet resultSet) {
+            this.resultSet = resultSet;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object identity = identityMethod(proxy, method, args);
+            if (identity != null) {
+                return identity;
+            }
+            String name = method.getName();
+            if (name.equals("next")) {
+                long startTimeNs = System.nanoTime();
+                boolean next = resultSet.next();
+                fetchTimeNs += System.nanoTime() - startTimeNs;
+                if (next) {
+                    rows++;
+                } else {
+                    report();
+                }
+                return next;
+            }
+            if (name.equals("close")) {
+                report();
+            }
+            return StatementTrackingDataSource.invoke(resultSet, method, args);
+        }
+
+        void report() {
+            if (!reported) {
+                reported = true;
+                PerformanceLoggingContext.rowsFetched(rows, fetchTimeNs);
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package ch.frostnova.spring.boot.platform.aspect;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the data sources in a {@link StatementTrackingDataSource} (with the <code>performance-logging</code> profile),
+ * so the JDBC statements are accounted to the invocations in the performance log.
+ */
+@Component
+@Profile("performance-logging")
+public class StatementTrackingDataSourcePostProcessor implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource && !(bean instanceof StatementTrackingDataSource)) {
+            return new StatementTrackingDataSource((DataSource) bean);
+        }
+        return bean;
+    }
+}
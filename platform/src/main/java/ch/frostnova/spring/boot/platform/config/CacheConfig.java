@@ -1,18 +1,35 @@
 package ch.frostnova.spring.boot.platform.config;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
 import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CachingConfigurerSupport;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
-import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.cache.jcache.JCacheCacheManager;
+import org.springframework.cache.support.NoOpCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+/**
+ * Cache config: the cache manager is provided by the Spring Boot cache auto-configuration (JCache with Ehcache,
+ * configured in <code>ehcache.xml</code>, which defines the size and expiration of each cache), and made
+ * transaction-aware. Without a configured cache manager, caching is disabled (no-op cache manager).
+ */
 @Configuration
 @EnableCaching
-public class CacheConfig {
+public class CacheConfig extends CachingConfigurerSupport {
 
-    @Bean
+    @Autowired
+    private ObjectProvider<CacheManager> cacheManagers;
+
+    @Override
     public CacheManager cacheManager() {
-        return new TransactionAwareCacheManagerProxy(new ConcurrentMapCacheManager());
+        return cacheManagers.getIfAvailable(NoOpCacheManager::new);
+    }
+
+    @Bean
+    public CacheManagerCustomizer<JCacheCacheManager> transactionAwareCacheManagerCustomizer() {
+        return cacheManager -> cacheManager.setTransactionAware(true);
     }
 }
@@ -0,0 +1,78 @@
+package ch.frostnova.spring.boot.platform.config;
+
+import ch.frostnova.spring.boot.platform.aspect.PerformanceLoggingAspect.PerformanceLoggingContext;
+import ch.frostnova.spring.boot.platform.aspect.PerformanceLoggingMode;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+
+/**
+ * Performance logging configuration (applies when the <code>performance-logging</code> profile is active): <p>
+ * <ul>
+ * <li><code>mode</code>: capture mode (<code>all</code>, <code>sampling</code>, <code>tail</code> or
+ * <code>off</code>), default: <code>all</code>.</li>
+ * <li><code>sample-rate</code>: in <code>sampling</code> mode, 1 in N root invocations is captured, default:
+ * 100.</li>
+ * <li><code>threshold</code>: in <code>tail</code> mode, invocation trees are only logged when the root invocation
+ * takes at least this long (or throws an exception), default: 500ms.</li>
+ * <li><code>repeated-statement-threshold</code>: number of executions of the same SQL statement within a root
+ * invocation, from which on the statement is reported as suspected N+1 query, default: 10.</li>
+ * </ul>
+ */
+@Component
+@Lazy(false)
+@ConfigurationProperties("ch.frostnova.platform.performance-logging")
+public class PerformanceLoggingConfig {
+
+    private PerformanceLoggingMode mode = PerformanceLoggingMode.ALL;
+    private int sampleRate = 100;
+    private Duration threshold = Duration.ofMillis(500);
+    private int repeatedStatementThreshold = 10;
+
+    @PostConstruct
+    public void init() {
+        PerformanceLoggingContext.configure(mode, sampleRate, threshold);
+        PerformanceLoggingContext.setRepeatedStatementThreshold(repeatedStatementThreshold);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        PerformanceLoggingContext.stopEmitter();
+    }
+
+    public PerformanceLoggingMode getMode() {
+        return mode;
+    }
+
+    public void setMode(PerformanceLoggingMode mode) {
+        this.mode = mode;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(int sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public Duration getThreshold() {
+        return threshold;
+    }
+
+    public void setThreshold(Duration threshold) {
+        this.threshold = threshold;
+    }
+
+    public int getRepeatedStatementThreshold() {
+        return repeatedStatementThreshold;
+    }
+
+    public void setRepeatedStatementThreshold(int repeatedStatementThreshold) {
+        this.repeatedStatementThreshold = repeatedStatementThreshold;
+    }
+}
@@ -1,9 +1,14 @@
 package ch.frostnova.spring.boot.platform.config;
 
+import ch.frostnova.spring.boot.platform.model.UserInfo;
 import ch.frostnova.spring.boot.platform.service.TokenAuthenticator;
+import ch.frostnova.spring.boot.platform.util.ExpiringCache;
+import ch.frostnova.spring.boot.platform.util.TokenDigest;
 import ch.frostnova.spring.boot.platform.web.filter.BearerTokenAuthenticationFilter;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -27,6 +32,12 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${ch.frostnova.platform.security.jwt-cache.max-size:10000}")
+    private int authenticationCacheMaxSize;
+
     @Override
     protected void configure(HttpSecurity httpSecurity) throws Exception {
 
@@ -44,12 +55,20 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
                 ).permitAll()
                 .anyRequest().authenticated()
                 .and()
-                .addFilterBefore(new BearerTokenAuthenticationFilter(tokenAuthenticator, objectMapper), UsernamePasswordAuthenticationFilter.class)
+                .addFilterBefore(new BearerTokenAuthenticationFilter(tokenAuthenticator, objectMapper, authenticationCache()), UsernamePasswordAuthenticationFilter.class)
                 .sessionManagement()
                 .sessionCreationPolicy(SessionCreationPolicy.STATELESS);
 
     }
 
+    private ExpiringCache<TokenDigest, UserInfo> authenticationCache() {
+        ExpiringCache<TokenDigest, UserInfo> cache = new ExpiringCache<>("authentication-cache", authenticationCacheMaxSize);
+        if (meterRegistry != null) {
+            cache.bindTo(meterRegistry);
+        }
+        return cache;
+    }
+
     @Override
     protected void configure(AuthenticationManagerBuilder authManager) {
         // prevent autoconfiguration
@@ -5,6 +5,8 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -17,18 +19,31 @@ import java.security.PublicKey;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
 import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.regex.Pattern;
 
+/**
+ * Signing key configuration: the primary key (used for signing and for verifying tokens without key id), and optional
+ * additional keys (by key id), e.g. a shared HMAC secret for service-to-service tokens next to the EC key pair for
+ * user tokens.
+ */
 @Component
 @ConfigurationProperties("ch.frostnova.platform.security.signing")
 public class SigningConfig {
 
+    public final static String DEFAULT_KEY_ID = "default";
+
     private SigningKeyType keyType;
+    private String keyId;
     private String publicKey;
     private String privateKey;
+    private String secret;
+    private Map<String, KeyConfig> additionalKeys = new LinkedHashMap<>();
     private PrivateKey resolvedPrivateKey;
     private PublicKey resolvedPublicKey;
+    private final Map<String, SigningKey> signingKeys = new LinkedHashMap<>();
 
     public static PrivateKey loadPrivateKey(String keyType, URL resource) {
         try {
@@ -60,6 +75,28 @@ public class SigningConfig {
         }
     }
 
+    public static SecretKey loadSecretKey(SigningKeyType keyType, URL resource) {
+        try {
+            if (keyType == null || !keyType.isSymmetric()) {
+                throw new IllegalArgumentException("HMAC keyType is required");
+            }
+            if (resource == null) {
+                throw new IllegalArgumentException("resource is required");
+            }
+            byte[] secret;
+            try (InputStream in = resource.openStream()) {
+                secret = Base64.getMimeDecoder().decode(new String(in.readAllBytes(), StandardCharsets.ISO_8859_1).trim());
+            }
+            if (secret.length < keyType.getMinSecretLength()) {
+                throw new IllegalArgumentException(String.format("Secret for %s must have at least %d bytes, but has %d bytes",
+                        keyType, keyType.getMinSecretLength(), secret.length));
+            }
+            return new SecretKeySpec(secret, keyType.getKeyType());
+        } catch (Exception ex) {
+            throw new RuntimeException("Unable to load secret key: " + resource, ex);
+        }
+    }
+
     private static byte[] loadPEM(URL resource) throws IOException {
         try (InputStream in = resource.openStream()) {
             String pem = new String(in.readAllBytes(), StandardCharsets.ISO_8859_1);
@@ -73,14 +110,42 @@ public class SigningConfig {
 
     @PostConstruct
     private void init() throws IOException {
-        if (privateKey != null) {
-            resolvedPrivateKey = loadPrivateKey(requireKeyType().getKeyType(), getResource(privateKey));
+        if (privateKey != null || publicKey != null || secret != null) {
+            SigningKey primaryKey = resolve(getKeyId(), requireKeyType(), publicKey, privateKey, secret);
+            if (!primaryKey.getKeyType().isSymmetric()) {
+                resolvedPrivateKey = primaryKey.canSign() ? (PrivateKey) primaryKey.requireSigningKey() : null;
+                resolvedPublicKey = primaryKey.canVerify() ? (PublicKey) primaryKey.requireVerificationKey() : null;
+            }
+            signingKeys.put(primaryKey.getKeyId(), primaryKey);
         }
-        if (publicKey != null) {
-            resolvedPublicKey = loadPublicKey(requireKeyType().getKeyType(), getResource(publicKey));
+        for (Map.Entry<String, KeyConfig> entry : additionalKeys.entrySet()) {
+            KeyConfig config = entry.getValue();
+            if (signingKeys.containsKey(entry.getKey())) {
+                throw new IllegalStateException("Duplicate signing key id: " + entry.getKey());
+            }
+            if (config.getKeyType() == null) {
+                throw new IllegalStateException("Missing key type for signing key: " + entry.getKey());
+            }
+            signingKeys.put(entry.getKey(), resolve(entry.getKey(), config.getKeyType(), config.getPublicKey(), config.getPrivateKey(), config.getSecret()));
         }
     }
 
+    private SigningKey resolve(String id, SigningKeyType type, String publicKeyPath, String privateKeyPath, String secretPath) throws IOException {
+        if (type.isSymmetric()) {
+            if (secretPath == null) {
+                throw new IllegalStateException("Missing secret for signing key: " + id);
+            }
+            SecretKey secretKey = loadSecretKey(type, getResource(secretPath));
+            return new SigningKey(id, type, secretKey, secretKey);
+        }
+        if (secretPath != null) {
+            throw new IllegalStateException("Secret not supported for " + type + " signing key: " + id);
+        }
+        PrivateKey signingKey = privateKeyPath != null ? loadPrivateKey(type.getKeyType(), getResource(privateKeyPath)) : null;
+        PublicKey verificationKey = publicKeyPath != null ? loadPublicKey(type.getKeyType(), getResource(publicKeyPath)) : null;
+        return new SigningKey(id, type, signingKey, verificationKey);
+    }
+
     private URL getResource(String resourcePath) throws IOException {
 
         // attempt to locate Java resource
@@ -108,6 +173,14 @@ public class SigningConfig {
         this.keyType = keyType;
     }
 
+    public String getKeyId() {
+        return Optional.ofNullable(keyId).orElse(DEFAULT_KEY_ID);
+    }
+
+    public void setKeyId(String keyId) {
+        this.keyId = keyId;
+    }
+
     public String getPublicKey() {
         return publicKey;
     }
@@ -124,6 +197,56 @@ public class SigningConfig {
         this.privateKey = privateKey;
     }
 
+    public String getSecret() {
+        return secret;
+    }
+
+    public void setSecret(String secret) {
+        this.secret = secret;
+    }
+
+    public Map<String, KeyConfig> getAdditionalKeys() {
+        return additionalKeys;
+    }
+
+    public void setAdditionalKeys(Map<String, KeyConfig> additionalKeys) {
+        this.additionalKeys = additionalKeys;
+    }
+
+    /**
+     * Get the primary signing key.
+     *
+     * @return primary signing key
+     * @throws UnsupportedOperationException if no key is configured
+     */
+    public SigningKey requireSigningKey() {
+        return Optional.ofNullable(signingKeys.get(getKeyId())).orElseThrow(() -> new UnsupportedOperationException("No signing key configured"));
+    }
+
+    /**
+     * Get the signing key with the given key id.
+     *
+     * @param keyId key id, null for the primary key
+     * @return signing key
+     * @throws IllegalArgumentException if no such key is configured
+     */
+    public SigningKey requireSigningKey(String keyId) {
+        if (keyId == null) {
+            return requireSigningKey();
+        }
+        return findSigningKey(keyId).orElseThrow(() -> new IllegalArgumentException("Unknown signing key: " + keyId));
+    }
+
+    /**
+     * Find the signing key with the given key id.
+     *
+     * @param keyId key id, null for the primary key
+     * @return signing key, empty if no such key is configured
+     */
+    public Optional<SigningKey> findSigningKey(String keyId) {
+        return Optional.ofNullable(signingKeys.get(keyId != null ? keyId : getKeyId()));
+    }
+
     public SigningKeyType requireKeyType() {
         return Optional.ofNullable(keyType).orElseThrow(() -> new IllegalStateException("Missing key type in signing config"));
     }
@@ -137,16 +260,38 @@ public class SigningConfig {
     }
 
     public enum SigningKeyType {
-        RSA("RSA", SignatureAlgorithm.RS256),
-        EC("EC", SignatureAlgorithm.ES256);
+        RSA("RSA", SignatureAlgorithm.RS256, 0),
+        EC("EC", SignatureAlgorithm.ES256, 0),
+        HS256("HmacSHA256", SignatureAlgorithm.HS256, 32),
+        HS512("HmacSHA512", SignatureAlgorithm.HS512, 64);
 
         private final String keyType;
         private final SignatureAlgorithm signatureAlgorithm;
+        private final int minSecretLength;
 
-
-        SigningKeyType(String keyType, SignatureAlgorithm signatureAlgorithm) {
+        SigningKeyType(String keyType, SignatureAlgorithm signatureAlgorithm, int minSecretLength) {
             this.keyType = keyType;
             this.signatureAlgorithm = signatureAlgorithm;
+            this.minSecretLength = minSecretLength;
+        }
+
+        /**
+         * Symmetric (HMAC) key types use a shared secret for both signing and verification.
+         *
+         * @return true if symmetric, false if asymmetric (key pair)
+         */
+        public boolean isSymmetric() {
+            return signatureAlgorithm.isHmac();
+        }
+
+        /**
+         * Min. length of the shared secret (in bytes) for symmetric key types, which is the output length of the hash
+         * algorithm.
+         *
+         * @return min. secret length
+         */
+        public int getMinSecretLength() {
+            return minSecretLength;
         }
 
         public SignatureAlgorithm getSignatureAlgorithm() {
@@ -157,4 +302,47 @@ public class SigningConfig {
             return keyType;
         }
     }
+
+    /**
+     * Configuration of an additional signing key.
+     */
+    public static class KeyConfig {
+
+        private SigningKeyType keyType;
+        private String publicKey;
+        private String privateKey;
+        private String secret;
+
+        public SigningKeyType getKeyType() {
+            return keyType;
+        }
+
+        public void setKeyType(SigningKeyType keyType) {
+            this.keyType = keyType;
+        }
+
+        public String getPublicKey() {
+            return publicKey;
+        }
+
+        public void setPublicKey(String publicKey) {
+            this.publicKey = publicKey;
+        }
+
+        public String getPrivateKey() {
+            return privateKey;
+        }
+
+        public void setPrivateKey(String privateKey) {
+            this.privateKey = privateKey;
+        }
+
+        public String getSecret() {
+            return secret;
+        }
+
+        public void setSecret(String secret) {
+            this.secret = secret;
+        }
+    }
 }
@@ -0,0 +1,56 @@
+package ch.frostnova.spring.boot.platform.config;
+
+import ch.frostnova.spring.boot.platform.config.SigningConfig.SigningKeyType;
+
+import java.security.Key;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Resolved signing key, identified by its key id (<code>kid</code> header of a JWT). <p>
+ * For asymmetric key types (RSA, EC), the private key is used for signing and the public key for verification. For
+ * HMAC key types, the shared secret is used for both.
+ */
+public final class SigningKey {
+
+    private final String keyId;
+    private final SigningKeyType keyType;
+    private final Key signingKey;
+    private final Key verificationKey;
+
+    public SigningKey(String keyId, SigningKeyType keyType, Key signingKey, Key verificationKey) {
+        this.keyId = Objects.requireNonNull(keyId, "keyId is required");
+        this.keyType = Objects.requireNonNull(keyType, "keyType is required");
+        this.signingKey = signingKey;
+        this.verificationKey = verificationKey;
+    }
+
+    public String getKeyId() {
+        return keyId;
+    }
+
+    public SigningKeyType getKeyType() {
+        return keyType;
+    }
+
+    public Key requireSigningKey() {
+        return Optional.ofNullable(signingKey).orElseThrow(() -> new UnsupportedOperationException("Signing not possible - no private key configured for key '" + keyId + "'"));
+    }
+
+    public Key requireVerificationKey() {
+        return Optional.ofNullable(verificationKey).orElseThrow(() -> new UnsupportedOperationException("Verification not possible - no public key configured for key '" + keyId + "'"));
+    }
+
+    public boolean canSign() {
+        return signingKey != null;
+    }
+
+    public boolean canVerify() {
+        return verificationKey != null;
+    }
+
+    @Override
+    public String toString() {
+        return keyId + " (" + keyType + ")";
+    }
+}
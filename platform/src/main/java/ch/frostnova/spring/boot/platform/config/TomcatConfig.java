@@ -1,10 +1,13 @@
 package ch.frostnova.spring.boot.platform.config;
 
+import ch.frostnova.spring.boot.platform.util.VirtualThreads;
 import org.apache.catalina.Context;
 import org.apache.catalina.connector.Connector;
 import org.apache.coyote.http11.Http11NioProtocol;
 import org.apache.tomcat.util.descriptor.web.SecurityCollection;
 import org.apache.tomcat.util.descriptor.web.SecurityConstraint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
 import org.springframework.boot.web.servlet.server.ServletWebServerFactory;
@@ -12,13 +15,22 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
 
 /**
- * Tomcat settings: enforce HTTPS, redirect from HTTP port to HTTPS.
+ * Tomcat settings: enforce HTTPS, redirect from HTTP port to HTTPS. <p>
+ * Opt-in: with <code>ch.frostnova.platform.tomcat.virtual-threads: true</code>, requests are handled on virtual threads
+ * (one per request) instead of the bounded worker pool, so requests blocking on JDBC or remote calls do not exhaust the
+ * workers. Requires a Java 21+ runtime (falls back to the worker pool on older runtimes).
  */
 @Configuration
 public class TomcatConfig {
 
+    private final static Logger logger = LoggerFactory.getLogger(TomcatConfig.class);
+
+    @Value("${ch.frostnova.platform.tomcat.virtual-threads:false}")
+    private boolean virtualThreads;
+
     @Value("${http.server.port:#{null}}")
     private Integer serverPortHttp;
 
@@ -29,6 +41,16 @@ public class TomcatConfig {
     public ServletWebServerFactory servletContainer() {
         TomcatServletWebServerFactory tomcat = new TomcatFactory();
         createHttpConnector().ifPresent(tomcat::addAdditionalTomcatConnectors);
+        if (virtualThreads) {
+            if (VirtualThreads.isSupported()) {
+                ExecutorService executor = VirtualThreads.newVirtualThreadPerTaskExecutor("http-vt-");
+                tomcat.addProtocolHandlerCustomizers(protocolHandler -> protocolHandler.setExecutor(executor));
+                logger.info("Tomcat request handling on virtual threads");
+            } else {
+                logger.warn("Virtual threads requested, but not supported by the Java runtime (Java {}, requires 21+): using the worker pool",
+                        Runtime.version().feature());
+            }
+        }
         return tomcat;
     }
 
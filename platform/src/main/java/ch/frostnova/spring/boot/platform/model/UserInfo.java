@@ -3,23 +3,42 @@ package ch.frostnova.spring.boot.platform.model;
 import io.swagger.v3.oas.annotations.media.Schema;
 
 import java.text.Collator;
+import java.time.Instant;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
-import java.util.function.Consumer;
 
+/**
+ * Immutable user information (as resolved from a security token), safe to be cached and shared between threads.
+ */
 @Schema
 public class UserInfo {
 
-    private final Set<String> roles = new TreeSet<>(Collator.getInstance());
-    private final Map<String, String> additionalClaims = new TreeMap<>(Collator.getInstance());
-    private String tenant;
-    private String login;
-
-    private UserInfo() {
+    private final Set<String> roles;
+    private final Map<String, String> additionalClaims;
+    private final String tenant;
+    private final String login;
+    private final Instant expiresAt;
+    private final int hashCode;
+
+    private UserInfo(Builder builder) {
+        Collator collator = Collator.getInstance();
+        Set<String> sortedRoles = new TreeSet<>(collator);
+        sortedRoles.addAll(builder.roles);
+        Map<String, String> sortedClaims = new TreeMap<>(collator);
+        sortedClaims.putAll(builder.additionalClaims);
+
+        roles = Collections.unmodifiableSet(sortedRoles);
+        additionalClaims = Collections.unmodifiableMap(sortedClaims);
+        tenant = builder.tenant;
+        login = builder.login;
+        expiresAt = builder.expiresAt;
+        hashCode = Objects.hash(tenant, login, roles);
     }
 
     public static Builder aUserInfo() {
@@ -38,7 +57,7 @@ public class UserInfo {
 
     @Schema(description = "set of granted roles", example = "foo, bla")
     public Set<String> getRoles() {
-        return Collections.unmodifiableSet(roles);
+        return roles;
     }
 
     @Schema(description = "map of additional claims")
@@ -46,6 +65,11 @@ public class UserInfo {
         return additionalClaims;
     }
 
+    @Schema(description = "expiration of the authentication (optional)", example = "2020-01-01T12:34:56Z")
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -71,59 +95,67 @@ public class UserInfo {
 
     @Override
     public int hashCode() {
-        return Objects.hash(tenant, login, roles);
+        return hashCode;
     }
 
     public static class Builder {
 
-        private final UserInfo instance = new UserInfo();
+        private final Set<String> roles = new LinkedHashSet<>();
+        private final Map<String, String> additionalClaims = new HashMap<>();
+        private String tenant;
+        private String login;
+        private Instant expiresAt;
         private boolean consumed;
 
-        private Builder set(Consumer<UserInfo> access) {
+        private Builder set(Runnable access) {
             if (consumed) {
                 throw new IllegalStateException("already consumed");
             }
-            access.accept(instance);
+            access.run();
             return this;
         }
 
         public Builder tenant(String tenant) {
-            return set(x -> x.tenant = tenant);
+            return set(() -> this.tenant = tenant);
         }
 
         public Builder login(String login) {
-            return set(x -> x.login = login);
+            return set(() -> this.login = login);
         }
 
         public Builder roles(Set<String> roles) {
-            return set(x -> {
-                x.roles.clear();
+            return set(() -> {
+                this.roles.clear();
                 if (roles != null) {
-                    x.roles.addAll(roles);
+                    this.roles.addAll(roles);
                 }
             });
         }
 
         public Builder role(String role) {
-            return set(x -> x.roles.add(role));
+            return set(() -> roles.add(role));
         }
 
         public Builder additionalClaims(Map<String, String> additionalClaims) {
-            return set(x -> {
-                x.additionalClaims.clear();
+            return set(() -> {
+                this.additionalClaims.clear();
                 if (additionalClaims != null) {
-                    x.additionalClaims.putAll(additionalClaims);
+                    this.additionalClaims.putAll(additionalClaims);
                 }
             });
         }
 
         public Builder additionalClaim(String key, String value) {
-            return set(x -> x.additionalClaims.put(key, value));
+            return set(() -> additionalClaims.put(key, value));
+        }
+
+        public Builder expiresAt(Instant expiresAt) {
+            return set(() -> this.expiresAt = expiresAt);
         }
 
         public UserInfo build() {
             consumed = true;
-            return instance;
+            return new UserInfo(this);
         }
     }
 }
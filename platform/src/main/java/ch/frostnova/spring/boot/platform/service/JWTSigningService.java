@@ -8,4 +8,15 @@ import java.time.OffsetDateTime;
 public interface JWTSigningService {
 
     String createJWT(UserInfo userInfo, OffsetDateTime validFrom, Duration validity);
+
+    /**
+     * Create a JWT signed with the given signing key (e.g. a shared HMAC key for service-to-service calls).
+     *
+     * @param userInfo  user info, required
+     * @param validFrom valid from, required
+     * @param validity  validity, required
+     * @param keyId     key id (sent in the <code>kid</code> header), null for the primary key
+     * @return JWT
+     */
+    String createJWT(UserInfo userInfo, OffsetDateTime validFrom, Duration validity, String keyId);
 }
@@ -1,9 +1,21 @@
 package ch.frostnova.spring.boot.platform.service;
 
+import ch.frostnova.spring.boot.platform.util.TokenDigest;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jws;
 
 public interface JWTVerificationService {
 
     Jws<Claims> verify(String token);
+
+    /**
+     * Verify a token whose digest the caller already computed (verified tokens are cached by digest).
+     *
+     * @param token  token, required
+     * @param digest digest of the token, required
+     * @return verified claims
+     */
+    default Jws<Claims> verify(String token, TokenDigest digest) {
+        return verify(token);
+    }
 }
@@ -1,9 +1,125 @@
 package ch.frostnova.spring.boot.platform.service;
 
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Signing service. Signatures are computed incrementally, the streaming variants (input stream, byte buffer, channel,
+ * file) use a fixed-size buffer, regardless of the size of the data.
+ */
 public interface SigningService {
 
     byte[] sign(byte[] data) throws Exception;
 
     boolean verify(byte[] data, byte[] signatureBytes) throws Exception;
 
+    /**
+     * Sign data with the given signing key.
+     *
+     * @param keyId key id, null for the primary key
+     * @param data  data, required
+     * @return signature
+     */
+    byte[] sign(String keyId, byte[] data) throws Exception;
+
+    /**
+     * Verify the signature of data with the given signing key.
+     *
+     * @param keyId          key id, null for the primary key
+     * @param data           data, required
+     * @param signatureBytes signature, required
+     * @return true if the signature is valid, false otherwise
+     */
+    boolean verify(String keyId, byte[] data, byte[] signatureBytes) throws Exception;
+
+    /**
+     * Sign the remaining bytes of a buffer (the buffer position is advanced to its limit).
+     *
+     * @param keyId key id, null for the primary key
+     * @param data  data, required
+     * @return signature
+     */
+    byte[] sign(String keyId, ByteBuffer data) throws Exception;
+
+    /**
+     * Verify the signature of the remaining bytes of a buffer (the buffer position is advanced to its limit).
+     *
+     * @param keyId          key id, null for the primary key
+     * @param data           data, required
+     * @param signatureBytes signature, required
+     * @return true if the signature is valid, false otherwise
+     */
+    boolean verify(String keyId, ByteBuffer data, byte[] signatureBytes) throws Exception;
+
+    /**
+     * Sign the data read from an input stream (until the end of the stream, the stream is not closed).
+     *
+     * @param keyId key id, null for the primary key
+     * @param in    input stream, required
+     * @return signature
+     */
+    byte[] sign(String keyId, InputStream in) throws Exception;
+
+    /**
+     * Verify the signature of the data read from an input stream (until the end of the stream, the stream is not
+     * closed).
+     *
+     * @param keyId          key id, null for the primary key
+     * @param in             input stream, required
+     * @param signatureBytes signature, required
+     * @return true if the signature is valid, false otherwise
+     */
+    boolean verify(String keyId, InputStream in, byte[] signatureBytes) throws Exception;
+
+    /**
+     * Sign the data read from a channel (until the end of the channel, the channel is not closed).
+     *
+     * @param keyId   key id, null for the primary key
+     * @param channel channel, required
+     * @return signature
+     */
+    byte[] sign(String keyId, ReadableByteChannel channel) throws Exception;
+
+    /**
+     * Verify the signature of the data read from a channel (until the end of the channel, the channel is not closed).
+     *
+     * @param keyId          key id, null for the primary key
+     * @param channel        channel, required
+     * @param signatureBytes signature, required
+     * @return true if the signature is valid, false otherwise
+     */
+    boolean verify(String keyId, ReadableByteChannel channel, byte[] signatureBytes) throws Exception;
+
+    /**
+     * Sign a file. The file is memory-mapped (in segments), so it is not copied to the heap.
+     *
+     * @param keyId key id, null for the primary key
+     * @param file  file, required
+     * @return signature
+     */
+    byte[] sign(String keyId, Path file) throws Exception;
+
+    /**
+     * Verify the signature of a file. The file is memory-mapped (in segments), so it is not copied to the heap.
+     *
+     * @param keyId          key id, null for the primary key
+     * @param file           file, required
+     * @param signatureBytes signature, required
+     * @return true if the signature is valid, false otherwise
+     */
+    boolean verify(String keyId, Path file, byte[] signatureBytes) throws Exception;
+
+    /**
+     * Sign several payloads in parallel, on the given executor (in chunks, at most one chunk per available core).
+     *
+     * @param keyId    key id, null for the primary key
+     * @param data     payloads, required
+     * @param executor executor running the signing tasks, required
+     * @return signatures, in the same order as the payloads
+     */
+    List<byte[]> signAll(String keyId, List<byte[]> data, Executor executor) throws Exception;
 }
@@ -1,8 +1,22 @@
 package ch.frostnova.spring.boot.platform.service;
 
 import ch.frostnova.spring.boot.platform.model.UserInfo;
+import ch.frostnova.spring.boot.platform.util.TokenDigest;
 
 public interface TokenAuthenticator {
 
     UserInfo authenticate(String token) throws SecurityException;
+
+    /**
+     * Authenticate a token whose digest the caller already computed (so implementations caching by token digest do
+     * not need to hash the token again).
+     *
+     * @param token  token, required
+     * @param digest digest of the token, required
+     * @return user info
+     * @throws SecurityException if the token is not valid
+     */
+    default UserInfo authenticate(String token, TokenDigest digest) throws SecurityException {
+        return authenticate(token);
+    }
 }
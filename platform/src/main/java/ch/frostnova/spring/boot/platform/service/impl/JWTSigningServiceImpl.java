@@ -1,27 +1,26 @@
 package ch.frostnova.spring.boot.platform.service.impl;
 
 import ch.frostnova.spring.boot.platform.config.SigningConfig;
+import ch.frostnova.spring.boot.platform.config.SigningKey;
 import ch.frostnova.spring.boot.platform.model.UserInfo;
 import ch.frostnova.spring.boot.platform.service.JWTSigningService;
+import io.jsonwebtoken.JwsHeader;
 import io.jsonwebtoken.Jwts;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
 import java.time.Duration;
 import java.time.OffsetDateTime;
+import java.util.Collections;
 import java.util.Date;
-import java.util.Map;
-import java.util.Optional;
-import java.util.TreeSet;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @Service
-@ConditionalOnProperty(value = "ch.frostnova.platform.security.signing.private-key")
+@ConditionalOnExpression("'${ch.frostnova.platform.security.signing.private-key:}' != '' or '${ch.frostnova.platform.security.signing.secret:}' != ''")
 public class JWTSigningServiceImpl implements JWTSigningService {
 
     private final static String CLAIM_TENANT = "tenant";
@@ -39,24 +38,33 @@ public class JWTSigningServiceImpl implements JWTSigningService {
     @PostConstruct
     public void init() {
 
-        signingConfig.requirePublicKey();
+        signingConfig.requireSigningKey().requireSigningKey();
         logger.warn("{} is activated, service can issue self-signed JWT security tokens - do not use in production", getClass().getSimpleName());
     }
 
     @Override
     public String createJWT(UserInfo userInfo, OffsetDateTime validFrom, Duration validity) {
+        return createJWT(userInfo, validFrom, validity, null);
+    }
+
+    @Override
+    public String createJWT(UserInfo userInfo, OffsetDateTime validFrom, Duration validity, String keyId) {
+
+        SigningKey signingKey = signingConfig.requireSigningKey(keyId);
 
+        Date validFromDate = Date.from(validFrom.toInstant());
         return Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, signingKey.getKeyId())
                 .setIssuer(appName)
                 .setId(UUID.randomUUID().toString())
-                .setIssuedAt(Date.from(validFrom.toInstant()))
-                .setNotBefore(Date.from(validFrom.toInstant()))
+                .setIssuedAt(validFromDate)
+                .setNotBefore(validFromDate)
                 .setExpiration(Date.from(validFrom.plus(validity).toInstant()))
                 .claim(CLAIM_TENANT, userInfo.getTenant())
                 .setSubject(userInfo.getLogin())
-                .claim(CLAIM_SCOPE, Optional.ofNullable(userInfo.getRoles()).map(TreeSet::new).orElse(null))
-                .addClaims(userInfo.getAdditionalClaims().entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)))
-                .signWith(signingConfig.getKeyType().getSignatureAlgorithm(), signingConfig.requirePrivateKey())
+                .claim(CLAIM_SCOPE, userInfo.getRoles())
+                .addClaims(Collections.<String, Object>unmodifiableMap(userInfo.getAdditionalClaims()))
+                .signWith(signingKey.getKeyType().getSignatureAlgorithm(), signingKey.requireSigningKey())
                 .compact();
     }
 }
@@ -3,6 +3,7 @@ package ch.frostnova.spring.boot.platform.service.impl;
 import ch.frostnova.spring.boot.platform.model.UserInfo;
 import ch.frostnova.spring.boot.platform.service.JWTVerificationService;
 import ch.frostnova.spring.boot.platform.service.TokenAuthenticator;
+import ch.frostnova.spring.boot.platform.util.TokenDigest;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jws;
 import org.slf4j.Logger;
@@ -10,9 +11,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
@@ -34,12 +38,22 @@ public class JWTTokenAuthenticator implements TokenAuthenticator {
     public UserInfo authenticate(String token) throws SecurityException {
 
         logger.debug("Token: {}", token);
-        Jws<Claims> claims = jwtVerificationService.verify(token);
+        return userInfo(jwtVerificationService.verify(token));
+    }
+
+    @Override
+    public UserInfo authenticate(String token, TokenDigest digest) throws SecurityException {
+
+        logger.debug("Token: {}", token);
+        return userInfo(jwtVerificationService.verify(token, digest));
+    }
+
+    private UserInfo userInfo(Jws<Claims> claims) {
         Claims body = claims.getBody();
 
         logger.debug("Authenticated as: {}", body);
 
-        List<?> scopes = body.get("scope", List.class);
+        List<?> scopes = Optional.ofNullable(body.get("scope", List.class)).orElse(Collections.emptyList());
         Map<String, String> additionalClaims = new HashMap<>();
         body.forEach((key, value) -> {
             if (!RESERVED_CLAIMS.contains(key)) {
@@ -52,6 +66,7 @@ public class JWTTokenAuthenticator implements TokenAuthenticator {
                 .login(body.getSubject())
                 .roles(scopes.stream().map(String::valueOf).collect(Collectors.toSet()))
                 .additionalClaims(additionalClaims)
+                .expiresAt(Optional.ofNullable(body.getExpiration()).map(Date::toInstant).orElse(null))
                 .build();
     }
 
@@ -1,73 +1,246 @@
 package ch.frostnova.spring.boot.platform.service.impl;
 
 import ch.frostnova.spring.boot.platform.config.SigningConfig;
+import ch.frostnova.spring.boot.platform.config.SigningKey;
 import ch.frostnova.spring.boot.platform.service.JWTVerificationService;
+import ch.frostnova.spring.boot.platform.util.ExpiringCache;
+import ch.frostnova.spring.boot.platform.util.TokenDigest;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.PrematureJwtException;
+import io.jsonwebtoken.SignatureException;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
-import org.springframework.cache.Cache;
-import org.springframework.cache.CacheManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
+import java.security.Key;
+import java.time.Duration;
 import java.time.Instant;
-import java.util.Optional;
+import java.util.Base64;
+import java.util.Date;
 
+/**
+ * JWT verification service: <p>
+ * <ul>
+ * <li>verified tokens are cached (by token digest) until they expire.</li>
+ * <li>tokens are verified with the signing key referenced in the <code>kid</code> header (primary key if absent), so
+ * tokens signed with different key types (e.g. EC for users, HMAC for services) are accepted side by side.</li>
+ * <li>tokens are structurally checked (size, segments, known key id and matching signature algorithm in the header)
+ * before any cryptography runs.</li>
+ * <li>rejected tokens are cached (by token digest) for a short time, so repeatedly sent invalid tokens are rejected
+ * without being parsed and verified again. Premature tokens are cached at most until they become valid.</li>
+ * <li>rejections are counted in the <code>security.jwt.rejections</code> metric, by reason.</li>
+ * </ul>
+ */
 @Service
-@ConditionalOnProperty(value = "ch.frostnova.platform.security.signing.public-key")
+@ConditionalOnExpression("'${ch.frostnova.platform.security.signing.public-key:}' != '' or '${ch.frostnova.platform.security.signing.secret:}' != ''")
 public class JWTVerificationServiceImpl implements JWTVerificationService {
 
-    private final String CACHE_NAME = "jwt-cache";
+    private final static String CACHE_NAME = "jwt-cache";
+    private final static String REJECTION_CACHE_NAME = "jwt-rejection-cache";
+    private final static String REJECTION_METRIC = "security.jwt.rejections";
+    private final static int MAX_TOKEN_LENGTH = 8 * 1024;
 
     @Autowired
     private Logger logger;
 
     @Autowired
-    private CacheManager cacheManager;
+    private SigningConfig signingConfig;
 
     @Autowired
-    private SigningConfig signingConfig;
+    private ObjectMapper objectMapper;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${ch.frostnova.platform.security.jwt-cache.max-size:10000}")
+    private int cacheMaxSize;
+
+    @Value("${ch.frostnova.platform.security.jwt-cache.rejection-ttl:30s}")
+    private Duration rejectionTimeToLive;
+
+    /**
+     * Verified tokens (by token digest), each cached until the token expires.
+     */
+    private ExpiringCache<TokenDigest, Jws<Claims>> cache;
+
+    /**
+     * Rejected tokens (by token digest), each cached for the rejection TTL.
+     */
+    private ExpiringCache<TokenDigest, Rejection> rejectionCache;
+
+    /**
+     * Parser configured with the signing key resolver, built once. The parser is not modified after configuration,
+     * and parsing does not change its state, so it can be shared by concurrent verifications.
+     */
+    private JwtParser parser;
 
     @PostConstruct
     public void init() {
-        signingConfig.requirePublicKey();
-        logger.info("JWT caching {}", cacheManager != null ? "enabled" : "disabled");
+        signingConfig.requireSigningKey().requireVerificationKey();
+        parser = Jwts.parser().setSigningKeyResolver(new SigningKeyResolverAdapter() {
+            @Override
+            public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                return verificationKey(header.getKeyId(), header.getAlgorithm()).requireVerificationKey();
+            }
+        });
+        cache = new ExpiringCache<>(CACHE_NAME, cacheMaxSize);
+        rejectionCache = new ExpiringCache<>(REJECTION_CACHE_NAME, cacheMaxSize);
+        if (meterRegistry != null) {
+            cache.bindTo(meterRegistry);
+            rejectionCache.bindTo(meterRegistry);
+        }
+        logger.info("JWT caching enabled (max. {} tokens, rejections cached for {})", cacheMaxSize, rejectionTimeToLive);
     }
 
     @Override
     public Jws<Claims> verify(String token) {
+        checkSize(token);
+        return verify(token, TokenDigest.of(token));
+    }
 
-        // check if we have cached claims for that token
-        Optional<Jws<Claims>> cachedToken = getCache()
-                .map(cache -> cache.get(token))
-                .map(Cache.ValueWrapper::get)
-                .map(Jws.class::cast);
-
-        if (cachedToken.isPresent()) {
-            // check if token is still valid
-            Jws<Claims> jws = cachedToken.get();
-            Instant expiresAt = jws.getBody().getExpiration().toInstant();
-            if (expiresAt.isBefore(Instant.now())) {
-                // remove expired token from cache and throw exception
-                getCache().get().evict(token);
-                throw new ExpiredJwtException(jws.getHeader(), jws.getBody(), "Token is expired");
+    @Override
+    public Jws<Claims> verify(String token, TokenDigest digest) {
+        checkSize(token);
+
+        // check if we have cached claims for that token (expired tokens are not returned)
+        Jws<Claims> cachedToken = cache.get(digest);
+        if (cachedToken != null) {
+            return cachedToken;
+        }
+
+        // check if the token was rejected recently
+        Rejection rejection = rejectionCache.get(digest);
+        if (rejection != null) {
+            throw reject(rejection.exception(), rejection.reason, true);
+        }
+
+        Jws<Claims> result;
+        try {
+            checkStructure(token);
+            // parse and validate token
+            result = parser.parseClaimsJws(token);
+        } catch (JwtException | IllegalArgumentException ex) {
+            String reason = reason(ex);
+            Instant rejectedUntil = rejectedUntil(ex);
+            if (rejectedUntil.isAfter(Instant.now())) {
+                rejectionCache.put(digest, new Rejection(reason, ex.getMessage()), rejectedUntil);
             }
-            // return valid cached token
-            return jws;
+            throw reject(ex, reason, false);
         }
-        // parse and validate token
-        Jws<Claims> result = Jwts.parser().setSigningKey(signingConfig.requirePublicKey()).parseClaimsJws(token);
 
-        // cache token
-        getCache().ifPresent(cache -> cache.put(token, result));
+        // cache token until it expires (tokens without expiration are not cached)
+        Date expiration = result.getBody().getExpiration();
+        if (expiration != null) {
+            cache.put(digest, result, expiration.toInstant());
+        }
         return result;
     }
 
-    private Optional<Cache> getCache() {
-        return Optional.ofNullable(cacheManager).map(cm -> cm.getCache(CACHE_NAME));
+    private void checkSize(String token) {
+        if (token == null || token.length() > MAX_TOKEN_LENGTH) {
+            throw reject(new MalformedJwtException("Token is missing or exceeds " + MAX_TOKEN_LENGTH + " characters"), "size", false);
+        }
+    }
+
+    /**
+     * Cheap structural check before the signature is verified: three segments (header, payload and signature), and
+     * a header with a known key id and the signature algorithm of that key.
+     */
+    private void checkStructure(String token) {
+        int firstDot = token.indexOf('.');
+        int secondDot = firstDot > 0 ? token.indexOf('.', firstDot + 1) : -1;
+        if (secondDot < 0 || secondDot == token.length() - 1 || token.indexOf('.', secondDot + 1) >= 0) {
+            throw new MalformedJwtException("Expected signed JWT with header, payload and signature");
+        }
+        JsonNode header;
+        try {
+            header = objectMapper.readTree(Base64.getUrlDecoder().decode(token.substring(0, firstDot)));
+        } catch (Exception ex) {
+            throw new MalformedJwtException("Unable to read JWT header", ex);
+        }
+        verificationKey(header.path(JwsHeader.KEY_ID).textValue(), header.path(JwsHeader.ALGORITHM).asText());
+    }
+
+    /**
+     * Get the verification key for the key id, and check that the signature algorithm matches the key type (so a
+     * token cannot choose an algorithm the key was not meant for).
+     */
+    private SigningKey verificationKey(String keyId, String algorithm) {
+        SigningKey key = signingConfig.findSigningKey(keyId)
+                .filter(SigningKey::canVerify)
+                .orElseThrow(() -> new UnsupportedJwtException("Unknown signing key: " + keyId));
+        if (!key.getKeyType().getSignatureAlgorithm().getValue().equals(algorithm)) {
+            throw new UnsupportedJwtException("Unsupported signature algorithm for signing key " + key + ": " + algorithm);
+        }
+        return key;
+    }
+
+    /**
+     * Until when a rejected token is cached: for the rejection TTL, but a premature token only until it becomes valid
+     * (not before).
+     */
+    private Instant rejectedUntil(RuntimeException ex) {
+        Instant rejectedUntil = Instant.now().plus(rejectionTimeToLive);
+        Date notBefore = ex instanceof PrematureJwtException ? ((PrematureJwtException) ex).getClaims().getNotBefore() : null;
+        if (notBefore != null && notBefore.toInstant().isBefore(rejectedUntil)) {
+            return notBefore.toInstant();
+        }
+        return rejectedUntil;
+    }
+
+    private String reason(RuntimeException ex) {
+        if (ex instanceof ExpiredJwtException) {
+            return "expired";
+        }
+        if (ex instanceof PrematureJwtException) {
+            return "premature";
+        }
+        if (ex instanceof SignatureException) {
+            return "signature";
+        }
+        if (ex instanceof UnsupportedJwtException) {
+            return "unsupported";
+        }
+        if (ex instanceof MalformedJwtException) {
+            return "malformed";
+        }
+        return "invalid";
+    }
+
+    private RuntimeException reject(RuntimeException ex, String reason, boolean cached) {
+        if (meterRegistry != null) {
+            meterRegistry.counter(REJECTION_METRIC, "reason", reason, "cached", String.valueOf(cached)).increment();
+        }
+        return ex;
+    }
+
+    private static final class Rejection {
+
+        private final String reason;
+        private final String message;
+
+        private Rejection(String reason, String message) {
+            this.reason = reason;
+            this.message = message;
+        }
+
+        private JwtException exception() {
+            return new JwtException("Token rejected (" + reason + "): " + message);
+        }
     }
 }
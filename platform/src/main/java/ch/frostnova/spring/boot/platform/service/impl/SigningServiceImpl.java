@@ -1,40 +1,371 @@
 package ch.frostnova.spring.boot.platform.service.impl;
 
 import ch.frostnova.spring.boot.platform.config.SigningConfig;
+import ch.frostnova.spring.boot.platform.config.SigningKey;
 import ch.frostnova.spring.boot.platform.service.SigningService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import javax.crypto.Mac;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.PublicKey;
 import java.security.Signature;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 
+/**
+ * Signing service: signatures with the private key (verified with the public key) for asymmetric keys (RSA, EC),
+ * message authentication codes with the shared secret for symmetric keys (HMAC). <p>
+ * The initialized {@link Signature}/{@link Mac} instances (which are not thread-safe) are kept per thread and signing
+ * key, and reused: both reset to their initialized state after signing or verifying. An instance is discarded when an
+ * operation fails, as it may contain partial data. Streaming operations borrow their buffer from a small pool shared by
+ * all threads, so many short-lived threads (such as virtual threads) do not allocate a buffer each.
+ */
 @Service
 public class SigningServiceImpl implements SigningService {
 
+    private final static int BUFFER_SIZE = 64 * 1024;
+    private final static long MAPPED_SEGMENT_SIZE = 64 * 1024 * 1024;
+    private final static int PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    private final ThreadLocal<ThreadState> threadState = ThreadLocal.withInitial(ThreadState::new);
+    private final BufferPool<byte[]> buffers = new BufferPool<>(() -> new byte[BUFFER_SIZE]);
+    private final BufferPool<ByteBuffer> directBuffers = new BufferPool<>(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
     @Autowired
     private SigningConfig signingConfig;
 
     @Override
     public byte[] sign(byte[] data) throws Exception {
-        if (data == null) {
-            throw new IllegalArgumentException("data is required");
-        }
-        Signature signature = Signature.getInstance(signingConfig.requireKeyType().getSignatureAlgorithm().getJcaName());
-        signature.initSign(signingConfig.requirePrivateKey());
-        signature.update(data);
-        return signature.sign();
+        return sign(null, data);
     }
 
     @Override
     public boolean verify(byte[] data, byte[] signatureBytes) throws Exception {
-        if (data == null) {
-            throw new IllegalArgumentException("data is required");
+        return verify(null, data, signatureBytes);
+    }
+
+    @Override
+    public byte[] sign(String keyId, byte[] data) throws Exception {
+        requireArgument(data, "data");
+        return sign(keyId, engine -> engine.update(data, 0, data.length));
+    }
+
+    @Override
+    public boolean verify(String keyId, byte[] data, byte[] signatureBytes) throws Exception {
+        requireArgument(data, "data");
+        return verify(keyId, signatureBytes, engine -> engine.update(data, 0, data.length));
+    }
+
+    @Override
+    public byte[] sign(String keyId, ByteBuffer data) throws Exception {
+        requireArgument(data, "data");
+        return sign(keyId, engine -> engine.update(data));
+    }
+
+    @Override
+    public boolean verify(String keyId, ByteBuffer data, byte[] signatureBytes) throws Exception {
+        requireArgument(data, "data");
+        return verify(keyId, signatureBytes, engine -> engine.update(data));
+    }
+
+    @Override
+    public byte[] sign(String keyId, InputStream in) throws Exception {
+        requireArgument(in, "in");
+        return sign(keyId, engine -> update(engine, in));
+    }
+
+    @Override
+    public boolean verify(String keyId, InputStream in, byte[] signatureBytes) throws Exception {
+        requireArgument(in, "in");
+        return verify(keyId, signatureBytes, engine -> update(engine, in));
+    }
+
+    @Override
+    public byte[] sign(String keyId, ReadableByteChannel channel) throws Exception {
+        requireArgument(channel, "channel");
+        return sign(keyId, engine -> update(engine, channel));
+    }
+
+    @Override
+    public boolean verify(String keyId, ReadableByteChannel channel, byte[] signatureBytes) throws Exception {
+        requireArgument(channel, "channel");
+        return verify(keyId, signatureBytes, engine -> update(engine, channel));
+    }
+
+    @Override
+    public byte[] sign(String keyId, Path file) throws Exception {
+        requireArgument(file, "file");
+        return sign(keyId, engine -> update(engine, file));
+    }
+
+    @Override
+    public boolean verify(String keyId, Path file, byte[] signatureBytes) throws Exception {
+        requireArgument(file, "file");
+        return verify(keyId, signatureBytes, engine -> update(engine, file));
+    }
+
+    @Override
+    public List<byte[]> signAll(String keyId, List<byte[]> data, Executor executor) throws Exception {
+        requireArgument(data, "data");
+        requireArgument(executor, "executor");
+        String resolvedKeyId = signingConfig.requireSigningKey(keyId).getKeyId();
+
+        // one task per chunk of payloads, at most one chunk per core
+        int chunkSize = Math.max(1, (data.size() + PARALLELISM - 1) / PARALLELISM);
+        List<CompletableFuture<List<byte[]>>> chunks = new ArrayList<>();
+        for (int start = 0; start < data.size(); start += chunkSize) {
+            List<byte[]> chunk = data.subList(start, Math.min(start + chunkSize, data.size()));
+            chunks.add(CompletableFuture.supplyAsync(() -> {
+                List<byte[]> signatures = new ArrayList<>(chunk.size());
+                for (byte[] payload : chunk) {
+                    try {
+                        signatures.add(sign(resolvedKeyId, payload));
+                    } catch (Exception ex) {
+                        throw new SigningFailure(ex);
+                    }
+                }
+                return signatures;
+            }, executor));
+        }
+        List<byte[]> result = new ArrayList<>(data.size());
+        try {
+            for (CompletableFuture<List<byte[]>> chunk : chunks) {
+                result.addAll(chunk.join());
+            }
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof SigningFailure) {
+                throw (Exception) ex.getCause().getCause();
+            }
+            throw ex;
+        }
+        return result;
+    }
+
+    private byte[] sign(String keyId, Update update) throws Exception {
+        return apply(keyId, true, engine -> {
+            update.apply(engine);
+            return engine.sign();
+        });
+    }
+
+    private boolean verify(String keyId, byte[] signatureBytes, Update update) throws Exception {
+        requireArgument(signatureBytes, "signatureBytes");
+        return apply(keyId, false, engine -> {
+            update.apply(engine);
+            return engine.verify(signatureBytes);
+        });
+    }
+
+    /**
+     * Apply an operation with the thread's engine for the signing key. The engine is taken from the thread state
+     * while in use (so nested operations on the same thread get their own engine), and only put back when the
+     * operation succeeded.
+     */
+    private <T> T apply(String keyId, boolean signing, Operation<T> operation) throws Exception {
+        SigningKey key = signingConfig.requireSigningKey(keyId);
+        Map<String, SignatureEngine> engines = signing ? threadState.get().signers : threadState.get().verifiers;
+        SignatureEngine engine = engines.remove(key.getKeyId());
+        if (engine == null) {
+            engine = SignatureEngine.create(key, signing);
+        }
+        T result = operation.apply(engine);
+        engines.put(key.getKeyId(), engine);
+        return result;
+    }
+
+    private void update(SignatureEngine engine, InputStream in) throws Exception {
+        byte[] buffer = buffers.take();
+        try {
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                engine.update(buffer, 0, read);
+            }
+        } finally {
+            buffers.release(buffer);
+        }
+    }
+
+    private void update(SignatureEngine engine, ReadableByteChannel channel) throws Exception {
+        ByteBuffer buffer = directBuffers.take();
+        try {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                engine.update(buffer);
+                buffer.clear();
+            }
+        } finally {
+            buffer.clear();
+            directBuffers.release(buffer);
+        }
+    }
+
+    private void update(SignatureEngine engine, Path file) throws Exception {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += MAPPED_SEGMENT_SIZE) {
+                engine.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAPPED_SEGMENT_SIZE, size - position)));
+            }
+        }
+    }
+
+    private static void requireArgument(Object value, String name) {
+        if (value == null) {
+            throw new IllegalArgumentException(name + " is required");
+        }
+    }
+
+    @FunctionalInterface
+    private interface Update {
+        void apply(SignatureEngine engine) throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface Operation<T> {
+        T apply(SignatureEngine engine) throws Exception;
+    }
+
+    /**
+     * Common interface for {@link Signature} (asymmetric keys) and {@link Mac} (symmetric keys).
+     */
+    private interface SignatureEngine {
+
+        static SignatureEngine create(SigningKey key, boolean signing) throws GeneralSecurityException {
+            String algorithm = key.getKeyType().getSignatureAlgorithm().getJcaName();
+            if (key.getKeyType().isSymmetric()) {
+                Mac mac = Mac.getInstance(algorithm);
+                mac.init(key.requireSigningKey());
+                return new MacEngine(mac);
+            }
+            Signature signature = Signature.getInstance(algorithm);
+            if (signing) {
+                signature.initSign((PrivateKey) key.requireSigningKey());
+            } else {
+                signature.initVerify((PublicKey) key.requireVerificationKey());
+            }
+            return new AsymmetricEngine(signature);
+        }
+
+        void update(byte[] data, int offset, int length) throws GeneralSecurityException;
+
+        void update(ByteBuffer data) throws GeneralSecurityException;
+
+        byte[] sign() throws GeneralSecurityException;
+
+        boolean verify(byte[] signatureBytes) throws GeneralSecurityException;
+    }
+
+    private static final class AsymmetricEngine implements SignatureEngine {
+
+        private final Signature signature;
+
+        private AsymmetricEngine(Signature signature) {
+            this.signature = signature;
+        }
+
+        @Override
+        public void update(byte[] data, int offset, int length) throws GeneralSecurityException {
+            signature.update(data, offset, length);
         }
-        if (signatureBytes == null) {
-            throw new IllegalArgumentException("signatureBytes is required");
+
+        @Override
+        public void update(ByteBuffer data) throws GeneralSecurityException {
+            signature.update(data);
+        }
+
+        @Override
+        public byte[] sign() throws GeneralSecurityException {
+            return signature.sign();
+        }
+
+        @Override
+        public boolean verify(byte[] signatureBytes) throws GeneralSecurityException {
+            return signature.verify(signatureBytes);
+        }
+    }
+
+    private static final class MacEngine implements SignatureEngine {
+
+        private final Mac mac;
+
+        private MacEngine(Mac mac) {
+            this.mac = mac;
+        }
+
+        @Override
+        public void update(byte[] data, int offset, int length) {
+            mac.update(data, offset, length);
+        }
+
+        @Override
+        public void update(ByteBuffer data) {
+            mac.update(data);
+        }
+
+        @Override
+        public byte[] sign() {
+            return mac.doFinal();
+        }
+
+        @Override
+        public boolean verify(byte[] signatureBytes) {
+            // constant-time comparison
+            return MessageDigest.isEqual(mac.doFinal(), signatureBytes);
+        }
+    }
+
+    /**
+     * Per-thread state: initialized engines by key id.
+     */
+    private static final class ThreadState {
+
+        private final Map<String, SignatureEngine> signers = new HashMap<>();
+        private final Map<String, SignatureEngine> verifiers = new HashMap<>();
+    }
+
+    /**
+     * Bounded pool of streaming buffers: a buffer is only allocated when all pooled buffers are in use, and dropped
+     * when it is released to a full pool.
+     */
+    private static final class BufferPool<B> {
+
+        private final Queue<B> buffers = new ArrayBlockingQueue<>(PARALLELISM);
+        private final Supplier<B> allocator;
+
+        private BufferPool(Supplier<B> allocator) {
+            this.allocator = allocator;
+        }
+
+        B take() {
+            B buffer = buffers.poll();
+            return buffer != null ? buffer : allocator.get();
+        }
+
+        void release(B buffer) {
+            buffers.offer(buffer);
+        }
+    }
+
+    private static final class SigningFailure extends RuntimeException {
+
+        private SigningFailure(Exception cause) {
+            super(cause);
         }
-        Signature signature = Signature.getInstance(signingConfig.requireKeyType().getSignatureAlgorithm().getJcaName());
-        signature.initVerify(signingConfig.requirePublicKey());
-        signature.update(data);
-        return signature.verify(signatureBytes);
     }
 }
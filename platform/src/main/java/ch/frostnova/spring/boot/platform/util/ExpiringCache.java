@@ -0,0 +1,184 @@
+package ch.frostnova.spring.boot.platform.util;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded in-memory cache where each entry expires at its own point in time (e.g. the expiration of a token). <p>
+ * Expired entries are never returned, and are removed when accessed or when the cache is full. When the cache is
+ * still full after removing the expired entries, 10% of the entries are evicted (arbitrary entries, in hash order),
+ * so the cost of making room is amortized over many puts. The size limit is approximate under concurrent puts. <p>
+ * Publishes the standard cache metrics (<code>cache.gets</code> with hit/miss result, <code>cache.puts</code>,
+ * <code>cache.evictions</code> and <code>cache.size</code>) when bound to a {@link MeterRegistry}.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class ExpiringCache<K, V> implements MeterBinder {
+
+    private final String name;
+    private final int maxSize;
+    private final Clock clock;
+    private final Map<K, Entry<V>> entries;
+    private final Lock evictionLock = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ExpiringCache(String name, int maxSize) {
+        this(name, maxSize, Clock.systemUTC());
+    }
+
+    public ExpiringCache(String name, int maxSize, Clock clock) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be at least 1");
+        }
+        this.name = Objects.requireNonNull(name, "name is required");
+        this.maxSize = maxSize;
+        this.clock = Objects.requireNonNull(clock, "clock is required");
+        this.entries = new ConcurrentHashMap<>(Math.min(maxSize, 1024));
+    }
+
+    /**
+     * Get the cached value for the given key, unless it is expired.
+     *
+     * @param key key, required
+     * @return cached value, or null if there is no such value or it is expired
+     */
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null) {
+            if (entry.expiresAt > clock.millis()) {
+                hits.increment();
+                return entry.value;
+            }
+            entries.remove(key, entry);
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Cache a value until the given expiration. Values which are already expired are not cached.
+     *
+     * @param key       key, required
+     * @param value     value, required
+     * @param expiresAt expiration, required
+     */
+    public void put(K key, V value, Instant expiresAt) {
+        long expiresAtMillis = expiresAt.toEpochMilli();
+        if (expiresAtMillis <= clock.millis()) {
+            return;
+        }
+        if (entries.size() >= maxSize && !entries.containsKey(key)) {
+            makeRoom();
+        }
+        entries.put(key, new Entry<>(value, expiresAtMillis));
+        puts.increment();
+    }
+
+    /**
+     * Remove the value for the given key, if cached.
+     *
+     * @param key key, required
+     */
+    public void evict(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Remove all cached values.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Number of cached values (including expired values which were not removed yet).
+     *
+     * @return size
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    private void makeRoom() {
+        // only one thread makes room, concurrent puts proceed meanwhile
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            long now = clock.millis();
+            entries.values().removeIf(entry -> entry.expiresAt <= now);
+            int excess = entries.size() - maxSize + Math.max(1, maxSize / 10);
+            Iterator<K> iterator = entries.keySet().iterator();
+            while (excess-- > 0 && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+                evictions.increment();
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        // same tag keys as the Spring Boot cache metrics (Prometheus requires the same tag keys per metric name)
+        Tags tags = Tags.of("cache", name, "name", name, "cacheManager", "platform");
+        FunctionCounter.builder("cache.gets", hits, LongAdder::sum)
+                .tags(tags).tag("result", "hit")
+                .description("the number of times cache lookup methods have returned a cached value")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::sum)
+                .tags(tags).tag("result", "miss")
+                .description("the number of times cache lookup methods have not returned a value")
+                .register(registry);
+        FunctionCounter.builder("cache.puts", puts, LongAdder::sum)
+                .tags(tags)
+                .description("the number of entries added to the cache")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", evictions, LongAdder::sum)
+                .tags(tags)
+                .description("the number of entries evicted from the cache because it was full")
+                .register(registry);
+        Gauge.builder("cache.size", entries, Map::size)
+                .tags(tags)
+                .description("the number of entries in the cache")
+                .register(registry);
+    }
+
+    private static final class Entry<V> {
+
+        private final V value;
+        private final long expiresAt;
+
+        private Entry(V value, long expiresAt) {
+            this.value = Objects.requireNonNull(value, "value is required");
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package ch.frostnova.spring.boot.platform.util;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, lock-free multi-producer/multi-consumer FIFO ring buffer. <p>
+ * Each slot carries a sequence number telling whether it is free for the producer or filled for the consumer of a
+ * given position, so producers and consumers only compete on their own position counter (compare-and-set), and never
+ * block. When the buffer is full, {@link #offer(Object)} drops the element and counts the drop instead of waiting,
+ * which keeps producers (such as request threads) from ever being slowed down by a lagging consumer.
+ *
+ * @param <T> element type
+ */
+public class RingBuffer<T> {
+
+    private final static int MAX_CAPACITY = 1 << 30;
+
+    private final int mask;
+    private final AtomicReferenceArray<T> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong producerPosition = new AtomicLong();
+    private final AtomicLong consumerPosition = new AtomicLong();
+    private final LongAdder drops = new LongAdder();
+
+    /**
+     * Create a ring buffer.
+     *
+     * @param capacity capacity, rounded up to the next power of two
+     */
+    public RingBuffer(int capacity) {
+        if (capacity < 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("capacity must be between 1 and " + MAX_CAPACITY);
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        mask = size - 1;
+        elements = new AtomicReferenceArray<>(size);
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Add an element, unless the buffer is full.
+     *
+     * @param element element, required
+     * @return true if the element was added, false if it was dropped because the buffer is full
+     */
+    public boolean offer(T element) {
+        Objects.requireNonNull(element, "element is required");
+        long position = producerPosition.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (producerPosition.compareAndSet(position, position + 1)) {
+                    elements.set(index, element);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = producerPosition.get();
+            } else if (difference < 0) {
+                drops.increment();
+                return false;
+            } else {
+                position = producerPosition.get();
+            }
+        }
+    }
+
+    /**
+     * Remove the oldest element.
+     *
+     * @return oldest element, or null if the buffer is empty
+     */
+    public T poll() {
+        long position = consumerPosition.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (consumerPosition.compareAndSet(position, position + 1)) {
+                    T element = elements.get(index);
+                    elements.set(index, null);
+                    sequences.set(index, position + mask + 1);
+                    return element;
+                }
+                position = consumerPosition.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = consumerPosition.get();
+            }
+        }
+    }
+
+    /**
+     * Capacity of the buffer.
+     *
+     * @return capacity
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Approximate number of elements in the buffer (exact when there are no concurrent updates).
+     *
+     * @return number of elements
+     */
+    public int size() {
+        long size = producerPosition.get() - consumerPosition.get();
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+
+    /**
+     * Number of elements dropped so far because the buffer was full.
+     *
+     * @return number of dropped elements
+     */
+    public long getDropCount() {
+        return drops.sum();
+    }
+}
@@ -0,0 +1,62 @@
+package ch.frostnova.spring.boot.platform.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Fixed-size (128 bit) digest of a token, derived from its SHA-256 hash. Used as cache key instead of the token itself,
+ * so the memory used per cached token does not depend on the token size, and no tokens are retained on the heap.
+ */
+public final class TokenDigest {
+
+    private final static ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not supported", ex);
+        }
+    });
+
+    private final long high;
+    private final long low;
+
+    private TokenDigest(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    /**
+     * Compute the digest of a token.
+     *
+     * @param token token, required
+     * @return digest
+     */
+    public static TokenDigest of(String token) {
+        ByteBuffer hash = ByteBuffer.wrap(SHA_256.get().digest(token.getBytes(StandardCharsets.UTF_8)));
+        return new TokenDigest(hash.getLong(), hash.getLong());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        TokenDigest that = (TokenDigest) o;
+        return high == that.high && low == that.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(low);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", high, low);
+    }
+}
@@ -0,0 +1,84 @@
+package ch.frostnova.spring.boot.platform.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to virtual threads (Java 21+) while compiling for Java 11: the virtual thread API is looked up reflectively,
+ * and reported as not supported on older runtimes.
+ */
+public final class VirtualThreads {
+
+    private final static MethodHandle IS_VIRTUAL = lookupIsVirtual();
+
+    private VirtualThreads() {
+
+    }
+
+    private static MethodHandle lookupIsVirtual() {
+        try {
+            return MethodHandles.publicLookup().findVirtual(Thread.class, "isVirtual", MethodType.methodType(boolean.class));
+        } catch (NoSuchMethodException | IllegalAccessException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Check if the Java runtime supports virtual threads.
+     *
+     * @return supported
+     */
+    public static boolean isSupported() {
+        return IS_VIRTUAL != null;
+    }
+
+    /**
+     * Check if the given thread is a virtual thread.
+     *
+     * @param thread thread, required
+     * @return true if virtual, false if it's a platform thread (or the runtime does not support virtual threads)
+     */
+    public static boolean isVirtual(Thread thread) {
+        if (IS_VIRTUAL == null) {
+            return false;
+        }
+        try {
+            return (boolean) IS_VIRTUAL.invokeExact(thread);
+        } catch (Throwable ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Create an executor service which starts a new virtual thread for each task.
+     *
+     * @param namePrefix thread name prefix (followed by a sequence number), required
+     * @return executor service
+     * @throws UnsupportedOperationException if the runtime does not support virtual threads
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor(String namePrefix) {
+        if (namePrefix == null) {
+            throw new IllegalArgumentException("namePrefix is required");
+        }
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or later, running on Java " + Runtime.version().feature());
+        }
+        try {
+            // Thread.ofVirtual().name(namePrefix, 0).factory()
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            ThreadFactory threadFactory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            // Executors.newThreadPerTaskExecutor(threadFactory)
+            Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newThreadPerTaskExecutor.invoke(null, threadFactory);
+        } catch (ReflectiveOperationException ex) {
+            throw new UnsupportedOperationException("Virtual threads not available", ex);
+        }
+    }
+}
@@ -1,27 +1,47 @@
 package ch.frostnova.spring.boot.platform.web.filter;
 
+import ch.frostnova.spring.boot.platform.model.UserInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerMapping;
 
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
+import javax.servlet.ReadListener;
 import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
 import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
 import java.io.IOException;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
 import java.util.Optional;
 
+import static net.logstash.logback.argument.StructuredArguments.keyValue;
+import static net.logstash.logback.argument.StructuredArguments.value;
+
 /**
  * Servlet filter logging HTTP access (method, URI) with response code and execution time.<p>
- * Example output:
+ * Each access record also carries the route template of the matched handler (bounded cardinality, e.g.
+ * <code>/api/notes/{id}</code>), the request and response body size, and the tenant/user of the authenticated user (in
+ * the MDC). The records are written as JSON (<code>logs/access.json</code>, see <code>logback.xml</code>), with the
+ * fields <code>method</code>, <code>uri</code>, <code>status</code>, <code>durationMs</code>, <code>route</code>,
+ * <code>bytesIn</code> and <code>bytesOut</code>. Latency histograms per route template are recorded by the Spring Boot
+ * HTTP server timer (<code>http.server.requests</code>). <p>
+ * Example output (console):
  * <br><pre><code>
  * 2020-12-31 12:32:16.611 - GET /info -&gt; 200 OK, 146.46 ms
  * 2020-12-31 12:32:44.769 - GET /info -&gt; 200 OK, 6.39 ms
@@ -40,12 +60,32 @@ import java.util.Optional;
 @Order(0)
 public class AccessLogFilter implements Filter {
 
-    private final static double NS_TO_MS_FACTOR = 1d / 1000000;
-
     private final static Logger logger = LoggerFactory.getLogger(AccessLogFilter.class);
 
-    private static String formatDuration(long durationNs) {
-        return BigDecimal.valueOf(durationNs * AccessLogFilter.NS_TO_MS_FACTOR).setScale(2, RoundingMode.HALF_UP).toString();
+    /**
+     * Duration in milliseconds, rounded to two decimal places.
+     */
+    static double durationMs(long durationNs) {
+        return Math.round(durationNs / 10_000d) / 100d;
+    }
+
+    /**
+     * Route template of the handler which handled the request (same values as the <code>uri</code> tag of the Spring
+     * Boot HTTP server metrics).
+     */
+    static String route(HttpServletRequest request, int status) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern != null) {
+            return pattern.toString();
+        }
+        if (status >= 300 && status < 400) {
+            return "REDIRECTION";
+        }
+        if (status == HttpStatus.NOT_FOUND.value()) {
+            return "NOT_FOUND";
+        }
+        String path = request.getPathInfo() != null ? request.getPathInfo() : request.getRequestURI();
+        return path == null || path.isEmpty() || path.equals("/") ? "root" : "UNKNOWN";
     }
 
     @Override
@@ -61,23 +101,222 @@ public class AccessLogFilter implements Filter {
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
 
+        if (!(request instanceof HttpServletRequest) || !(response instanceof HttpServletResponse)) {
+            chain.doFilter(request, response);
+            return;
+        }
         long startTime = System.nanoTime();
+        CountingRequest countingRequest = new CountingRequest((HttpServletRequest) request);
+        CountingResponse countingResponse = new CountingResponse((HttpServletResponse) response);
+        try {
+            chain.doFilter(countingRequest, countingResponse);
+        } finally {
+            countingResponse.flushWriter();
+            if (countingRequest.isAsyncStarted()) {
+                countingRequest.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        log(countingRequest, countingResponse, System.nanoTime() - startTime);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
 
-        chain.doFilter(request, response);
+                    }
 
-        long durationNs = System.nanoTime() - startTime;
+                    @Override
+                    public void onError(AsyncEvent event) {
 
-        if (request instanceof HttpServletRequest && response instanceof HttpServletResponse) {
+                    }
 
-            HttpServletRequest httpServletRequest = (HttpServletRequest) request;
-            HttpServletResponse httpServletResponse = (HttpServletResponse) response;
-            String method = httpServletRequest.getMethod();
-            String uri = httpServletRequest.getRequestURI();
-            int responseStatusCode = httpServletResponse.getStatus();
-            String responseStatus = Optional.ofNullable(HttpStatus.resolve(responseStatusCode)).map(HttpStatus::name).orElse("unknown");
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
 
-            AccessLogFilter.logger.info("{} {} -> {} {}, {} ms", method, uri, responseStatusCode, responseStatus, AccessLogFilter.formatDuration(durationNs));
+                    }
+                });
+            } else {
+                log(countingRequest, countingResponse, System.nanoTime() - startTime);
+            }
         }
     }
 
+    private void log(CountingRequest request, CountingResponse response, long durationNs) {
+        if (!logger.isInfoEnabled()) {
+            return;
+        }
+        int status = response.getStatus();
+        String statusName = Optional.ofNullable(HttpStatus.resolve(status)).map(HttpStatus::name).orElse("unknown");
+
+        // the authentication filter already removed the user from the MDC: restore it for the access record
+        Object userInfo = request.getAttribute(BearerTokenAuthenticationFilter.USER_INFO_ATTRIBUTE);
+        boolean restoreMdc = userInfo instanceof UserInfo && MDC.get(BearerTokenAuthenticationFilter.MDC_KEY_USER) == null;
+        if (restoreMdc) {
+            MDC.put(BearerTokenAuthenticationFilter.MDC_KEY_TENANT, ((UserInfo) userInfo).getTenant());
+            MDC.put(BearerTokenAuthenticationFilter.MDC_KEY_USER, ((UserInfo) userInfo).getLogin());
+        }
+        try {
+            logger.info("{} {} -> {} {}, {} ms",
+                    value("method", request.getMethod()),
+                    value("uri", request.getRequestURI()),
+                    value("status", status),
+                    statusName,
+                    value("durationMs", durationMs(durationNs)),
+                    keyValue("route", route(request, status)),
+                    keyValue("bytesIn", request.getBytesRead()),
+                    keyValue("bytesOut", response.getBytesWritten()));
+        } finally {
+            if (restoreMdc) {
+                MDC.remove(BearerTokenAuthenticationFilter.MDC_KEY_TENANT);
+                MDC.remove(BearerTokenAuthenticationFilter.MDC_KEY_USER);
+            }
+        }
+    }
+
+    /**
+     * Request counting the bytes read from the request body.
+     */
+    static class CountingRequest extends HttpServletRequestWrapper {
+
+        private ServletInputStream inputStream;
+        private long bytesRead;
+
+        CountingRequest(HttpServletRequest request) {
+            super(request);
+        }
+
+        long getBytesRead() {
+            return bytesRead;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (inputStream == null) {
+                ServletInputStream delegate = super.getInputStream();
+                inputStream = new ServletInputStream() {
+                    @Override
+                    public int read() throws IOException {
+                        int b = delegate.read();
+                        if (b >= 0) {
+                            bytesRead++;
+                        }
+                        return b;
+                    }
+
+                    @Override
+                    public int read(byte[] buffer, int offset, int length) throws IOException {
+                        int read = delegate.read(buffer, offset, length);
+                        if (read > 0) {
+                            bytesRead += read;
+                        }
+                        return read;
+                    }
+
+                    @Override
+                    public boolean isFinished() {
+                        return delegate.isFinished();
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return delegate.isReady();
+                    }
+
+                    @Override
+                    public void setReadListener(ReadListener readListener) {
+                        delegate.setReadListener(readListener);
+                    }
+                };
+            }
+            return inputStream;
+        }
+    }
+
+    /**
+     * Response counting the bytes written to the response body (through the output stream or the writer).
+     */
+    static class CountingResponse extends HttpServletResponseWrapper {
+
+        private ServletOutputStream outputStream;
+        private PrintWriter writer;
+        private long bytesWritten;
+
+        CountingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        long getBytesWritten() {
+            return bytesWritten;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (writer != null) {
+                throw new IllegalStateException("getWriter() has already been called on this response");
+            }
+            return countingOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                if (outputStream != null) {
+                    throw new IllegalStateException("getOutputStream() has already been called on this response");
+                }
+                writer = new PrintWriter(new OutputStreamWriter(countingOutputStream(), getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            flushWriter();
+            super.flushBuffer();
+        }
+
+        void flushWriter() {
+            if (writer != null) {
+                writer.flush();
+            }
+        }
+
+        private ServletOutputStream countingOutputStream() throws IOException {
+            if (outputStream == null) {
+                ServletOutputStream delegate = super.getOutputStream();
+                outputStream = new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        delegate.write(b);
+                        bytesWritten++;
+                    }
+
+                    @Override
+                    public void write(byte[] buffer, int offset, int length) throws IOException {
+                        delegate.write(buffer, offset, length);
+                        bytesWritten += length;
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        delegate.flush();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        delegate.close();
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return delegate.isReady();
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener writeListener) {
+                        delegate.setWriteListener(writeListener);
+                    }
+                };
+            }
+            return outputStream;
+        }
+    }
 }
@@ -2,6 +2,8 @@ package ch.frostnova.spring.boot.platform.web.filter;
 
 import ch.frostnova.spring.boot.platform.model.UserInfo;
 import ch.frostnova.spring.boot.platform.service.TokenAuthenticator;
+import ch.frostnova.spring.boot.platform.util.ExpiringCache;
+import ch.frostnova.spring.boot.platform.util.TokenDigest;
 import ch.frostnova.spring.boot.platform.web.error.ErrorResponse;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.jsonwebtoken.JwtException;
@@ -23,24 +25,38 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
+/**
+ * Authenticates requests with a bearer token in the <code>Authorization</code> header. <p>
+ * The resolved (immutable) {@link UserInfo} is cached per token until the token expires, so repeated requests with the
+ * same token only take a digest computation, a cache lookup and the creation of the (mutable) authentication for the
+ * request. Tokens without expiration are not cached. The token digest is computed once per request, and passed on
+ * to the {@link TokenAuthenticator} on a cache miss.
+ */
 public class BearerTokenAuthenticationFilter extends OncePerRequestFilter {
 
     private final static Logger logger = LoggerFactory.getLogger(BearerTokenAuthenticationFilter.class);
 
-    private final static Pattern BEARER_TOKEN_PATTERN = Pattern.compile("Bearer (.+)");
-    private final static String MDC_KEY_TENANT = "tenant";
-    private final static String MDC_KEY_USER = "user";
+    private final static String BEARER_PREFIX = "Bearer ";
+    public final static String MDC_KEY_TENANT = "tenant";
+    public final static String MDC_KEY_USER = "user";
+
+    /**
+     * Request attribute with the {@link UserInfo} of the authenticated user (outlives the MDC entries, which are
+     * removed when the request leaves this filter).
+     */
+    public final static String USER_INFO_ATTRIBUTE = UserInfo.class.getName();
 
     private final TokenAuthenticator tokenAuthenticator;
     private final ObjectMapper objectMapper;
+    private final ExpiringCache<TokenDigest, UserInfo> authenticationCache;
 
-    public BearerTokenAuthenticationFilter(TokenAuthenticator tokenAuthenticator, ObjectMapper objectMapper) {
+    public BearerTokenAuthenticationFilter(TokenAuthenticator tokenAuthenticator, ObjectMapper objectMapper,
+                                           ExpiringCache<TokenDigest, UserInfo> authenticationCache) {
         this.tokenAuthenticator = tokenAuthenticator;
         this.objectMapper = objectMapper;
+        this.authenticationCache = authenticationCache;
     }
 
     private static Authentication authentication(UserInfo userInfo) {
@@ -67,9 +83,11 @@ public class BearerTokenAuthenticationFilter extends OncePerRequestFilter {
                 return;
             }
 
+            // new authentication per request: it is mutable, and must not be shared by concurrent requests
             SecurityContextHolder.getContext().setAuthentication(authentication(userInfo));
             MDC.put(MDC_KEY_TENANT, userInfo.getTenant());
             MDC.put(MDC_KEY_USER, userInfo.getLogin());
+            request.setAttribute(USER_INFO_ATTRIBUTE, userInfo);
             filterChain.doFilter(request, response);
         } catch (Exception ex) {
             ErrorResponse errorResponse = new ErrorResponse(HttpStatus.FORBIDDEN.name(), ex, ex.getMessage());
@@ -98,12 +116,21 @@ public class BearerTokenAuthenticationFilter extends OncePerRequestFilter {
                 // Unauthenticated request
                 return null;
             }
-            Matcher matcher = BEARER_TOKEN_PATTERN.matcher(requestTokenHeader);
-            if (!matcher.matches()) {
+            if (!requestTokenHeader.startsWith(BEARER_PREFIX) || requestTokenHeader.length() == BEARER_PREFIX.length()) {
                 throw new BadCredentialsException("Expected bearer token in Authorization header");
             }
-            String token = matcher.group(1);
-            return tokenAuthenticator.authenticate(token);
+            String token = requestTokenHeader.substring(BEARER_PREFIX.length());
+
+            TokenDigest digest = TokenDigest.of(token);
+            UserInfo cached = authenticationCache.get(digest);
+            if (cached != null) {
+                return cached;
+            }
+            UserInfo userInfo = tokenAuthenticator.authenticate(token, digest);
+            if (userInfo != null && userInfo.getExpiresAt() != null) {
+                authenticationCache.put(digest, userInfo, userInfo.getExpiresAt());
+            }
+            return userInfo;
         } catch (AuthenticationException ex) {
             throw ex;
         } catch (JwtException ex) {
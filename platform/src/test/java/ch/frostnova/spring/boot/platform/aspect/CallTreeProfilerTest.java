@@ -0,0 +1,135 @@
+package ch.frostnova.spring.boot.platform.aspect;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Test for {@link CallTreeProfiler}
+ */
+public class CallTreeProfilerTest {
+
+    private final static long MS = 1_000_000;
+
+    /**
+     * Tree: a() -> b() -> c(), a() -> c(), with 20 ms self time for a() and b(), 10 ms for c().
+     */
+    private static InvocationTree tree() {
+        return new InvocationTree(false, 4,
+                new String[]{"Test.a()", "Test.b()", "Test.c()", "Test.c()"},
+                new int[]{0, 1, 2, 1},
+                new long[]{0, 10 * MS, 20 * MS, 40 * MS},
+                new long[]{60 * MS, 40 * MS, 30 * MS, 50 * MS},
+                new long[]{40 * MS, 10 * MS, 0, 0},
+                new String[]{null, null, null, null},
+                new String[]{"main", null, null, null},
+                new int[4], new long[4], new long[4], null, null);
+    }
+
+    @Test
+    public void testAggregation() {
+        MutableClock clock = new MutableClock();
+        CallTreeProfiler profiler = new CallTreeProfiler(clock);
+
+        profiler.add(tree());
+        profiler.add(tree());
+
+        CallTreeProfile profile = profiler.getProfile(null);
+        assertThat(profile.getTrees()).isEqualTo(2);
+        assertThat(profile.getPaths()).extracting(CallTreeProfile.PathStatistics::getPath)
+                .containsExactly("Test.a()", "Test.a();Test.b()", "Test.a();Test.b();Test.c()", "Test.a();Test.c()");
+        CallTreeProfile.PathStatistics root = profile.getPaths().get(0);
+        assertThat(root.getCalls()).isEqualTo(2);
+        assertThat(root.getTotalTimeMs()).isCloseTo(120, within(0.001));
+        assertThat(root.getSelfTimeMs()).isCloseTo(40, within(0.001));
+
+        assertThat(profile.toCollapsedStacks(false)).isEqualTo(
+                "Test.a() 40000\n" +
+                        "Test.a();Test.b() 40000\n" +
+                        "Test.a();Test.b();Test.c() 20000\n" +
+                        "Test.a();Test.c() 20000\n");
+        assertThat(profile.toCollapsedStacks(true)).isEqualTo(
+                "Test.a() 2\n" +
+                        "Test.a();Test.b() 2\n" +
+                        "Test.a();Test.b();Test.c() 2\n" +
+                        "Test.a();Test.c() 2\n");
+
+        profiler.reset();
+        assertThat(profiler.getProfile(null).getTrees()).isEqualTo(0);
+        assertThat(profiler.getProfile(null).toCollapsedStacks(false)).isEmpty();
+    }
+
+    @Test
+    public void testWindows() {
+        MutableClock clock = new MutableClock();
+        CallTreeProfiler profiler = new CallTreeProfiler(clock);
+        profiler.configure(Duration.ofMinutes(1), 3);
+
+        profiler.add(tree());
+        clock.advance(Duration.ofMinutes(1));
+        profiler.add(tree());
+        profiler.add(tree());
+
+        assertThat(profiler.getProfile(null).getTrees()).isEqualTo(3);
+        assertThat(profiler.getProfile(1).getTrees()).isEqualTo(2);
+        assertThat(profiler.getProfile(2).getTrees()).isEqualTo(3);
+
+        // first window rolls out after 3 windows
+        clock.advance(Duration.ofMinutes(2));
+        assertThat(profiler.getProfile(null).getTrees()).isEqualTo(2);
+        assertThat(profiler.getProfile(1).getTrees()).isEqualTo(0);
+
+        // all windows roll out
+        clock.advance(Duration.ofHours(1));
+        profiler.add(tree());
+        CallTreeProfile profile = profiler.getProfile(null);
+        assertThat(profile.getTrees()).isEqualTo(1);
+        assertThat(profile.getFrom()).isBeforeOrEqualTo(clock.instant());
+        assertThat(profile.getTo()).isEqualTo(clock.instant());
+    }
+
+    @Test
+    public void testConfigure() {
+        CallTreeProfiler profiler = new CallTreeProfiler(new MutableClock());
+        profiler.add(tree());
+        profiler.configure(Duration.ofSeconds(10), 6);
+        assertThat(profiler.getWindow()).isEqualTo(Duration.ofSeconds(10));
+        assertThat(profiler.getWindowCount()).isEqualTo(6);
+        assertThat(profiler.getProfile(null).getTrees()).isEqualTo(0);
+
+        assertThatThrownBy(() -> profiler.configure(Duration.ofMillis(10), 6)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> profiler.configure(Duration.ofMinutes(1), 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2022-05-01T12:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -1,10 +1,40 @@
 package ch.frostnova.spring.boot.platform.aspect;
 
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.h2.jdbcx.JdbcDataSource;
 import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import static java.lang.Thread.sleep;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 /**
  * Test for {@link PerformanceLoggingAspect}
@@ -44,4 +74,457 @@ public class PerformanceLoggingAspectTest {
             });
         });
     }
+
+    @Test
+    public void testListener() {
+
+        PerformanceLoggingAspect.PerformanceLoggingContext context = PerformanceLoggingAspect.PerformanceLoggingContext.current();
+        List<String> completed = new ArrayList<>();
+        Map<String, Long> selfTimes = new HashMap<>();
+        PerformanceLoggingListener listener = (invocation, result, elapsedTimeNs, selfTimeNs) -> {
+            completed.add(invocation + " -> " + (result != null ? result : "ok"));
+            assertThat(selfTimeNs).isBetween(0L, elapsedTimeNs);
+            selfTimes.put(invocation, selfTimeNs);
+        };
+
+        PerformanceLoggingAspect.PerformanceLoggingContext.addListener(listener);
+        try {
+            context.execute("Test.a()", () -> {
+                sleep(20);
+                context.execute("Test.b()", () -> sleep(20));
+                try {
+                    context.execute("Test.c()", () -> {
+                        throw new ArithmeticException();
+                    });
+                } catch (ArithmeticException ignored) {
+                    // expected
+                }
+            });
+        } finally {
+            PerformanceLoggingAspect.PerformanceLoggingContext.removeListener(listener);
+        }
+        context.execute("Test.d()", () -> sleep(1));
+
+        assertThat(completed).containsExactly("Test.b() -> ok", "Test.c() -> java.lang.ArithmeticException", "Test.a() -> ok");
+        assertThat(selfTimes.get("Test.a()")).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(20));
+        assertThat(selfTimes.get("Test.b()")).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(20));
+    }
+
+    @Test
+    public void testMetrics() {
+
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PerformanceMetricsListener metricsListener = new PerformanceMetricsListener();
+        ReflectionTestUtils.setField(metricsListener, "meterRegistry", meterRegistry);
+        metricsListener.init();
+
+        PerformanceLoggingAspect.PerformanceLoggingContext context = PerformanceLoggingAspect.PerformanceLoggingContext.current();
+        try {
+            for (int i = 0; i < 3; i++) {
+                context.execute("Test.a()", () -> context.execute("Test.b()", () -> sleep(5)));
+            }
+            assertThatThrownBy(() -> context.execute("Test.a()", () -> {
+                throw new IllegalStateException();
+            })).isInstanceOf(IllegalStateException.class);
+        } finally {
+            metricsListener.destroy();
+        }
+
+        Timer total = meterRegistry.get(PerformanceMetricsListener.TIMER_TOTAL).tag("invocation", "Test.a()").tag("result", "ok").timer();
+        Timer self = meterRegistry.get(PerformanceMetricsListener.TIMER_SELF).tag("invocation", "Test.a()").tag("result", "ok").timer();
+        assertThat(total.count()).isEqualTo(3);
+        assertThat(self.count()).isEqualTo(3);
+        assertThat(total.totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(15);
+        assertThat(self.totalTime(TimeUnit.MILLISECONDS)).isLessThan(total.totalTime(TimeUnit.MILLISECONDS));
+
+        assertThat(meterRegistry.get(PerformanceMetricsListener.TIMER_TOTAL).tag("invocation", "Test.b()").tag("result", "ok").timer().count()).isEqualTo(3);
+        assertThat(meterRegistry.get(PerformanceMetricsListener.TIMER_TOTAL).tag("invocation", "Test.a()").tag("result", "java.lang.IllegalStateException").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(PerformanceMetricsListener.COUNTER_DROPPED).functionCounter().count()).isGreaterThanOrEqualTo(0);
+    }
+
+    @Test
+    public void testAspectPassesExceptionsOn() throws Throwable {
+
+        IOException exception = new IOException("expected");
+        Signature signature = mock(Signature.class);
+        when(signature.toShortString()).thenReturn("Test.io()");
+        ProceedingJoinPoint joinPoint = mock(ProceedingJoinPoint.class);
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(joinPoint.proceed()).thenThrow(exception);
+
+        PerformanceLoggingAspect.PerformanceLoggingContext context = PerformanceLoggingAspect.PerformanceLoggingContext.current();
+        List<String> completed = new ArrayList<>();
+        PerformanceLoggingListener listener = (invocation, result, elapsedTimeNs, selfTimeNs) -> completed.add(invocation + " -> " + result);
+
+        PerformanceLoggingAspect.PerformanceLoggingContext.addListener(listener);
+        try {
+            // captured root invocation
+            assertThatThrownBy(() -> PerformanceLoggingAspect.around(joinPoint)).isSameAs(exception);
+            // captured intermediate invocation
+            context.execute("Test.a()", () ->
+                    assertThatThrownBy(() -> PerformanceLoggingAspect.aroundIntermediate(joinPoint)).isSameAs(exception));
+            // not captured
+            assertThatThrownBy(() -> PerformanceLoggingAspect.aroundIntermediate(joinPoint)).isSameAs(exception);
+            PerformanceLoggingAspect.PerformanceLoggingContext.configure(PerformanceLoggingMode.OFF, 1, Duration.ZERO);
+            assertThatThrownBy(() -> PerformanceLoggingAspect.around(joinPoint)).isSameAs(exception);
+        } finally {
+            PerformanceLoggingAspect.PerformanceLoggingContext.removeListener(listener);
+            PerformanceLoggingAspect.PerformanceLoggingContext.configure(PerformanceLoggingMode.ALL, 1, Duration.ZERO);
+        }
+        assertThat(completed).containsExactly("Test.io() -> java.io.IOException", "Test.io() -> java.io.IOException", "Test.a() -> null");
+    }
+
+    @Test
+    public void testTailMode() {
+
+        PerformanceLoggingAspect.PerformanceLoggingContext context = PerformanceLoggingAspect.PerformanceLoggingContext.current();
+        List<String> completed = new ArrayList<>();
+        PerformanceLoggingListener listener = (invocation, result, elapsedTimeNs, selfTimeNs) -> completed.add(invocation);
+
+        PerformanceLoggingAspect.PerformanceLoggingContext.configure(PerformanceLoggingMode.TAIL, 1, Duration.ofHours(1));
+        PerformanceLoggingAspect.PerformanceLoggingContext.addListener(listener);
+        try {
+            // not logged (below threshold), but still measured
+            context.execute("Test.a()", () -> context.execute("Test.b()", () -> sleep(1)));
+            assertThatThrownBy(() -> context.execute("Test.c()", () -> {
+                throw new IllegalStateException();
+            })).isInstanceOf(IllegalStateException.class);
+        } finally {
+            PerformanceLoggingAspect.PerformanceLoggingContext.removeListener(listener);
+            PerformanceLoggingAspect.PerformanceLoggingContext.configure(PerformanceLoggingMode.ALL, 1, Duration.ZERO);
+        }
+        assertThat(completed).containsExactly("Test.b()", "Test.a()", "Test.c()");
+        assertThat(context.isIntermediateInvocation()).isFalse();
+
+        assertThatThrownBy(() -> PerformanceLoggingAspect.PerformanceLoggingContext.configure(PerformanceLoggingMode.SAMPLING, 0, Duration.ZERO))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testEmitter() throws Exception {
+
+        InvocationTree tree = new InvocationTree(true, 5,
+                new String[]{"Test.a()", "Test.b()", "Test.c()", "Test.c()", "Test.d()"},
+                new int[]{0, 1, 2, 2, 1},
+                new long[]{0, 1_000_000, 2_000_000, 4_000_000, 10_000_000},
+                new long[]{20_000_000, 9_000_000, 3_000_000, 5_000_000, 10_004_000},
+                new long[]{14_000_000, 4_000_000, 0, 0, 0},
+                new String[]{null, null, null, null, "java.lang.ArithmeticException"},
+                new String[]{"worker", null, null, null, null},
+                new int[5], new long[5], new long[5], "test-tenant", "test-user");
+        assertThat(tree.format()).isEqualTo("Test.a() -> 20.00 ms, self: 6.00 ms [worker]\n" +
+                "   Test.b() -> 8.00 ms, self: 4.00 ms\n" +
+                "     2x Test.c() -> 3.00 ms\n" +
+                "   Test.d() -> java.lang.ArithmeticException, 0.00 ms");
+
+        List<String> emitted = new CopyOnWriteArrayList<>();
+        List<String> users = new CopyOnWriteArrayList<>();
+        PerformanceLogEmitter emitter = new PerformanceLogEmitter("test-emitter", 2, s -> {
+            emitted.add(s);
+            users.add(MDC.get("tenant") + "/" + MDC.get("user"));
+        });
+        for (int i = 0; i < 100; i++) {
+            emitter.submit(tree);
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (emitter.getPendingCount() > 0 && System.currentTimeMillis() < deadline) {
+            sleep(10);
+        }
+        sleep(50);
+        assertThat(emitted).isNotEmpty().allMatch(s -> s.startsWith("Test.a() -> 20.00 ms"));
+        assertThat(emitted.size() + emitter.getDropCount()).isEqualTo(100);
+        assertThat(users).hasSameSizeAs(emitted).containsOnly("test-tenant/test-user");
+
+        // the parked emitter is woken up by the next tree
+        int count = emitted.size();
+        emitter.submit(tree);
+        deadline = System.currentTimeMillis() + 5000;
+        while (emitted.size() == count && System.currentTimeMillis() < deadline) {
+            sleep(10);
+        }
+        assertThat(emitted).hasSize(count + 1);
+
+        // pending trees are emitted when stopping, and the emitter is restarted on the next tree
+        emitter.stop();
+        assertThat(emitter.getPendingCount()).isZero();
+        emitter.submit(tree);
+        emitter.stop();
+        assertThat(emitted).hasSize(count + 2);
+    }
+
+    @Test
+    public void testEmitterKeepsLoggedTrees() throws Exception {
+
+        InvocationTree logged = new InvocationTree(true, 1, new String[]{"Test.a()"}, new int[1], new long[]{0},
+                new long[]{1_000_000}, new long[1], new String[1], new String[]{"worker"}, new int[1], new long[1], new long[1], null, null);
+        InvocationTree unlogged = logged.withLogged(false);
+
+        List<String> emitted = new CopyOnWriteArrayList<>();
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PerformanceLogEmitter emitter = new PerformanceLogEmitter("test-emitter", 2, emitted::add);
+        emitter.addTreeListener(tree -> {
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        try {
+            // block the emitter, and flood it with trees for the tree listeners only
+            emitter.submit(unlogged);
+            assertThat(blocked.await(5, TimeUnit.SECONDS)).isTrue();
+            for (int i = 0; i < 10; i++) {
+                emitter.submit(unlogged);
+            }
+            assertThat(emitter.submit(logged)).isTrue();
+            assertThat(emitter.submit(logged)).isTrue();
+            assertThat(emitter.getDropCount()).isEqualTo(8);
+        } finally {
+            release.countDown();
+        }
+        emitter.stop();
+        assertThat(emitted).hasSize(2);
+    }
+
+    @Test
+    public void testPropagation() throws Exception {
+
+        PerformanceLoggingAspect.PerformanceLoggingContext context = PerformanceLoggingAspect.PerformanceLoggingContext.current();
+        assertThat(PerformanceLoggingAspect.PerformanceLoggingContext.capture()).isNull();
+
+        Map<String, Long> elapsedTimes = new ConcurrentHashMap<>();
+        Map<String, Long> selfTimes = new ConcurrentHashMap<>();
+        PerformanceLoggingListener listener = (invocation, result, elapsedTimeNs, selfTimeNs) -> {
+            elapsedTimes.put(invocation, elapsedTimeNs);
+            selfTimes.put(invocation, selfTimeNs);
+        };
+        List<InvocationTree> trees = new CopyOnWriteArrayList<>();
+        Consumer<InvocationTree> treeListener = trees::add;
+
+        PerformanceLoggingAspect.PerformanceLoggingContext.addListener(listener);
+        PerformanceLoggingAspect.PerformanceLoggingContext.addTreeListener(treeListener);
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            context.execute("Parallel.a()", () -> {
+                PerformanceLoggingAspect.CapturedInvocation captured = PerformanceLoggingAspect.PerformanceLoggingContext.capture();
+                assertThat(captured).isNotNull();
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < 4; i++) {
+                    futures.add(executorService.submit(() -> {
+                        Runnable detach = captured.attach();
+                        try {
+                            PerformanceLoggingAspect.PerformanceLoggingContext.current().execute("Parallel.b()", () -> sleep(50));
+                        } finally {
+                            detach.run();
+                        }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+                // attaching on the same thread has no effect
+                captured.attach().run();
+                context.execute("Parallel.c()", () -> sleep(5));
+            });
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (trees.stream().noneMatch(tree -> tree.getInvocation(0).equals("Parallel.a()")) && System.currentTimeMillis() < deadline) {
+                sleep(10);
+            }
+        } finally {
+            executorService.shutdownNow();
+            PerformanceLoggingAspect.PerformanceLoggingContext.removeListener(listener);
+            PerformanceLoggingAspect.PerformanceLoggingContext.removeTreeListener(treeListener);
+        }
+
+        // parallel children are not summed up: a() spends most of its time waiting for the parallel b() calls
+        assertThat(selfTimes.get("Parallel.a()")).isBetween(0L, elapsedTimes.get("Parallel.a()") - TimeUnit.MILLISECONDS.toNanos(50));
+
+        InvocationTree tree = trees.stream().filter(t -> t.getInvocation(0).equals("Parallel.a()")).findFirst().orElseThrow();
+        assertThat(tree.size()).isEqualTo(6);
+        assertThat(tree.getInvocation(0)).isEqualTo("Parallel.a()");
+        for (int i = 1; i < tree.size(); i++) {
+            assertThat(tree.getLevel(i)).isEqualTo(1);
+        }
+        assertThat(tree.format()).contains("Parallel.c() -> ").contains("4x Parallel.b() -> ").contains("[parallel]");
+    }
+
+    @Test
+    public void testLateFragment() throws Exception {
+
+        PerformanceLoggingAspect.PerformanceLoggingContext context = PerformanceLoggingAspect.PerformanceLoggingContext.current();
+
+        List<InvocationTree> trees = new CopyOnWriteArrayList<>();
+        Consumer<InvocationTree> treeListener = trees::add;
+
+        PerformanceLoggingAspect.PerformanceLoggingContext.addTreeListener(treeListener);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            CountDownLatch rootCompleted = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            context.execute("Late.a()", () -> {
+                PerformanceLoggingAspect.CapturedInvocation captured = PerformanceLoggingAspect.PerformanceLoggingContext.capture();
+                futures.add(executorService.submit(() -> {
+                    rootCompleted.await();
+                    Runnable detach = captured.attach();
+                    try {
+                        PerformanceLoggingAspect.PerformanceLoggingContext.current().execute("Late.b()", () -> sleep(5));
+                    } finally {
+                        detach.run();
+                    }
+                    return null;
+                }));
+            });
+            rootCompleted.countDown();
+            futures.get(0).get();
+
+            // no further invocation on this thread: the late fragment is logged by the child context right away
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!(trees.stream().anyMatch(tree -> tree.getInvocation(0).equals("Late.a()"))
+                    && trees.stream().anyMatch(tree -> tree.getInvocation(0).equals("Late.b()"))) && System.currentTimeMillis() < deadline) {
+                sleep(10);
+            }
+        } finally {
+            executorService.shutdownNow();
+            PerformanceLoggingAspect.PerformanceLoggingContext.removeTreeListener(treeListener);
+        }
+
+        InvocationTree tree = trees.stream().filter(t -> t.getInvocation(0).equals("Late.b()")).findFirst().orElseThrow();
+        assertThat(tree.size()).isEqualTo(1);
+        assertThat(trees.stream().filter(t -> t.getInvocation(0).equals("Late.a()")).findFirst().orElseThrow().size()).isEqualTo(1);
+    }
+
+    @Test
+    public void testStatementTracking() throws Exception {
+
+        JdbcDataSource h2DataSource = new JdbcDataSource();
+        h2DataSource.setURL("jdbc:h2:mem:statement-tracking;DB_CLOSE_DELAY=-1");
+        StatementTrackingDataSource dataSource = new StatementTrackingDataSource(h2DataSource);
+
+        PerformanceLoggingAspect.PerformanceLoggingContext context = PerformanceLoggingAspect.PerformanceLoggingContext.current();
+        List<String> repeatedStatements = new CopyOnWriteArrayList<>();
+        PerformanceLoggingListener listener = new PerformanceLoggingListener() {
+            @Override
+            public void invocationCompleted(String invocation, String result, long elapsedTimeNs, long selfTimeNs) {
+            }
+
+            @Override
+            public void repeatedStatementDetected(String rootInvocation, String sql, int executions) {
+                repeatedStatements.add(rootInvocation + ": " + executions + "x " + sql);
+            }
+        };
+        List<InvocationTree> trees = new CopyOnWriteArrayList<>();
+        Consumer<InvocationTree> treeListener = trees::add;
+
+        PerformanceLoggingAspect.PerformanceLoggingContext.addListener(listener);
+        PerformanceLoggingAspect.PerformanceLoggingContext.addTreeListener(treeListener);
+        try (Connection connection = dataSource.getConnection()) {
+            context.execute("Jdbc.a()", () -> {
+                context.execute("Jdbc.setup()", () -> {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute("create table item (id int primary key, name varchar(50))");
+                        statement.executeUpdate("insert into item values (1, 'one'), (2, 'two'), (3, 'three')");
+                    }
+                });
+                context.execute("Jdbc.findAll()", () -> {
+                    try (Statement statement = connection.createStatement();
+                         ResultSet resultSet = statement.executeQuery("select id from item")) {
+                        while (resultSet.next()) {
+                            context.execute("Jdbc.findById()", () -> {
+                                try (PreparedStatement statement2 = connection.prepareStatement("select name from item where id = ?")) {
+                                    for (int i = 0; i < 4; i++) {
+                                        statement2.setInt(1, resultSet.getInt(1));
+                                        try (ResultSet resultSet2 = statement2.executeQuery()) {
+                                            assertThat(resultSet2.next()).isTrue();
+                                        }
+                                    }
+                                }
+                            });
+                        }
+                    }
+                });
+            });
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (trees.stream().noneMatch(tree -> tree.getInvocation(0).equals("Jdbc.a()")) && System.currentTimeMillis() < deadline) {
+                sleep(10);
+            }
+        } finally {
+            PerformanceLoggingAspect.PerformanceLoggingContext.removeListener(listener);
+            PerformanceLoggingAspect.PerformanceLoggingContext.removeTreeListener(treeListener);
+        }
+
+        InvocationTree tree = trees.stream().filter(t -> t.getInvocation(0).equals("Jdbc.a()")).findFirst().orElseThrow();
+        // 2 setup statements, 1 select and 3 * 4 selects by id, rolled up to the root invocation
+        assertThat(tree.getStatementCount(0)).isEqualTo(15);
+        assertThat(tree.getRowCount(0)).isEqualTo(3 + 12);
+        assertThat(tree.getJdbcTimeNs(0)).isPositive();
+        assertThat(tree.getStatementCount(1)).isEqualTo(2);
+        assertThat(tree.getRowCount(1)).isEqualTo(0);
+        assertThat(tree.format()).contains("sql: 15 statements, ").contains("sql: 2 statements, ");
+
+        // the statement by id was executed 12 times (threshold: 10)
+        assertThat(repeatedStatements).containsExactly("Jdbc.a(): 12x select name from item where id = ?");
+    }
+
+    @Test
+    public void testBatchStatementTracking() throws Exception {
+
+        JdbcDataSource h2DataSource = new JdbcDataSource();
+        h2DataSource.setURL("jdbc:h2:mem:batch-statement-tracking;DB_CLOSE_DELAY=-1");
+        StatementTrackingDataSource dataSource = new StatementTrackingDataSource(h2DataSource);
+
+        PerformanceLoggingAspect.PerformanceLoggingContext context = PerformanceLoggingAspect.PerformanceLoggingContext.current();
+        List<String> repeatedStatements = new CopyOnWriteArrayList<>();
+        PerformanceLoggingListener listener = new PerformanceLoggingListener() {
+            @Override
+            public void invocationCompleted(String invocation, String result, long elapsedTimeNs, long selfTimeNs) {
+            }
+
+            @Override
+            public void repeatedStatementDetected(String rootInvocation, String sql, int executions) {
+                repeatedStatements.add(rootInvocation + ": " + executions + "x " + sql);
+            }
+        };
+        List<InvocationTree> trees = new CopyOnWriteArrayList<>();
+        Consumer<InvocationTree> treeListener = trees::add;
+
+        PerformanceLoggingAspect.PerformanceLoggingContext.addListener(listener);
+        PerformanceLoggingAspect.PerformanceLoggingContext.addTreeListener(treeListener);
+        try (Connection connection = dataSource.getConnection()) {
+            context.execute("Batch.a()", () -> {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("create table item (id int primary key, name varchar(50))");
+                }
+                // batched insert of 12 * 5 items
+                try (PreparedStatement statement = connection.prepareStatement("insert into item values (?, ?)")) {
+                    for (int batch = 0; batch < 12; batch++) {
+                        for (int i = 0; i < 5; i++) {
+                            int id = batch * 5 + i;
+                            statement.setInt(1, id);
+                            statement.setString(2, "item-" + id);
+                            statement.addBatch();
+                        }
+                        assertThat(statement.executeBatch()).hasSize(5);
+                    }
+                }
+            });
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (trees.stream().noneMatch(tree -> tree.getInvocation(0).equals("Batch.a()")) && System.currentTimeMillis() < deadline) {
+                sleep(10);
+            }
+        } finally {
+            PerformanceLoggingAspect.PerformanceLoggingContext.removeListener(listener);
+            PerformanceLoggingAspect.PerformanceLoggingContext.removeTreeListener(treeListener);
+        }
+
+        InvocationTree tree = trees.stream().filter(t -> t.getInvocation(0).equals("Batch.a()")).findFirst().orElseThrow();
+        // 1 create statement and 12 batches, which are not reported as repeated statement (threshold: 10)
+        assertThat(tree.getStatementCount(0)).isEqualTo(13);
+        assertThat(tree.getJdbcTimeNs(0)).isPositive();
+        assertThat(repeatedStatements).isEmpty();
+    }
 }
@@ -0,0 +1,50 @@
+package ch.frostnova.spring.boot.platform.aspect;
+
+import ch.frostnova.spring.boot.platform.PlatformConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test for {@link PerformanceMetricsListener}: the listener has to register itself on startup (the application
+ * initializes beans lazily, and no other bean depends on the listener).
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles({"test", "performance-logging"})
+@SpringBootTest(classes = {PlatformConfig.class, PerformanceMetricsListenerTest.MeterRegistryConfig.class},
+        properties = "spring.main.lazy-initialization=true")
+@EnableConfigurationProperties
+public class PerformanceMetricsListenerTest {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void testRegisteredOnStartup() {
+
+        PerformanceLoggingAspect.PerformanceLoggingContext context = PerformanceLoggingAspect.PerformanceLoggingContext.current();
+        context.execute("Eager.a()", () -> {
+        });
+
+        assertThat(meterRegistry.get(PerformanceMetricsListener.TIMER_TOTAL).tag("invocation", "Eager.a()").timer().count()).isEqualTo(1);
+    }
+
+    @TestConfiguration
+    static class MeterRegistryConfig {
+
+        @Bean
+        public MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
@@ -5,6 +5,11 @@ import ch.frostnova.spring.boot.platform.model.UserInfo;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.PrematureJwtException;
+import io.jsonwebtoken.SignatureException;
+import io.jsonwebtoken.UnsupportedJwtException;
 import io.jsonwebtoken.lang.Assert;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -17,10 +22,12 @@ import org.springframework.cache.CacheManager;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.UUID;
 
@@ -110,4 +117,73 @@ public class JWTServiceTest {
 
         Assert.isTrue(value == jwtVerificationService.verify(token));
     }
+
+    @Test
+    public void testJWTRejection() {
+
+        UserInfo userInfo = UserInfo.aUserInfo().tenant("test-tenant").login("test-user").build();
+        String token = jwtSigningService.createJWT(userInfo, OffsetDateTime.now(), Duration.of(1, ChronoUnit.HOURS));
+        String other = jwtSigningService.createJWT(userInfo, OffsetDateTime.now(), Duration.of(2, ChronoUnit.HOURS));
+        String forged = token.substring(0, token.lastIndexOf('.')) + other.substring(other.lastIndexOf('.'));
+
+        // verified once, then rejected from the cache of rejected tokens
+        assertThatThrownBy(() -> jwtVerificationService.verify(forged)).isInstanceOf(SignatureException.class);
+        assertThatThrownBy(() -> jwtVerificationService.verify(forged)).isExactlyInstanceOf(JwtException.class)
+                .hasMessageContaining("signature");
+
+        // structural checks
+        String unsigned = token.substring(0, token.lastIndexOf('.') + 1);
+        String noneAlgorithm = Base64.getUrlEncoder().withoutPadding().encodeToString("{\"alg\":\"none\"}".getBytes(StandardCharsets.UTF_8))
+                + token.substring(token.indexOf('.'));
+        assertThatThrownBy(() -> jwtVerificationService.verify(unsigned)).isInstanceOf(MalformedJwtException.class);
+        assertThatThrownBy(() -> jwtVerificationService.verify("garbage")).isInstanceOf(MalformedJwtException.class);
+        assertThatThrownBy(() -> jwtVerificationService.verify("a.b.c.d")).isInstanceOf(MalformedJwtException.class);
+        assertThatThrownBy(() -> jwtVerificationService.verify(noneAlgorithm)).isInstanceOf(UnsupportedJwtException.class);
+        assertThatThrownBy(() -> jwtVerificationService.verify("x".repeat(10000))).isInstanceOf(MalformedJwtException.class);
+
+        // valid tokens are not affected
+        assertThat(jwtVerificationService.verify(token)).isNotNull();
+    }
+
+    @Test
+    public void testPrematureJWT() throws Exception {
+
+        UserInfo userInfo = UserInfo.aUserInfo().tenant("test-tenant").login("test-user").build();
+        String token = jwtSigningService.createJWT(userInfo, OffsetDateTime.now().plusSeconds(2), Duration.of(1, ChronoUnit.HOURS));
+
+        // rejected (and cached) while premature, but no longer once valid
+        assertThatThrownBy(() -> jwtVerificationService.verify(token)).isInstanceOf(PrematureJwtException.class);
+        assertThatThrownBy(() -> jwtVerificationService.verify(token)).isInstanceOf(JwtException.class);
+        Thread.sleep(2500);
+        assertThat(jwtVerificationService.verify(token)).isNotNull();
+    }
+
+    @Test
+    public void testAdditionalSigningKey() {
+
+        UserInfo userInfo = UserInfo.aUserInfo().tenant("test-tenant").login("test-service").build();
+        String token = jwtSigningService.createJWT(userInfo, OffsetDateTime.now(), Duration.of(1, ChronoUnit.HOURS), "internal");
+
+        Jws<Claims> jwt = jwtVerificationService.verify(token);
+        assertThat(jwt.getHeader().getKeyId()).isEqualTo("internal");
+        assertThat(jwt.getHeader().getAlgorithm()).isEqualTo("HS256");
+        assertThat(jwt.getBody().getSubject()).isEqualTo("test-service");
+
+        // primary key
+        String primaryToken = jwtSigningService.createJWT(userInfo, OffsetDateTime.now(), Duration.of(1, ChronoUnit.HOURS));
+        assertThat(jwtVerificationService.verify(primaryToken).getHeader().getAlgorithm()).isEqualTo("RS256");
+
+        // unknown key id
+        String unknownKeyId = Base64.getUrlEncoder().withoutPadding().encodeToString("{\"alg\":\"HS256\",\"kid\":\"unknown\"}".getBytes(StandardCharsets.UTF_8))
+                + token.substring(token.indexOf('.'));
+        assertThatThrownBy(() -> jwtVerificationService.verify(unknownKeyId)).isInstanceOf(UnsupportedJwtException.class);
+
+        // algorithm not matching the key
+        String wrongAlgorithm = Base64.getUrlEncoder().withoutPadding().encodeToString("{\"alg\":\"HS256\",\"kid\":\"default\"}".getBytes(StandardCharsets.UTF_8))
+                + token.substring(token.indexOf('.'));
+        assertThatThrownBy(() -> jwtVerificationService.verify(wrongAlgorithm)).isInstanceOf(UnsupportedJwtException.class);
+
+        assertThatThrownBy(() -> jwtSigningService.createJWT(userInfo, OffsetDateTime.now(), Duration.of(1, ChronoUnit.HOURS), "unknown"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
 }
@@ -16,6 +16,7 @@ import java.time.OffsetDateTime;
 import java.time.temporal.ChronoUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
@@ -41,7 +42,8 @@ public class JWTTokenAuthenticatorTest {
                 .additionalClaim("accessChannel", "web")
                 .build();
 
-        String token = jwtSigningService.createJWT(request, OffsetDateTime.now(), Duration.of(2, ChronoUnit.HOURS));
+        OffsetDateTime validFrom = OffsetDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        String token = jwtSigningService.createJWT(request, validFrom, Duration.of(2, ChronoUnit.HOURS));
 
         UserInfo userInfo = jwtTokenAuthenticator.authenticate(token);
 
@@ -50,5 +52,10 @@ public class JWTTokenAuthenticatorTest {
         assertThat(userInfo.getRoles()).containsExactlyInAnyOrder("RoleA", "RoleB");
         assertThat(userInfo.getAdditionalClaims().get("loginDeviceId")).isEqualTo("device-001");
         assertThat(userInfo.getAdditionalClaims().get("accessChannel")).isEqualTo("web");
+        assertThat(userInfo.getExpiresAt()).isEqualTo(validFrom.plusHours(2).toInstant());
+
+        // immutable, can be cached and shared
+        assertThatThrownBy(() -> userInfo.getRoles().add("RoleC")).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> userInfo.getAdditionalClaims().put("foo", "bar")).isInstanceOf(UnsupportedOperationException.class);
     }
 }
@@ -9,9 +9,20 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadLocalRandom;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
@@ -37,4 +48,71 @@ public class SigningServiceTest {
         fakeSignature[0] = (byte) ~signature[0];
         assertThat(signingService.verify(data, fakeSignature)).isFalse();
     }
+
+    @Test
+    public void testHMACSigningAndVerification() throws Exception {
+        byte[] data = new byte[12345];
+        ThreadLocalRandom.current().nextBytes(data);
+
+        byte[] signature = signingService.sign("internal", data);
+        assertThat(signature).hasSize(32);
+        assertThat(signingService.verify("internal", data, signature)).isTrue();
+
+        byte[] fakeSignature = signature.clone();
+        fakeSignature[0] = (byte) ~signature[0];
+        assertThat(signingService.verify("internal", data, fakeSignature)).isFalse();
+    }
+
+    @Test
+    public void testStreamingSigningAndVerification() throws Exception {
+        byte[] data = new byte[1234567];
+        ThreadLocalRandom.current().nextBytes(data);
+        Path file = Files.createTempFile("signing-test", ".bin");
+        try {
+            Files.write(file, data);
+
+            for (String keyId : Arrays.asList(null, "internal")) {
+                byte[] signature = signingService.sign(keyId, data);
+
+                assertThat(signingService.verify(keyId, ByteBuffer.wrap(data), signature)).isTrue();
+                assertThat(signingService.verify(keyId, new ByteArrayInputStream(data), signature)).isTrue();
+                assertThat(signingService.verify(keyId, Channels.newChannel(new ByteArrayInputStream(data)), signature)).isTrue();
+                assertThat(signingService.verify(keyId, file, signature)).isTrue();
+
+                assertThat(signingService.verify(keyId, new ByteArrayInputStream(data), signingService.sign(keyId, file))).isTrue();
+                assertThat(signingService.verify(keyId, file, signingService.sign(keyId, new ByteArrayInputStream(data)))).isTrue();
+                assertThat(signingService.verify(keyId, file, signingService.sign(keyId, ByteBuffer.wrap(data)))).isTrue();
+                assertThat(signingService.verify(keyId, data, signingService.sign(keyId, Channels.newChannel(new ByteArrayInputStream(data))))).isTrue();
+
+                assertThat(signingService.verify(keyId, new ByteArrayInputStream(data, 0, data.length - 1), signature)).isFalse();
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testSignAll() throws Exception {
+        List<byte[]> data = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            byte[] payload = new byte[ThreadLocalRandom.current().nextInt(1, 1000)];
+            ThreadLocalRandom.current().nextBytes(payload);
+            data.add(payload);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (String keyId : Arrays.asList(null, "internal")) {
+                List<byte[]> signatures = signingService.signAll(keyId, data, executor);
+                assertThat(signatures).hasSize(data.size());
+                for (int i = 0; i < data.size(); i++) {
+                    assertThat(signingService.verify(keyId, data.get(i), signatures.get(i))).isTrue();
+                }
+            }
+            assertThat(signingService.signAll(null, List.of(), executor)).isEmpty();
+            assertThatThrownBy(() -> signingService.signAll("unknown", data, executor)).isInstanceOf(IllegalArgumentException.class);
+        } finally {
+            executor.shutdown();
+        }
+    }
 }
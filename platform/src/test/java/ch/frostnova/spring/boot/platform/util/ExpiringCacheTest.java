@@ -0,0 +1,131 @@
+package ch.frostnova.spring.boot.platform.util;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test for {@link ExpiringCache}
+ */
+public class ExpiringCacheTest {
+
+    @Test
+    public void testExpiration() {
+        MutableClock clock = new MutableClock();
+        ExpiringCache<String, String> cache = new ExpiringCache<>("test", 10, clock);
+
+        cache.put("a", "A", clock.instant().plusSeconds(10));
+        cache.put("b", "B", clock.instant().plusSeconds(20));
+        cache.put("c", "C", clock.instant());
+        assertThat(cache.size()).isEqualTo(2);
+
+        assertThat(cache.get("a")).isEqualTo("A");
+        assertThat(cache.get("b")).isEqualTo("B");
+        assertThat(cache.get("c")).isNull();
+
+        clock.advance(Duration.ofSeconds(10));
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.get("b")).isEqualTo("B");
+        assertThat(cache.size()).isEqualTo(1);
+
+        clock.advance(Duration.ofSeconds(10));
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testMaxSize() {
+        MutableClock clock = new MutableClock();
+        ExpiringCache<Integer, String> cache = new ExpiringCache<>("test", 100, clock);
+
+        for (int i = 0; i < 50; i++) {
+            cache.put(i, "short-lived " + i, clock.instant().plusSeconds(1));
+        }
+        for (int i = 50; i < 1000; i++) {
+            cache.put(i, "value " + i, clock.instant().plusSeconds(3600));
+            assertThat(cache.size()).isLessThanOrEqualTo(100);
+            if (i == 60) {
+                // expired entries are removed first when making room
+                clock.advance(Duration.ofSeconds(2));
+            }
+        }
+        assertThat(cache.get(999)).isEqualTo("value 999");
+    }
+
+    @Test
+    public void testEvict() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>("test", 10);
+        cache.put("a", "A", Instant.now().plusSeconds(60));
+        cache.put("b", "B", Instant.now().plusSeconds(60));
+
+        cache.evict("a");
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.get("b")).isEqualTo("B");
+
+        cache.clear();
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testMetrics() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        ExpiringCache<String, String> cache = new ExpiringCache<>("test-cache", 10);
+        cache.bindTo(registry);
+
+        cache.put("a", "A", Instant.now().plusSeconds(60));
+        cache.get("a");
+        cache.get("a");
+        cache.get("b");
+
+        assertThat(registry.get("cache.gets").tag("cache", "test-cache").tag("result", "hit").functionCounter().count()).isEqualTo(2);
+        assertThat(registry.get("cache.gets").tag("cache", "test-cache").tag("result", "miss").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("cache.puts").tag("cache", "test-cache").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("cache.size").tag("cache", "test-cache").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    public void testInvalidMaxSize() {
+        assertThatThrownBy(() -> new ExpiringCache<>("test", 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testTokenDigest() {
+        assertThat(TokenDigest.of("token")).isEqualTo(TokenDigest.of("token"));
+        assertThat(TokenDigest.of("token").hashCode()).isEqualTo(TokenDigest.of("token").hashCode());
+        assertThat(TokenDigest.of("token")).isNotEqualTo(TokenDigest.of("token2"));
+        assertThat(TokenDigest.of("token").toString()).matches("[0-9a-f]{32}");
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2022-05-01T12:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
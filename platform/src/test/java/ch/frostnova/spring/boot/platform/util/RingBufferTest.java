@@ -0,0 +1,93 @@
+package ch.frostnova.spring.boot.platform.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test for {@link RingBuffer}
+ */
+public class RingBufferTest {
+
+    @Test
+    public void testCapacity() {
+        assertThat(new RingBuffer<>(1).capacity()).isEqualTo(1);
+        assertThat(new RingBuffer<>(2).capacity()).isEqualTo(2);
+        assertThat(new RingBuffer<>(3).capacity()).isEqualTo(4);
+        assertThat(new RingBuffer<>(1000).capacity()).isEqualTo(1024);
+        assertThat(new RingBuffer<>(1024).capacity()).isEqualTo(1024);
+
+        assertThatThrownBy(() -> new RingBuffer<>(0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new RingBuffer<>(-1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testOfferPoll() {
+        RingBuffer<String> buffer = new RingBuffer<>(4);
+        assertThat(buffer.poll()).isNull();
+
+        // several rounds, to wrap around
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 4; i++) {
+                assertThat(buffer.offer("e" + i)).isTrue();
+            }
+            assertThat(buffer.size()).isEqualTo(4);
+            assertThat(buffer.offer("overflow")).isFalse();
+            assertThat(buffer.getDropCount()).isEqualTo(round + 1);
+
+            for (int i = 0; i < 4; i++) {
+                assertThat(buffer.poll()).isEqualTo("e" + i);
+            }
+            assertThat(buffer.poll()).isNull();
+            assertThat(buffer.size()).isEqualTo(0);
+        }
+
+        assertThatThrownBy(() -> buffer.offer(null)).isInstanceOf(NullPointerException.class);
+    }
+
+    @Test
+    public void testConcurrentProducers() throws Exception {
+        int producers = 4;
+        int elementsPerProducer = 20_000;
+        RingBuffer<Integer> buffer = new RingBuffer<>(256);
+        AtomicInteger accepted = new AtomicInteger();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int offset = p * elementsPerProducer;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < elementsPerProducer; i++) {
+                    if (buffer.offer(offset + i)) {
+                        accepted.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+
+        Set<Integer> received = new HashSet<>();
+        while (threads.stream().anyMatch(Thread::isAlive) || buffer.size() > 0) {
+            Integer element = buffer.poll();
+            if (element != null) {
+                assertThat(received.add(element)).isTrue();
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Integer element;
+        while ((element = buffer.poll()) != null) {
+            assertThat(received.add(element)).isTrue();
+        }
+
+        assertThat(received).hasSize(accepted.get());
+        assertThat(accepted.get() + buffer.getDropCount()).isEqualTo((long) producers * elementsPerProducer);
+    }
+}
@@ -0,0 +1,36 @@
+package ch.frostnova.spring.boot.platform.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test for {@link VirtualThreads}
+ */
+public class VirtualThreadsTest {
+
+    @Test
+    public void testPlatformThread() {
+        assertThat(VirtualThreads.isVirtual(Thread.currentThread())).isFalse();
+    }
+
+    @Test
+    public void testExecutor() throws Exception {
+        if (!VirtualThreads.isSupported()) {
+            assertThatThrownBy(() -> VirtualThreads.newVirtualThreadPerTaskExecutor("test-"))
+                    .isInstanceOf(UnsupportedOperationException.class);
+            return;
+        }
+        ExecutorService executor = VirtualThreads.newVirtualThreadPerTaskExecutor("test-");
+        try {
+            Thread thread = executor.submit(Thread::currentThread).get();
+            assertThat(VirtualThreads.isVirtual(thread)).isTrue();
+            assertThat(thread.getName()).startsWith("test-");
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package ch.frostnova.spring.boot.platform.web.filter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test for {@link AccessLogFilter}
+ */
+public class AccessLogFilterTest {
+
+    @Test
+    public void testCountBytes() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/api/notes/123");
+        request.setContent("{\"text\": \"Hello\"}".getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setCharacterEncoding("UTF-8");
+        ServletRequest[] filteredRequest = new ServletRequest[1];
+        ServletResponse[] filteredResponse = new ServletResponse[1];
+
+        new AccessLogFilter().doFilter(request, response, (req, res) -> {
+            assertThat(req.getInputStream().readAllBytes()).hasSize(17);
+            res.getWriter().write("Gr\u00fcezi");
+            req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/notes/{id}");
+            filteredRequest[0] = req;
+            filteredResponse[0] = res;
+        });
+
+        assertThat(((AccessLogFilter.CountingRequest) filteredRequest[0]).getBytesRead()).isEqualTo(17);
+        // writer is flushed when the request leaves the filter
+        assertThat(response.getContentAsString()).isEqualTo("Gr\u00fcezi");
+        assertThat(((AccessLogFilter.CountingResponse) filteredResponse[0]).getBytesWritten()).isEqualTo(7);
+        assertThat(AccessLogFilter.route(request, 200)).isEqualTo("/api/notes/{id}");
+    }
+
+    @Test
+    public void testRoute() {
+        assertThat(AccessLogFilter.route(new MockHttpServletRequest("GET", "/api/unknown/123"), 404)).isEqualTo("NOT_FOUND");
+        assertThat(AccessLogFilter.route(new MockHttpServletRequest("GET", "/api/unknown/123"), 302)).isEqualTo("REDIRECTION");
+        assertThat(AccessLogFilter.route(new MockHttpServletRequest("GET", "/api/unknown/123"), 500)).isEqualTo("UNKNOWN");
+        assertThat(AccessLogFilter.route(new MockHttpServletRequest("GET", "/"), 200)).isEqualTo("root");
+    }
+
+    @Test
+    public void testDurationMs() {
+        assertThat(AccessLogFilter.durationMs(146_456_789)).isEqualTo(146.46);
+        assertThat(AccessLogFilter.durationMs(1_000)).isEqualTo(0.0);
+    }
+}
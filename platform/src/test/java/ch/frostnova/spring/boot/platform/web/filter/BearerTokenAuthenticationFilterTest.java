@@ -0,0 +1,66 @@
+package ch.frostnova.spring.boot.platform.web.filter;
+
+import ch.frostnova.spring.boot.platform.model.UserInfo;
+import ch.frostnova.spring.boot.platform.service.TokenAuthenticator;
+import ch.frostnova.spring.boot.platform.util.ExpiringCache;
+import ch.frostnova.spring.boot.platform.util.TokenDigest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test for {@link BearerTokenAuthenticationFilter}
+ */
+public class BearerTokenAuthenticationFilterTest {
+
+    @Test
+    public void testCachedAuthentication() throws Exception {
+        UserInfo userInfo = UserInfo.aUserInfo()
+                .tenant("test-tenant")
+                .login("test-user")
+                .role("RoleA")
+                .expiresAt(Instant.now().plusSeconds(3600))
+                .build();
+        List<TokenDigest> digests = new ArrayList<>();
+        TokenAuthenticator tokenAuthenticator = new TokenAuthenticator() {
+            @Override
+            public UserInfo authenticate(String token) {
+                throw new AssertionError("Token digest not passed on");
+            }
+
+            @Override
+            public UserInfo authenticate(String token, TokenDigest digest) {
+                digests.add(digest);
+                return userInfo;
+            }
+        };
+        BearerTokenAuthenticationFilter filter = new BearerTokenAuthenticationFilter(tokenAuthenticator, new ObjectMapper(),
+                new ExpiringCache<>("test-cache", 10));
+
+        List<Authentication> authentications = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/notes");
+            request.addHeader("Authorization", "Bearer test-token");
+            filter.doFilter(request, new MockHttpServletResponse(),
+                    (req, res) -> authentications.add(SecurityContextHolder.getContext().getAuthentication()));
+        }
+
+        // authenticated once (with the digest computed by the filter), then served from the cache
+        assertThat(digests).containsExactly(TokenDigest.of("test-token"));
+        // each request gets its own (mutable) authentication for the cached user
+        assertThat(authentications).hasSize(2).doesNotContainNull();
+        assertThat(authentications.get(0)).isNotSameAs(authentications.get(1));
+        assertThat(authentications.get(1).getName()).isEqualTo("test-user");
+        assertThat(authentications.get(1).getDetails()).isSameAs(userInfo);
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+    }
+}